@@ -143,7 +143,7 @@ public interface ContextManager {
      * current contexts have changed.
      *
      * <p>It is not strictly necessary to make a call to this method every time a context
-     * changes.</p>
+     * changes, unless the context is provided by a {@link SignalDrivenContextCalculator}.</p>
      *
      * @param subject the subject
      * @since 5.2
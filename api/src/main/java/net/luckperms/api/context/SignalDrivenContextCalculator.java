@@ -0,0 +1,46 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package net.luckperms.api.context;
+
+/**
+ * Extension of {@link ContextCalculator} which only provides new contexts
+ * after a change has been signalled.
+ *
+ * <p>The contexts submitted by calculators implementing this interface are
+ * cached, and will only be recalculated after a call to
+ * {@link ContextManager#signalContextUpdate(Object)} for the subject.</p>
+ *
+ * <p>Calculators that implement this interface <b>must</b> signal every change
+ * to the contexts they provide, otherwise subjects will continue to be queried
+ * using stale contexts.</p>
+ *
+ * @param <T> the contextual type
+ * @since 5.2
+ */
+@FunctionalInterface
+public interface SignalDrivenContextCalculator<T> extends ContextCalculator<T> {
+
+}
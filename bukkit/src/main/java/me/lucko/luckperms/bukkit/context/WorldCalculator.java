@@ -30,11 +30,11 @@ import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
 
 import net.luckperms.api.context.Context;
-import net.luckperms.api.context.ContextCalculator;
 import net.luckperms.api.context.ContextConsumer;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.DefaultContextKeys;
 import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.context.SignalDrivenContextCalculator;
 
 import org.bukkit.World;
 import org.bukkit.entity.Player;
@@ -42,13 +42,14 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-public class WorldCalculator implements ContextCalculator<Player>, Listener {
+public class WorldCalculator implements SignalDrivenContextCalculator<Player>, Listener {
     private final LPBukkitPlugin plugin;
 
     public WorldCalculator(LPBukkitPlugin plugin) {
@@ -80,6 +81,13 @@ public class WorldCalculator implements ContextCalculator<Player>, Listener {
         return builder.build();
     }
 
+    // the players saved location is applied between login and join, without a world change event
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent e) {
+        this.plugin.getContextManager().signalContextUpdate(e.getPlayer());
+    }
+
+    // also fired after teleports and respawns which move the player into another world
     @EventHandler(priority = EventPriority.LOWEST)
     public void onWorldChange(PlayerChangedWorldEvent e) {
         this.plugin.getContextManager().signalContextUpdate(e.getPlayer());
@@ -28,7 +28,9 @@ package me.lucko.luckperms.bungee.context;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
 import me.lucko.luckperms.bungee.LPBungeePlugin;
+import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.context.ContextManager;
+import me.lucko.luckperms.common.context.QueryOptionsCache;
 import me.lucko.luckperms.common.context.QueryOptionsSupplier;
 import me.lucko.luckperms.common.util.CaffeineFactory;
 
@@ -41,14 +43,28 @@ import java.util.concurrent.TimeUnit;
 
 public class BungeeContextManager extends ContextManager<ProxiedPlayer, ProxiedPlayer> {
 
-    private final LoadingCache<ProxiedPlayer, QueryOptions> contextsCache = CaffeineFactory.newBuilder()
-            .expireAfterWrite(50, TimeUnit.MILLISECONDS)
-            .build(this::calculate);
+    // cache the creation of ContextsCache instances for online players with no expiry
+    private final LoadingMap<ProxiedPlayer, QueryOptionsCache<ProxiedPlayer>> onlineSubjectCaches = LoadingMap.of(key -> new QueryOptionsCache<>(key, this));
+
+    // cache the creation of ContextsCache instances for offline players with a 1m expiry
+    private final LoadingCache<ProxiedPlayer, QueryOptionsCache<ProxiedPlayer>> offlineSubjectCaches = CaffeineFactory.newBuilder()
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .build(key -> {
+                QueryOptionsCache<ProxiedPlayer> cache = this.onlineSubjectCaches.getIfPresent(key);
+                if (cache != null) {
+                    return cache;
+                }
+                return new QueryOptionsCache<>(key, this);
+            });
 
     public BungeeContextManager(LPBungeePlugin plugin) {
         super(plugin, ProxiedPlayer.class, ProxiedPlayer.class);
     }
 
+    public void onPlayerQuit(ProxiedPlayer player) {
+        this.onlineSubjectCaches.remove(player);
+    }
+
     @Override
     public UUID getUniqueId(ProxiedPlayer player) {
         return player.getUniqueId();
@@ -60,41 +76,28 @@ public class BungeeContextManager extends ContextManager<ProxiedPlayer, ProxiedP
             throw new NullPointerException("subject");
         }
 
-        return new InlineQueryOptionsSupplier(subject, this.contextsCache);
-    }
-
-    @Override
-    public ImmutableContextSet getContext(ProxiedPlayer subject) {
-        return getQueryOptions(subject).context();
-    }
-
-    @Override
-    public QueryOptions getQueryOptions(ProxiedPlayer subject) {
-        return this.contextsCache.get(subject);
+        if (subject.isConnected()) {
+            return this.onlineSubjectCaches.get(subject);
+        } else {
+            return this.offlineSubjectCaches.get(subject);
+        }
     }
 
     @Override
     protected void invalidateCache(ProxiedPlayer subject) {
-        this.contextsCache.invalidate(subject);
+        QueryOptionsCache<ProxiedPlayer> cache = this.onlineSubjectCaches.getIfPresent(subject);
+        if (cache != null) {
+            cache.invalidate();
+        }
+
+        cache = this.offlineSubjectCaches.getIfPresent(subject);
+        if (cache != null) {
+            cache.invalidate();
+        }
     }
 
     @Override
     public QueryOptions formQueryOptions(ProxiedPlayer subject, ImmutableContextSet contextSet) {
         return formQueryOptions(contextSet);
     }
-
-    private static final class InlineQueryOptionsSupplier implements QueryOptionsSupplier {
-        private final ProxiedPlayer key;
-        private final LoadingCache<ProxiedPlayer, QueryOptions> cache;
-
-        private InlineQueryOptionsSupplier(ProxiedPlayer key, LoadingCache<ProxiedPlayer, QueryOptions> cache) {
-            this.key = key;
-            this.cache = cache;
-        }
-
-        @Override
-        public QueryOptions getQueryOptions() {
-            return this.cache.get(this.key);
-        }
-    }
 }
@@ -146,6 +146,9 @@ public class BungeeConnectionListener extends AbstractConnectionListener impleme
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onPlayerQuit(PlayerDisconnectEvent e) {
         handleDisconnect(e.getPlayer().getUniqueId());
+
+        // remove their contexts cache
+        this.plugin.getContextManager().onPlayerQuit(e.getPlayer());
     }
 
 }
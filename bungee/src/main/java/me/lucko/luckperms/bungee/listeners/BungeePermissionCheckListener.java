@@ -27,26 +27,72 @@ package me.lucko.luckperms.bungee.listeners;
 
 import me.lucko.luckperms.bungee.LPBungeePlugin;
 import me.lucko.luckperms.bungee.event.TristateCheckEvent;
+import me.lucko.luckperms.common.cacheddata.PermissionCheckHandle;
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
 import me.lucko.luckperms.common.calculator.result.TristateResult;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.query.QueryOptionsImpl;
 
-import net.luckperms.api.query.QueryOptions;
 import net.luckperms.api.util.Tristate;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.event.PermissionCheckEvent;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
+import net.md_5.bungee.api.event.PostLoginEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 import net.md_5.bungee.event.EventPriority;
 
+import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BungeePermissionCheckListener implements Listener {
     private final LPBungeePlugin plugin;
 
+    /** Permission check handles for connected players, bound at login */
+    private final Map<UUID, PermissionCheckHandle> handles = new ConcurrentHashMap<>();
+
+    /** If the result provided by the proxy should be used when LuckPerms has no value (not reloadable) */
+    private final boolean applyBungeeConfigPermissions;
+
     public BungeePermissionCheckListener(LPBungeePlugin plugin) {
         this.plugin = plugin;
+        this.applyBungeeConfigPermissions = plugin.getConfiguration().get(ConfigKeys.APPLY_BUNGEE_CONFIG_PERMISSIONS);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerPostLogin(PostLoginEvent e) {
+        ProxiedPlayer player = e.getPlayer();
+        User user = this.plugin.getUserManager().getIfLoaded(player.getUniqueId());
+        if (user != null) {
+            this.handles.put(player.getUniqueId(), new PermissionCheckHandle(user, this.plugin.getContextManager().getCacheFor(player)));
+        }
+    }
+
+    // remove after the connection listener has handled the disconnect, so checks can still use the handle until then
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onPlayerQuit(PlayerDisconnectEvent e) {
+        this.handles.remove(e.getPlayer().getUniqueId());
+    }
+
+    private PermissionCache getPermissionData(ProxiedPlayer player) {
+        PermissionCheckHandle handle = this.handles.get(player.getUniqueId());
+        if (handle != null) {
+            return handle.getPermissionData();
+        }
+
+        // the player isn't bound yet (or any more), so lookup their data directly
+        User user = this.plugin.getUserManager().getIfLoaded(player.getUniqueId());
+        if (user == null) {
+            this.plugin.getLogger().warn("A permission check was made for player " + player.getName() + " - " + player.getUniqueId() + ", " +
+                    "but LuckPerms does not have any permissions data loaded for them. Perhaps their UUID has been altered since login?");
+            new Exception().printStackTrace();
+            return null;
+        }
+
+        return user.getCachedData().getPermissionData(this.plugin.getContextManager().getQueryOptions(player));
     }
 
     @EventHandler(priority = EventPriority.HIGH)
@@ -60,19 +106,14 @@ public class BungeePermissionCheckListener implements Listener {
 
         ProxiedPlayer player = ((ProxiedPlayer) e.getSender());
 
-        User user = this.plugin.getUserManager().getIfLoaded(player.getUniqueId());
-        if (user == null) {
-            this.plugin.getLogger().warn("A permission check was made for player " + player.getName() + " - " + player.getUniqueId() + ", " +
-                    "but LuckPerms does not have any permissions data loaded for them. Perhaps their UUID has been altered since login?");
-            new Exception().printStackTrace();
-
+        PermissionCache permissionData = getPermissionData(player);
+        if (permissionData == null) {
             e.setHasPermission(false);
             return;
         }
 
-        QueryOptions queryOptions = this.plugin.getContextManager().getQueryOptions(player);
-        Tristate result = user.getCachedData().getPermissionData(queryOptions).checkPermission(e.getPermission(), me.lucko.luckperms.common.verbose.event.PermissionCheckEvent.Origin.PLATFORM_PERMISSION_CHECK).result();
-        if (result == Tristate.UNDEFINED && this.plugin.getConfiguration().get(ConfigKeys.APPLY_BUNGEE_CONFIG_PERMISSIONS)) {
+        Tristate result = permissionData.checkPermission(e.getPermission(), me.lucko.luckperms.common.verbose.event.PermissionCheckEvent.Origin.PLATFORM_PERMISSION_CHECK).result();
+        if (result == Tristate.UNDEFINED && this.applyBungeeConfigPermissions) {
             return; // just use the result provided by the proxy when the event was created
         }
 
@@ -90,19 +131,14 @@ public class BungeePermissionCheckListener implements Listener {
 
         ProxiedPlayer player = ((ProxiedPlayer) e.getSender());
 
-        User user = this.plugin.getUserManager().getIfLoaded(player.getUniqueId());
-        if (user == null) {
-            this.plugin.getLogger().warn("A permission check was made for player " + player.getName() + " - " + player.getUniqueId() + ", " +
-                    "but LuckPerms does not have any permissions data loaded for them. Perhaps their UUID has been altered since login?");
-            new Exception().printStackTrace();
-
+        PermissionCache permissionData = getPermissionData(player);
+        if (permissionData == null) {
             e.setResult(Tristate.UNDEFINED);
             return;
         }
 
-        QueryOptions queryOptions = this.plugin.getContextManager().getQueryOptions(player);
-        Tristate result = user.getCachedData().getPermissionData(queryOptions).checkPermission(e.getPermission(), me.lucko.luckperms.common.verbose.event.PermissionCheckEvent.Origin.PLATFORM_LOOKUP_CHECK).result();
-        if (result == Tristate.UNDEFINED && this.plugin.getConfiguration().get(ConfigKeys.APPLY_BUNGEE_CONFIG_PERMISSIONS)) {
+        Tristate result = permissionData.checkPermission(e.getPermission(), me.lucko.luckperms.common.verbose.event.PermissionCheckEvent.Origin.PLATFORM_LOOKUP_CHECK).result();
+        if (result == Tristate.UNDEFINED && this.applyBungeeConfigPermissions) {
             return; // just use the result provided by the proxy when the event was created
         }
 
@@ -25,22 +25,25 @@
 
 package me.lucko.luckperms.common.backup;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
-import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
-import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.storage.misc.UserDataRecord;
 import me.lucko.luckperms.common.util.ProgressLogger;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 import me.lucko.luckperms.common.util.gson.JArray;
 import me.lucko.luckperms.common.util.gson.JObject;
 
+import net.luckperms.api.node.Node;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
@@ -49,22 +52,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
@@ -74,6 +68,9 @@ import java.util.zip.GZIPOutputStream;
 public class Exporter implements Runnable {
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z");
 
+    /** The number of users read from storage and written to the file at a time */
+    private static final int USER_PAGE_SIZE = 500;
+
     private final LuckPermsPlugin plugin;
     private final Sender executor;
     private final Path filePath;
@@ -93,34 +90,49 @@ public class Exporter implements Runnable {
 
     @Override
     public void run() {
-        JsonObject file = new JsonObject();
-        file.add("metadata", new JObject()
-                .add("generatedBy", this.executor.getNameWithLocation())
-                .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
-                .toJson());
-
-        this.log.log("Gathering group data...");
-        file.add("groups", exportGroups());
-
-        this.log.log("Gathering track data...");
-        file.add("tracks", exportTracks());
-
-        if (this.includeUsers) {
-            this.log.log("Gathering user data...");
-            file.add("users", exportUsers());
-        }
-
-        this.log.log("Finished gathering data, writing file...");
+        Gson gson = GsonProvider.prettyPrinting();
+
+        // the file is written as it is generated, so the whole dataset
+        // never needs to be held in memory at once
+        try (JsonWriter out = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(this.filePath)), StandardCharsets.UTF_8)))) {
+            out.beginObject();
+
+            out.name("metadata");
+            gson.toJson(new JObject()
+                    .add("generatedBy", this.executor.getNameWithLocation())
+                    .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
+                    .toJson(), out);
+
+            this.log.log("Gathering group data...");
+            out.name("groups");
+            gson.toJson(exportGroups(), out);
+
+            this.log.log("Gathering track data...");
+            out.name("tracks");
+            gson.toJson(exportTracks(), out);
+
+            if (this.includeUsers) {
+                this.log.log("Gathering user data...");
+                out.name("users");
+                exportUsers(gson, out);
+            }
 
-        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(this.filePath)), StandardCharsets.UTF_8))) {
-            GsonProvider.prettyPrinting().toJson(file, out);
-        } catch (IOException e) {
+            out.endObject();
+        } catch (IOException | CompletionException e) {
             e.printStackTrace();
+            this.log.getListeners().forEach(l -> Message.LOG_EXPORT_FAILURE.send(l));
+
+            // don't leave a truncated file behind
+            try {
+                Files.deleteIfExists(this.filePath);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            return;
         }
 
         this.log.getListeners().forEach(l -> Message.LOG_EXPORT_SUCCESS.send(l, this.filePath.toFile().getAbsolutePath()));
     }
-
     private JsonObject exportGroups() {
         JsonObject out = new JsonObject();
         List<Group> groups = this.plugin.getGroupManager().getAll().values().stream()
@@ -151,72 +163,47 @@ public class Exporter implements Runnable {
         return out;
     }
 
-    private JsonObject exportUsers() {
-        // Users are migrated in separate threads.
-        // This is because there are likely to be a lot of them, and because we can.
-        // It's a big speed improvement, since the database/files are split up and can handle concurrent reads.
+    private void exportUsers(Gson gson, JsonWriter out) throws IOException {
+        // Users are read directly from the storage in pages, without loading them into the user manager.
+        // Each page is written to the file before the next is read, so memory usage stays constant
+        // regardless of how many users there are. Users are written in the order the storage pages
+        // through them, which depends on the backend - see StorageImplementation#iterateUserData.
 
-        this.log.log("Finding a list of unique users to export.");
-
-        // Find all of the unique users we need to export
-        Storage ds = this.plugin.getStorage();
-        Set<UUID> users = ds.getUniqueUsers().join();
-        this.log.log("Found " + users.size() + " unique users to export.");
-
-        // create a threadpool to process the users concurrently
-        ExecutorService executor = Executors.newFixedThreadPool(32);
+        AtomicInteger userCount = new AtomicInteger(0);
+        AtomicLong lastProgressReport = new AtomicLong(System.currentTimeMillis());
 
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
+        out.beginObject();
+        this.plugin.getStorage().iterateUserData(USER_PAGE_SIZE, page -> {
+            for (UserDataRecord user : page) {
+                List<Node> nodes = user.getNodes().stream()
+                        .filter(n -> !n.hasExpired())
+                        .collect(Collectors.toList());
 
-        AtomicInteger userCount = new AtomicInteger(0);
-        Map<UUID, JsonObject> out = Collections.synchronizedMap(new TreeMap<>());
-
-        // iterate through each user.
-        for (UUID uuid : users) {
-            // register a task for the user, and schedule it's execution with the pool
-            futures.add(CompletableFuture.runAsync(() -> {
-                User user = this.plugin.getStorage().loadUser(uuid, null).join();
-                out.put(user.getUniqueId(), new JObject()
+                out.name(user.getUniqueId().toString());
+                gson.toJson(new JObject()
                         .consume(obj -> {
-                            user.getUsername().ifPresent(username -> obj.add("username", username));
-                            if (!user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME).equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
-                                obj.add("primaryGroup", user.getPrimaryGroup().getStoredValue().get());
+                            if (user.getUsername() != null) {
+                                obj.add("username", user.getUsername());
+                            }
+                            if (user.getPrimaryGroup() != null && !user.getPrimaryGroup().equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
+                                obj.add("primaryGroup", user.getPrimaryGroup());
                             }
                         })
-                        .add("nodes", NodeJsonSerializer.serializeNodes(user.normalData().asSet()))
-                        .toJson());
-                this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
-                userCount.incrementAndGet();
-            }, executor));
-        }
-
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
-
-        while (true) {
-            try {
-                overallFuture.get(5, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
-                // abnormal error - just break
-                e.printStackTrace();
-                break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                this.log.logAllProgress("Exported {} users so far.", userCount.get());
-                continue;
+                        .add("nodes", NodeJsonSerializer.serializeNodes(nodes))
+                        .toJson(), out);
             }
 
-            // process is complete
-            break;
-        }
+            int count = userCount.addAndGet(page.size());
 
-        executor.shutdown();
+            // send a progress report every 5 seconds
+            long now = System.currentTimeMillis();
+            if (now - lastProgressReport.get() >= TimeUnit.SECONDS.toMillis(5)) {
+                lastProgressReport.set(now);
+                this.log.logAllProgress("Exported {} users so far.", count);
+            }
+        }).join();
+        out.endObject();
 
-        JsonObject outJson = new JsonObject();
-        for (Map.Entry<UUID, JsonObject> entry : out.entrySet()) {
-            outJson.add(entry.getKey().toString(), entry.getValue());
-        }
-        return outJson;
+        this.log.log("Exported " + userCount.get() + " users.");
     }
 }
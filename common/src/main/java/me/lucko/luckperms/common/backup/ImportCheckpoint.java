@@ -0,0 +1,116 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.backup;
+
+import com.google.gson.JsonObject;
+
+import me.lucko.luckperms.common.util.gson.GsonProvider;
+import me.lucko.luckperms.common.util.gson.JObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Records whether the groups and tracks from an import file have been written to
+ * the storage, and how many users have been, so that an interrupted import can be
+ * resumed.
+ */
+final class ImportCheckpoint {
+    private final Path checkpointPath;
+    private final Path importPath;
+
+    ImportCheckpoint(Path importPath) {
+        this.importPath = importPath;
+        this.checkpointPath = importPath.resolveSibling(importPath.getFileName().toString() + ".checkpoint");
+    }
+
+    /**
+     * Reads the progress of a previous import of the file.
+     *
+     * <p>Returns {@link Progress#NONE} if there is no checkpoint, or if the checkpoint
+     * was created for a different version of the file.</p>
+     *
+     * @return the progress
+     */
+    Progress read() {
+        if (!Files.exists(this.checkpointPath)) {
+            return Progress.NONE;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(this.checkpointPath, StandardCharsets.UTF_8)) {
+            JsonObject data = GsonProvider.normal().fromJson(reader, JsonObject.class);
+            if (data.get("size").getAsLong() != Files.size(this.importPath) ||
+                    data.get("lastModified").getAsLong() != Files.getLastModifiedTime(this.importPath).toMillis()) {
+                return Progress.NONE;
+            }
+            boolean groupsAndTracks = data.has("groupsAndTracks") && data.get("groupsAndTracks").getAsBoolean();
+            return new Progress(groupsAndTracks, data.get("users").getAsInt());
+        } catch (Exception e) {
+            return Progress.NONE;
+        }
+    }
+
+    void write(Progress progress) throws IOException {
+        JsonObject data = new JObject()
+                .add("file", this.importPath.getFileName().toString())
+                .add("size", Files.size(this.importPath))
+                .add("lastModified", Files.getLastModifiedTime(this.importPath).toMillis())
+                .add("groupsAndTracks", progress.groupsAndTracks)
+                .add("users", progress.users)
+                .toJson();
+
+        // write to a temporary file first, so a crash can't leave a partially written checkpoint
+        Path tmp = this.checkpointPath.resolveSibling(this.checkpointPath.getFileName().toString() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            GsonProvider.normal().toJson(data, writer);
+        }
+        Files.move(tmp, this.checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(this.checkpointPath);
+    }
+
+    static final class Progress {
+        static final Progress NONE = new Progress(false, 0);
+
+        /** If all groups and tracks in the file have been imported */
+        final boolean groupsAndTracks;
+
+        /** The number of users from the start of the file which have been imported */
+        final int users;
+
+        Progress(boolean groupsAndTracks, int users) {
+            this.groupsAndTracks = groupsAndTracks;
+            this.users = users;
+        }
+    }
+}
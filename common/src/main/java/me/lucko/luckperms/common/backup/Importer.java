@@ -26,49 +26,81 @@
 package me.lucko.luckperms.common.backup;
 
 import com.google.common.collect.ImmutableSet;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.io.CountingInputStream;
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 
 import me.lucko.luckperms.common.locale.message.Message;
-import me.lucko.luckperms.common.model.Group;
-import me.lucko.luckperms.common.model.Track;
-import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.misc.UserDataRecord;
+import me.lucko.luckperms.common.util.Uuids;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
 
 import net.luckperms.api.event.cause.CreationCause;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Handles import operations
+ *
+ * <p>The import file is parsed incrementally, and users are written to the
+ * storage in batches as they are read, so memory usage does not depend on the
+ * size of the file.</p>
  */
 public class Importer implements Runnable {
 
+    /** The number of users written to the storage in each batch */
+    private static final int USER_BATCH_SIZE = 1000;
+
+    /** The maximum number of batches being written at once, before parsing is paused */
+    private static final int MAX_IN_FLIGHT_BATCHES = 4;
+
     private final LuckPermsPlugin plugin;
     private final Set<Sender> notify;
-    private final JsonObject data;
+    private final Path filePath;
     private final boolean merge;
+    private final ImportCheckpoint checkpoint;
+
+    // limits the number of batches being written at once
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT_BATCHES);
+
+    private final AtomicInteger importedUsers = new AtomicInteger(0);
+    private final AtomicInteger errors = new AtomicInteger(0);
 
-    public Importer(LuckPermsPlugin plugin, Sender executor, JsonObject data, boolean merge) {
+    // batches complete out of order - the checkpoint only advances over a contiguous run of successful batches
+    private final Map<Integer, Integer> completedBatches = new TreeMap<>();
+    private int nextBatchToCheckpoint = 0;
+    private int checkpointedUsers = 0;
+    private boolean groupsAndTracksImported = false;
+
+    // group & track writes which haven't been waited for yet
+    private final List<CompletableFuture<Void>> groupAndTrackFutures = new ArrayList<>();
+
+    public Importer(LuckPermsPlugin plugin, Sender executor, Path filePath, boolean merge) {
         this.plugin = plugin;
 
         if (executor.isConsole()) {
@@ -76,50 +108,97 @@ public class Importer implements Runnable {
         } else {
             this.notify = ImmutableSet.of(executor, plugin.getConsoleSender());
         }
-        this.data = data;
+        this.filePath = filePath;
         this.merge = merge;
+        this.checkpoint = new ImportCheckpoint(filePath);
     }
 
-    private static final class UserData {
-        private final String username;
-        private final String primaryGroup;
-        private final Set<Node> nodes;
+    private CompletableFuture<Void> processGroup(String groupName, Set<Node> nodes) {
+        return this.plugin.getStorage().createAndLoadGroup(groupName, CreationCause.INTERNAL).thenCompose(group -> {
+            if (this.merge) {
+                group.mergeNodes(DataType.NORMAL, nodes);
+            } else {
+                group.setNodes(DataType.NORMAL, nodes);
+            }
+            return this.plugin.getStorage().saveGroup(group);
+        });
+    }
 
-        UserData(String username, String primaryGroup, Set<Node> nodes) {
-            this.username = username;
-            this.primaryGroup = primaryGroup;
-            this.nodes = nodes;
-        }
+    private CompletableFuture<Void> processTrack(String trackName, List<String> groups) {
+        return this.plugin.getStorage().createAndLoadTrack(trackName, CreationCause.INTERNAL).thenCompose(track -> {
+            track.setGroups(groups);
+            return this.plugin.getStorage().saveTrack(track);
+        });
     }
 
-    private void processGroup(String groupName, Set<Node> nodes) {
-        Group group = this.plugin.getStorage().createAndLoadGroup(groupName, CreationCause.INTERNAL).join();
-        if (this.merge) {
-            group.mergeNodes(DataType.NORMAL, nodes);
-        } else {
-            group.setNodes(DataType.NORMAL, nodes);
+    private void processUserBatch(int batchIndex, int endIndex, List<UserDataRecord> batch) throws InterruptedException {
+        // block until there is capacity to write another batch
+        this.inFlight.acquire();
+
+        this.plugin.getStorage().saveUserData(batch, this.merge).whenComplete((result, ex) -> {
+            this.inFlight.release();
+            if (ex != null) {
+                ex.printStackTrace();
+                this.errors.addAndGet(batch.size());
+                return;
+            }
+
+            this.importedUsers.addAndGet(batch.size());
+            checkpoint(batchIndex, endIndex);
+        });
+    }
+
+    private synchronized void checkpoint(int batchIndex, int endIndex) {
+        this.completedBatches.put(batchIndex, endIndex);
+
+        Integer checkpointIndex = null;
+        Integer next;
+        while ((next = this.completedBatches.remove(this.nextBatchToCheckpoint)) != null) {
+            checkpointIndex = next;
+            this.nextBatchToCheckpoint++;
+        }
+
+        if (checkpointIndex != null) {
+            this.checkpointedUsers = checkpointIndex;
+            writeCheckpoint();
         }
-        this.plugin.getStorage().saveGroup(group);
     }
 
-    private void processTrack(String trackName, List<String> groups) {
-        Track track = this.plugin.getStorage().createAndLoadTrack(trackName, CreationCause.INTERNAL).join();
-        track.setGroups(groups);
-        this.plugin.getStorage().saveTrack(track).join();
+    private synchronized void writeCheckpoint() {
+        try {
+            this.checkpoint.write(new ImportCheckpoint.Progress(this.groupsAndTracksImported, this.checkpointedUsers));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
-    private void processUser(UUID uuid, UserData userData) {
-        User user = this.plugin.getStorage().loadUser(uuid, userData.username).join();
-        if (userData.primaryGroup != null) {
-            user.getPrimaryGroup().setStoredValue(userData.primaryGroup);
+    /**
+     * Waits for the group & track writes submitted so far to complete, and records
+     * them in the checkpoint if they all succeeded.
+     */
+    private void awaitGroupsAndTracks() {
+        if (this.groupAndTrackFutures.isEmpty()) {
+            return;
         }
-        if (this.merge) {
-            user.mergeNodes(DataType.NORMAL, userData.nodes);
-        } else {
-            user.setNodes(DataType.NORMAL, userData.nodes);
+
+        boolean success = true;
+        for (CompletableFuture<Void> future : this.groupAndTrackFutures) {
+            try {
+                future.join();
+            } catch (Exception e) {
+                e.printStackTrace();
+                this.errors.incrementAndGet();
+                success = false;
+            }
+        }
+        this.groupAndTrackFutures.clear();
+
+        if (success) {
+            synchronized (this) {
+                this.groupsAndTracksImported = true;
+                writeCheckpoint();
+            }
         }
-        this.plugin.getStorage().saveUser(user).join();
-        this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
     }
 
     @Override
@@ -130,110 +209,179 @@ public class Importer implements Runnable {
         // start an update task in the background - we'll #join this later
         CompletableFuture<Void> updateTask = CompletableFuture.runAsync(() -> this.plugin.getSyncTaskBuffer().requestDirectly());
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Reading data..."));
-
-        Map<String, Set<Node>> groups = new HashMap<>();
-        Map<String, List<String>> tracks = new HashMap<>();
-        Map<UUID, UserData> users = new HashMap<>();
-
-        for (Map.Entry<String, JsonElement> group : this.data.get("groups").getAsJsonObject().entrySet()) {
-            groups.put(group.getKey(), NodeJsonSerializer.deserializeNodes(group.getValue().getAsJsonObject().get("nodes").getAsJsonArray()));
-        }
-        for (Map.Entry<String, JsonElement> track : this.data.get("tracks").getAsJsonObject().entrySet()) {
-            JsonArray trackGroups = track.getValue().getAsJsonObject().get("groups").getAsJsonArray();
-            List<String> trackGroupsList = new ArrayList<>();
-            trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
-            tracks.put(track.getKey(), trackGroupsList);
+        ImportCheckpoint.Progress progress = this.checkpoint.read();
+        boolean skipGroupsAndTracks = progress.groupsAndTracks;
+        int skipUsers = progress.users;
+        this.groupsAndTracksImported = skipGroupsAndTracks;
+        this.checkpointedUsers = skipUsers;
+        if (skipGroupsAndTracks || skipUsers > 0) {
+            this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Resuming a previous import - skipping " +
+                    (skipGroupsAndTracks ? "groups, tracks and " : "") + "the first " + skipUsers + " users"));
         }
-        for (Map.Entry<String, JsonElement> user : this.data.get("users").getAsJsonObject().entrySet()) {
-            JsonObject jsonData = user.getValue().getAsJsonObject();
 
-            UUID uuid = UUID.fromString(user.getKey());
-            String username = null;
-            String primaryGroup = null;
-            Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
+        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Reading data..."));
 
-            if (jsonData.has("username")) {
-                username = jsonData.get("username").getAsString();
-            }
-            if (jsonData.has("primaryGroup")) {
-                primaryGroup = jsonData.get("primaryGroup").getAsString();
+        Gson gson = GsonProvider.normal();
+        boolean readFailed = false;
+
+        try {
+            long fileSize = Files.size(this.filePath);
+            try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(this.filePath));
+                 JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(new GZIPInputStream(counter), StandardCharsets.UTF_8)))) {
+
+                // join the update task future before writing any data
+                this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Waiting for initial update task to complete..."));
+                updateTask.join();
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "groups": {
+                            if (skipGroupsAndTracks) {
+                                reader.skipValue();
+                                break;
+                            }
+                            JsonObject groups = gson.fromJson(reader, JsonObject.class);
+                            for (Map.Entry<String, JsonElement> group : groups.entrySet()) {
+                                Set<Node> nodes = NodeJsonSerializer.deserializeNodes(group.getValue().getAsJsonObject().get("nodes").getAsJsonArray());
+                                this.groupAndTrackFutures.add(processGroup(group.getKey(), nodes));
+                            }
+                            break;
+                        }
+                        case "tracks": {
+                            if (skipGroupsAndTracks) {
+                                reader.skipValue();
+                                break;
+                            }
+                            JsonObject tracks = gson.fromJson(reader, JsonObject.class);
+                            for (Map.Entry<String, JsonElement> track : tracks.entrySet()) {
+                                JsonArray trackGroups = track.getValue().getAsJsonObject().get("groups").getAsJsonArray();
+                                List<String> trackGroupsList = new ArrayList<>();
+                                trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
+                                this.groupAndTrackFutures.add(processTrack(track.getKey(), trackGroupsList));
+                            }
+                            break;
+                        }
+                        case "users":
+                            // groups & tracks come first in exported files - record them before moving on
+                            awaitGroupsAndTracks();
+                            readUsers(reader, gson, skipUsers, counter, fileSize);
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
             }
-
-            users.put(uuid, new UserData(username, primaryGroup, nodes));
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            e.printStackTrace();
+            this.notify.forEach(s -> Message.IMPORT_FILE_READ_FAILURE.send(s));
+            readFailed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            readFailed = true;
         }
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Waiting for initial update task to complete..."));
+        if (!readFailed) {
+            this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "All data has been read - now waiting for the remaining writes to complete"));
+        }
 
-        // join the update task future before scheduling command executions
-        updateTask.join();
+        // wait for the groups & tracks, and for all in-flight user batches to finish,
+        // even if reading failed part way through
+        awaitGroupsAndTracks();
+        this.inFlight.acquireUninterruptibly(MAX_IN_FLIGHT_BATCHES);
+        this.inFlight.release(MAX_IN_FLIGHT_BATCHES);
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Setting up data processor..."));
+        if (!readFailed && this.errors.get() == 0) {
+            try {
+                this.checkpoint.delete();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
 
-        // create a threadpool for the processing
-        ExecutorService executor = Executors.newFixedThreadPool(16, new ThreadFactoryBuilder().setNameFormat("luckperms-importer-%d").build());
+        // data was written directly to the storage, so refresh anything which is loaded
+        this.plugin.getSyncTaskBuffer().requestDirectly();
 
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
+        if (readFailed) {
+            return;
+        }
 
-        int total = 0;
-        AtomicInteger processedCount = new AtomicInteger(0);
+        long endTime = System.currentTimeMillis();
+        double seconds = (endTime - startTime) / 1000.0;
 
-        for (Map.Entry<String, Set<Node>> group : groups.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(group).thenAcceptAsync(ent -> {
-                processGroup(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
-        }
-        for (Map.Entry<String, List<String>> track : tracks.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(track).thenAcceptAsync(ent -> {
-                processTrack(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
-        }
-        for (Map.Entry<UUID, UserData> user : users.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(user).thenAcceptAsync(ent -> {
-                processUser(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
+        int errors = this.errors.get();
+        if (errors == 0) {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE.send(s, seconds));
+        } else if (errors == 1) {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE_ERR_SIN.send(s, seconds, errors));
+        } else {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE_ERR.send(s, seconds, errors));
         }
+    }
 
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    private void readUsers(JsonReader reader, Gson gson, int skipUsers, CountingInputStream counter, long fileSize) throws IOException, InterruptedException {
+        long lastProgressReport = System.currentTimeMillis();
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "All data entries have been processed and scheduled for import - now waiting for the execution to complete."));
+        int index = 0;
+        int batchIndex = 0;
+        List<UserDataRecord> batch = new ArrayList<>(USER_BATCH_SIZE);
 
-        while (true) {
-            try {
-                overallFuture.get(2, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
-                // abnormal error - just break
-                e.printStackTrace();
-                break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                sendProgress(processedCount.get(), total);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (index++ < skipUsers) {
+                reader.skipValue();
                 continue;
             }
 
-            // process is complete
-            break;
-        }
+            JsonObject jsonData = gson.fromJson(reader, JsonObject.class);
+            UUID uuid = Uuids.fromString(key);
+            if (uuid == null) {
+                this.errors.incrementAndGet();
+                continue;
+            }
 
-        executor.shutdown();
+            String username = null;
+            String primaryGroup = null;
+            Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
 
-        long endTime = System.currentTimeMillis();
-        double seconds = (endTime - startTime) / 1000.0;
+            if (jsonData.has("username")) {
+                username = jsonData.get("username").getAsString();
+            }
+            if (jsonData.has("primaryGroup")) {
+                primaryGroup = jsonData.get("primaryGroup").getAsString();
+            }
+
+            batch.add(new UserDataRecord(uuid, username, primaryGroup, nodes));
+            if (batch.size() >= USER_BATCH_SIZE) {
+                processUserBatch(batchIndex++, index, batch);
+                batch = new ArrayList<>(USER_BATCH_SIZE);
+            }
 
-        this.notify.forEach(s -> Message.IMPORT_END_COMPLETE.send(s, seconds));
+            // send a progress report every 2 seconds
+            long now = System.currentTimeMillis();
+            if (now - lastProgressReport >= TimeUnit.SECONDS.toMillis(2)) {
+                lastProgressReport = now;
+                sendProgress((int) ((counter.getCount() * 100) / Math.max(fileSize, 1)));
+            }
+        }
+        reader.endObject();
+
+        if (!batch.isEmpty()) {
+            processUserBatch(batchIndex, index, batch);
+        }
     }
 
-    private void sendProgress(int processedCount, int total) {
-        int percent = (processedCount * 100) / total;
-        this.notify.forEach(s -> Message.IMPORT_PROGRESS.send(s, percent, processedCount, total, 0));
+    private void sendProgress(int percent) {
+        int importedUsers = this.importedUsers.get();
+        int errors = this.errors.get();
+        if (errors == 1) {
+            this.notify.forEach(s -> Message.IMPORT_PROGRESS_SIN.send(s, percent, importedUsers, errors));
+        } else {
+            this.notify.forEach(s -> Message.IMPORT_PROGRESS.send(s, percent, importedUsers, errors));
+        }
     }
 
 }
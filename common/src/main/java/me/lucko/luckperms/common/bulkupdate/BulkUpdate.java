@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.bulkupdate;
 
 import me.lucko.luckperms.common.bulkupdate.action.Action;
 import me.lucko.luckperms.common.bulkupdate.query.Query;
+import me.lucko.luckperms.common.bulkupdate.query.QueryField;
 
 import net.luckperms.api.node.Node;
 
@@ -38,6 +39,7 @@ import java.util.Objects;
  * Queries can either be applied to im-memory sets of data, or converted to SQL syntax to be executed remotely.
  */
 public final class BulkUpdate {
+    private static final int FIELD_COUNT = QueryField.values().length;
 
     // the data types which this query should apply to
     private final DataType dataType;
@@ -48,10 +50,31 @@ public final class BulkUpdate {
     // a set of constraints which data must match to be acted upon
     private final List<Query> queries;
 
+    // if the update should only be previewed, without changing any data
+    private final boolean dryRun;
+
+    // the holders & nodes affected by this update
+    private final BulkUpdateStatistics statistics = new BulkUpdateStatistics();
+
     public BulkUpdate(DataType dataType, Action action, List<Query> queries) {
+        this(dataType, action, queries, false);
+    }
+
+    public BulkUpdate(DataType dataType, Action action, List<Query> queries, boolean dryRun) {
         this.dataType = dataType;
         this.action = action;
         this.queries = queries;
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * Creates a copy of this {@link BulkUpdate} which only records the data
+     * it would affect, without making any changes.
+     *
+     * @return a dry run copy of this update
+     */
+    public BulkUpdate asDryRun() {
+        return new BulkUpdate(this.dataType, this.action, this.queries, true);
     }
 
     /**
@@ -61,8 +84,16 @@ public final class BulkUpdate {
      * @return true if satisfied
      */
     public boolean satisfiesConstraints(Node node) {
+        // each field is only lowercased once, however many queries test it
+        String[] values = new String[FIELD_COUNT];
         for (Query query : this.queries) {
-            if (!query.isSatisfiedBy(node)) {
+            QueryField field = query.getField();
+            String value = values[field.ordinal()];
+            if (value == null) {
+                value = values[field.ordinal()] = field.getValue(node).toLowerCase();
+            }
+
+            if (!query.getConstraint().evalLowerCase(value)) {
                 return false;
             }
         }
@@ -98,12 +129,57 @@ public final class BulkUpdate {
         // (DELETE FROM or UPDATE)
         this.action.appendSql(builder);
 
+        // append constraints
+        appendConstraintsAsSql(builder);
+        appendChangeConditionAsSql(builder);
+        return builder;
+    }
+
+    /**
+     * Builds a SQL query selecting the given columns from the rows this
+     * {@link BulkUpdate} would act upon.
+     *
+     * @param columns the columns to select, e.g. COUNT(*)
+     * @return the query in SQL form
+     */
+    public PreparedStatementBuilder buildAsSqlSelect(String columns) {
+        // SELECT ... FROM {table} WHERE ...
+        PreparedStatementBuilder builder = new PreparedStatementBuilder().append("SELECT " + columns + " FROM {table}");
+        appendConstraintsAsSql(builder);
+        appendChangeConditionAsSql(builder);
+        return builder;
+    }
+
+    /**
+     * Narrows a statement built using {@link #appendConstraintsAsSql(PreparedStatementBuilder)}
+     * to only the rows the action would actually change, so counts agree with the
+     * other storage types.
+     *
+     * @param builder the builder to append to
+     */
+    private void appendChangeConditionAsSql(PreparedStatementBuilder builder) {
+        if (!this.action.hasSqlChangeCondition()) {
+            return;
+        }
+
+        builder.append(this.queries.isEmpty() ? " WHERE " : " AND ");
+        this.action.appendSqlChangeCondition(builder);
+    }
+
+    /**
+     * Appends the constraints of this {@link BulkUpdate} to the given builder,
+     * as a SQL WHERE clause.
+     *
+     * <p>Nothing is appended if there are no constraints.</p>
+     *
+     * @param builder the builder to append to
+     */
+    public void appendConstraintsAsSql(PreparedStatementBuilder builder) {
         // if there are no constraints, just return without a WHERE clause
         if (this.queries.isEmpty()) {
-            return builder;
+            return;
         }
 
-        // append constraints
         builder.append(" WHERE");
         for (int i = 0; i < this.queries.size(); i++) {
             Query query = this.queries.get(i);
@@ -115,8 +191,6 @@ public final class BulkUpdate {
 
             query.appendSql(builder);
         }
-
-        return builder;
     }
 
     public DataType getDataType() {
@@ -131,6 +205,14 @@ public final class BulkUpdate {
         return this.queries;
     }
 
+    public boolean isDryRun() {
+        return this.dryRun;
+    }
+
+    public BulkUpdateStatistics getStatistics() {
+        return this.statistics;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == this) return true;
@@ -139,12 +221,13 @@ public final class BulkUpdate {
 
         return this.getDataType() == that.getDataType() &&
                 Objects.equals(this.getAction(), that.getAction()) &&
-                Objects.equals(this.getQueries(), that.getQueries());
+                Objects.equals(this.getQueries(), that.getQueries()) &&
+                this.isDryRun() == that.isDryRun();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getDataType(), getAction(), getQueries());
+        return Objects.hash(getDataType(), getAction(), getQueries(), isDryRun());
     }
 
     @Override
@@ -152,6 +235,7 @@ public final class BulkUpdate {
         return "BulkUpdate(" +
                 "dataType=" + this.getDataType() + ", " +
                 "action=" + this.getAction() + ", " +
-                "constraints=" + this.getQueries() + ")";
+                "constraints=" + this.getQueries() + ", " +
+                "dryRun=" + this.isDryRun() + ")";
     }
 }
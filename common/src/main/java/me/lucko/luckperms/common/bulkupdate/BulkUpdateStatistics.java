@@ -0,0 +1,117 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.bulkupdate;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the holders and nodes affected by a {@link BulkUpdate}.
+ *
+ * <p>The same holder may be recorded more than once, e.g. once for each of its
+ * affected nodes. The identifiers of affected holders are only kept up to a limit,
+ * so that an update touching lots of data doesn't also use lots of memory. Past
+ * that limit, the statistics are no longer {@link #isComplete() complete}: the
+ * holder counts may be over-estimated, and callers should assume that anything
+ * might have been changed.</p>
+ */
+public final class BulkUpdateStatistics {
+
+    /** The maximum number of holder identifiers to keep */
+    private static final int MAX_TRACKED_HOLDERS = 10000;
+
+    private final AtomicInteger affectedNodes = new AtomicInteger();
+    private final AtomicInteger affectedUsers = new AtomicInteger();
+    private final AtomicInteger affectedGroups = new AtomicInteger();
+
+    private final Set<UUID> users = ConcurrentHashMap.newKeySet();
+    private final Set<String> groups = ConcurrentHashMap.newKeySet();
+    private volatile boolean complete = true;
+
+    public void incrementAffectedNodes(int count) {
+        this.affectedNodes.addAndGet(count);
+    }
+
+    public void recordUser(UUID uniqueId) {
+        if (uniqueId == null || this.users.size() >= MAX_TRACKED_HOLDERS) {
+            this.complete = false;
+            this.affectedUsers.incrementAndGet();
+        } else if (this.users.add(uniqueId)) {
+            this.affectedUsers.incrementAndGet();
+        }
+    }
+
+    public void recordGroup(String name) {
+        if (this.groups.size() >= MAX_TRACKED_HOLDERS) {
+            this.complete = false;
+            this.affectedGroups.incrementAndGet();
+        } else if (this.groups.add(name)) {
+            this.affectedGroups.incrementAndGet();
+        }
+    }
+
+    public int getAffectedNodes() {
+        return this.affectedNodes.get();
+    }
+
+    public int getAffectedUsers() {
+        return this.affectedUsers.get();
+    }
+
+    public int getAffectedGroups() {
+        return this.affectedGroups.get();
+    }
+
+    /**
+     * Gets the unique ids of the affected users.
+     *
+     * @return the affected users
+     */
+    public Set<UUID> getUsers() {
+        return Collections.unmodifiableSet(this.users);
+    }
+
+    /**
+     * Gets the names of the affected groups.
+     *
+     * @return the affected groups
+     */
+    public Set<String> getGroups() {
+        return Collections.unmodifiableSet(this.groups);
+    }
+
+    /**
+     * Gets if every affected holder was recorded.
+     *
+     * @return if the statistics are complete
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+}
@@ -51,7 +51,10 @@ public class PreparedStatementBuilder {
     }
 
     public PreparedStatement build(Connection connection, Function<String, String> mapping) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(mapping.apply(this.sb.toString()));
+        return bind(connection.prepareStatement(mapping.apply(toSql())));
+    }
+
+    public PreparedStatement bind(PreparedStatement statement) throws SQLException {
         for (int i = 0; i < this.variables.size(); i++) {
             String var = this.variables.get(i);
             statement.setString(i + 1, var);
@@ -59,6 +62,10 @@ public class PreparedStatementBuilder {
         return statement;
     }
 
+    public String toSql() {
+        return this.sb.toString();
+    }
+
     public String toReadableString() {
         String s = this.sb.toString();
         for (String var : this.variables) {
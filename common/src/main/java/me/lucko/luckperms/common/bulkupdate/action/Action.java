@@ -58,4 +58,24 @@ public interface Action {
      */
     void appendSql(PreparedStatementBuilder builder);
 
+    /**
+     * Gets if this action may leave some of the rows it's applied to unchanged,
+     * and {@link #appendSqlChangeCondition(PreparedStatementBuilder)} should be
+     * used to exclude them.
+     *
+     * @return if a change condition is required
+     */
+    default boolean hasSqlChangeCondition() {
+        return false;
+    }
+
+    /**
+     * Appends a SQL condition which only matches rows this action would change.
+     *
+     * @param builder the statement builder
+     */
+    default void appendSqlChangeCondition(PreparedStatementBuilder builder) {
+
+    }
+
 }
@@ -96,4 +96,16 @@ public class UpdateAction implements Action {
         builder.append("UPDATE {table} SET " + this.field.getSqlName() + "=?");
         builder.variable(this.value);
     }
+
+    @Override
+    public boolean hasSqlChangeCondition() {
+        return true;
+    }
+
+    @Override
+    public void appendSqlChangeCondition(PreparedStatementBuilder builder) {
+        // rows which already hold the new value are left as they are
+        builder.append(this.field.getSqlName() + "<>?");
+        builder.variable(this.value);
+    }
 }
@@ -61,7 +61,7 @@ public interface Comparison {
          * Tests the expression against a given string, according to the
          * rules of the parent {@link Comparison}.
          *
-         * @param string the string
+         * @param string the string, which has already been lowercased
          * @return if there was a match
          */
         boolean test(String string);
@@ -50,6 +50,19 @@ public class Constraint {
      * @return true if satisfied
      */
     public boolean eval(String value) {
+        return evalLowerCase(value.toLowerCase());
+    }
+
+    /**
+     * Returns if the given value satisfies this constraint.
+     *
+     * <p>The value must already be lowercase. Callers testing the same value
+     * against several constraints can use this to only lowercase it once.</p>
+     *
+     * @param value the lowercase value
+     * @return true if satisfied
+     */
+    public boolean evalLowerCase(String value) {
         return this.compiledExpression.test(value);
     }
 
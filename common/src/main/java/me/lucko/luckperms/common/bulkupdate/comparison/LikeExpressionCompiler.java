@@ -0,0 +1,124 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.bulkupdate.comparison;
+
+import me.lucko.luckperms.common.bulkupdate.comparison.Comparison.CompiledExpression;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiles SQL {@code LIKE} expressions into {@link CompiledExpression}s.
+ *
+ * <p>Most expressions are simple prefix, suffix or contains patterns (e.g.
+ * {@code essentials.%} or {@code %.fly}), which are matched with plain string
+ * operations. A regex is only compiled for the remaining cases.</p>
+ *
+ * <p>Matching is case insensitive. The expression is lowercased when it is
+ * compiled, and tested values are expected to already be lowercase (see
+ * {@link Constraint#evalLowerCase(String)}).</p>
+ */
+final class LikeExpressionCompiler {
+    private LikeExpressionCompiler() {}
+
+    private static final char WILDCARD = '%';
+    private static final char WILDCARD_ONE = '_';
+
+    /**
+     * Compiles a {@link CompiledExpression} for the given {@code LIKE} expression.
+     *
+     * @param expression the expression
+     * @return the compiled expression
+     */
+    static CompiledExpression compile(String expression) {
+        String pattern = expression.toLowerCase();
+
+        if (pattern.indexOf(WILDCARD_ONE) == -1) {
+            int first = pattern.indexOf(WILDCARD);
+            if (first == -1) {
+                return pattern::equals;
+            }
+
+            int last = pattern.lastIndexOf(WILDCARD);
+            String prefix = pattern.substring(0, first);
+            String suffix = pattern.substring(last + 1);
+            String middle = first == last ? "" : pattern.substring(first + 1, last);
+
+            // a run of consecutive wildcards is the same as a single one
+            if (middle.chars().allMatch(c -> c == WILDCARD)) {
+                return compileSimple(prefix, suffix);
+            }
+
+            // %middle%
+            if (prefix.isEmpty() && suffix.isEmpty() && middle.indexOf(WILDCARD) == -1) {
+                return string -> string.contains(middle);
+            }
+        }
+
+        Pattern regex = compilePattern(pattern);
+        return string -> regex.matcher(string).matches();
+    }
+
+    // prefix%suffix, where either part may be empty
+    private static CompiledExpression compileSimple(String prefix, String suffix) {
+        if (prefix.isEmpty() && suffix.isEmpty()) {
+            return string -> true;
+        }
+        if (suffix.isEmpty()) {
+            return string -> string.startsWith(prefix);
+        }
+        if (prefix.isEmpty()) {
+            return string -> string.endsWith(suffix);
+        }
+
+        int minLength = prefix.length() + suffix.length();
+        return string -> string.length() >= minLength && string.startsWith(prefix) && string.endsWith(suffix);
+    }
+
+    private static Pattern compilePattern(String pattern) {
+        // convert from SQL LIKE syntax to regex, quoting everything else
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != WILDCARD && c != WILDCARD_ONE) {
+                literal.append(c);
+                continue;
+            }
+
+            if (literal.length() != 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            regex.append(c == WILDCARD ? ".*" : ".");
+        }
+        if (literal.length() != 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+}
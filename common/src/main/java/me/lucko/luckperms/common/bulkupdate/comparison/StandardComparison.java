@@ -27,8 +27,6 @@ package me.lucko.luckperms.common.bulkupdate.comparison;
 
 import me.lucko.luckperms.common.bulkupdate.PreparedStatementBuilder;
 
-import java.util.regex.Pattern;
-
 /**
  * An enumeration of standard {@link Comparison}s.
  */
@@ -51,16 +49,15 @@ public enum StandardComparison implements Comparison {
     SIMILAR("~~", "LIKE") {
         @Override
         public CompiledExpression compile(String expression) {
-            Pattern pattern = StandardComparison.compilePatternForLikeSyntax(expression);
-            return string -> pattern.matcher(string).matches();
+            return LikeExpressionCompiler.compile(expression);
         }
     },
 
     NOT_SIMILAR("!~", "NOT LIKE") {
         @Override
         public CompiledExpression compile(String expression) {
-            Pattern pattern = StandardComparison.compilePatternForLikeSyntax(expression);
-            return string -> !pattern.matcher(string).matches();
+            CompiledExpression compiled = LikeExpressionCompiler.compile(expression);
+            return string -> !compiled.test(string);
         }
     };
 
@@ -99,15 +96,4 @@ public enum StandardComparison implements Comparison {
         return null;
     }
 
-    static Pattern compilePatternForLikeSyntax(String expression) {
-        expression = expression.toLowerCase();
-        expression = expression.replace(".", "\\.");
-
-        // convert from SQL LIKE syntax to regex
-        expression = expression.replace(WILDCARD_ONE, ".");
-        expression = expression.replace(WILDCARD, ".*");
-
-        return Pattern.compile(expression);
-    }
-
 }
@@ -28,7 +28,6 @@ package me.lucko.luckperms.common.bulkupdate.query;
 import me.lucko.luckperms.common.bulkupdate.PreparedStatementBuilder;
 import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
 
-import net.luckperms.api.context.DefaultContextKeys;
 import net.luckperms.api.node.Node;
 
 /**
@@ -58,16 +57,7 @@ public class Query {
      * @return true if satisfied
      */
     public boolean isSatisfiedBy(Node node) {
-        switch (this.field) {
-            case PERMISSION:
-                return this.constraint.eval(node.getKey());
-            case SERVER:
-                return this.constraint.eval(node.getContexts().getAnyValue(DefaultContextKeys.SERVER_KEY).orElse("global"));
-            case WORLD:
-                return this.constraint.eval(node.getContexts().getAnyValue(DefaultContextKeys.WORLD_KEY).orElse("global"));
-            default:
-                throw new RuntimeException();
-        }
+        return this.constraint.eval(this.field.getValue(node));
     }
 
     public void appendSql(PreparedStatementBuilder builder) {
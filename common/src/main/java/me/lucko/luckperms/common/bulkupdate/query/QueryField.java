@@ -25,6 +25,9 @@
 
 package me.lucko.luckperms.common.bulkupdate.query;
 
+import net.luckperms.api.context.DefaultContextKeys;
+import net.luckperms.api.node.Node;
+
 /**
  * Represents a field being used in an update
  */
@@ -51,4 +54,23 @@ public enum QueryField {
     public String getSqlName() {
         return this.sqlName;
     }
+
+    /**
+     * Gets the value of this field for the given node.
+     *
+     * @param node the node
+     * @return the value
+     */
+    public String getValue(Node node) {
+        switch (this) {
+            case PERMISSION:
+                return node.getKey();
+            case SERVER:
+                return node.getContexts().getAnyValue(DefaultContextKeys.SERVER_KEY).orElse("global");
+            case WORLD:
+                return node.getContexts().getAnyValue(DefaultContextKeys.WORLD_KEY).orElse("global");
+            default:
+                throw new RuntimeException();
+        }
+    }
 }
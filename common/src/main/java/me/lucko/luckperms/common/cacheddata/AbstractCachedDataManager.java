@@ -34,6 +34,7 @@ import me.lucko.luckperms.common.cacheddata.type.MetaCache;
 import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.CaffeineFactory;
 
@@ -47,11 +48,15 @@ import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 
 /**
  * Abstract implementation of {@link CachedDataManager}.
@@ -66,6 +71,12 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
     private final Permission permissionDataManager;
     private final Meta metaDataManager;
 
+    /**
+     * Refreshes which are being calculated ahead of time. Until they complete, reads for
+     * the same query options continue to be served by the previous data.
+     */
+    private final Map<QueryOptions, Refresh> refreshes = new ConcurrentHashMap<>();
+
     protected AbstractCachedDataManager(LuckPermsPlugin plugin) {
         this.plugin = plugin;
         this.permissionDataManager = new Permission();
@@ -151,43 +162,246 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
      * @param queryOptions the query options
      */
     protected abstract void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions);
-    
+
+    /**
+     * Resolves both the owners permissions and meta data for the given {@link QueryOptions}.
+     *
+     * <p>Implementations should override this if they are able to resolve both
+     * at once more cheaply than by resolving each separately.</p>
+     *
+     * @param accumulator the accumulator to add resolved meta to
+     * @param queryOptions the query options
+     * @return a map of permissions to back the {@link PermissionCache}
+     */
+    protected Map<String, Boolean> resolvePermissionsAndMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
+        resolveMeta(accumulator, queryOptions);
+        return resolvePermissions(queryOptions);
+    }
+
+    private PermissionCache newPermissionCache(QueryOptions queryOptions) {
+        CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
+        return new PermissionCache(queryOptions, metadata, getCalculatorFactory());
+    }
+
+    private MetaCache newMetaCache(QueryOptions queryOptions) {
+        CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
+        return new MetaCache(this.plugin, queryOptions, metadata);
+    }
+
     private PermissionCache calculatePermissions(QueryOptions queryOptions, PermissionCache data) {
         Objects.requireNonNull(queryOptions, "queryOptions");
 
         if (data == null) {
-            CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
-            data = new PermissionCache(queryOptions, metadata, getCalculatorFactory());
+            data = newPermissionCache(queryOptions);
+        }
+
+        // resolve the meta in the same pass, and use it to populate the meta cache
+        // if it doesn't already hold a value for these query options
+        int metaModCount = this.metaDataManager.getModCount();
+        MetaAccumulator accumulator = newAccumulator(queryOptions);
+        data.setPermissions(resolvePermissionsAndMeta(accumulator, queryOptions));
+
+        if (!this.metaDataManager.cache.synchronous().asMap().containsKey(queryOptions)) {
+            MetaCache metaData = newMetaCache(queryOptions);
+            metaData.loadMeta(accumulator);
+            this.metaDataManager.offer(metaModCount, queryOptions, metaData);
         }
 
-        data.setPermissions(resolvePermissions(queryOptions));
         return data;
     }
-    
+
     private MetaCache calculateMeta(QueryOptions queryOptions, MetaCache data) {
         Objects.requireNonNull(queryOptions, "queryOptions");
 
         if (data == null) {
-            CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
-            data = new MetaCache(this.plugin, queryOptions, metadata);
+            data = newMetaCache(queryOptions);
         }
 
+        // resolve the permissions in the same pass, and use them to populate the
+        // permission cache if it doesn't already hold a value for these query options
+        int permissionModCount = this.permissionDataManager.getModCount();
         MetaAccumulator accumulator = newAccumulator(queryOptions);
-        resolveMeta(accumulator, queryOptions);
+        Map<String, Boolean> permissions = resolvePermissionsAndMeta(accumulator, queryOptions);
         data.loadMeta(accumulator);
 
+        if (!this.permissionDataManager.cache.synchronous().asMap().containsKey(queryOptions)) {
+            PermissionCache permissionData = newPermissionCache(queryOptions);
+            permissionData.setPermissions(permissions);
+            this.permissionDataManager.offer(permissionModCount, queryOptions, permissionData);
+        }
+
         return data;
     }
 
+    /**
+     * Adds a value calculated alongside another cache's value to the given cache,
+     * as long as it doesn't already hold one and hasn't been invalidated since
+     * the calculation began.
+     */
+    private static <V> void offer(AsyncLoadingCache<QueryOptions, V> cache, IntSupplier modCount, int validAt, QueryOptions queryOptions, V value) {
+        CompletableFuture<V> future = CompletableFuture.completedFuture(value);
+        if (cache.asMap().putIfAbsent(queryOptions, future) != null) {
+            return;
+        }
+
+        // an invalidation may have happened during the calculation, or since the put - either way undo it
+        if (modCount.getAsInt() != validAt) {
+            cache.asMap().remove(queryOptions, future);
+        }
+    }
+
     @Override
     public final void invalidate() {
-        this.permissionDataManager.invalidate();
-        this.metaDataManager.invalidate();
+        long maxStaleness = getMaxStaleness();
+        if (maxStaleness <= 0 || !shouldRefreshAhead()) {
+            // stop any refreshes which are still running from installing their (now stale) results
+            this.refreshes.clear();
+            this.permissionDataManager.invalidate();
+            this.metaDataManager.invalidate();
+            return;
+        }
+
+        // recalculate the data for all loaded query options in the background,
+        // and keep serving the previous data in the meantime
+        Set<QueryOptions> keys = new HashSet<>(this.permissionDataManager.cache.asMap().keySet());
+        keys.addAll(this.metaDataManager.cache.asMap().keySet());
+        for (QueryOptions queryOptions : keys) {
+            refreshAhead(queryOptions, maxStaleness);
+        }
+    }
+
+    /**
+     * Calculates data for the given {@link QueryOptions} in the background, if
+     * refresh-ahead is enabled and no data is already held for them.
+     *
+     * <p>Until the calculation completes, or the configured staleness bound passes,
+     * reads for the query options are served by the most recently used data.</p>
+     *
+     * @param queryOptions the query options
+     */
+    public final void calculateAhead(QueryOptions queryOptions) {
+        long maxStaleness = getMaxStaleness();
+        if (maxStaleness <= 0 || !shouldRefreshAhead() || this.refreshes.containsKey(queryOptions)) {
+            return;
+        }
+
+        if (this.permissionDataManager.cache.getIfPresent(queryOptions) == null || this.metaDataManager.cache.getIfPresent(queryOptions) == null) {
+            refreshAhead(queryOptions, maxStaleness);
+        }
+    }
+
+    /**
+     * Gets if data should be calculated ahead of time for the holder, when refresh-ahead
+     * is enabled. Otherwise, data is only ever calculated when it is read.
+     *
+     * @return if data should be calculated ahead
+     */
+    protected boolean shouldRefreshAhead() {
+        return false;
+    }
+
+    private long getMaxStaleness() {
+        return this.plugin.getConfiguration().get(ConfigKeys.REFRESH_AHEAD_MAX_STALENESS);
+    }
+
+    private void refreshAhead(QueryOptions queryOptions, long maxStaleness) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxStaleness);
+
+        // coalesce with a pending refresh which hasn't started reading the holders data yet,
+        // otherwise supersede whichever refresh is currently running
+        Refresh current = this.refreshes.get(queryOptions);
+        if (current != null && !current.started) {
+            return;
+        }
+
+        Refresh refresh = new Refresh(deadline);
+        this.refreshes.put(queryOptions, refresh);
+
+        this.plugin.getBootstrap().getScheduler().async().execute(() -> {
+            refresh.started = true;
+            if (this.refreshes.get(queryOptions) != refresh) {
+                refresh.future.complete(null);
+                return;
+            }
+
+            try {
+                // calculate into new instances, so the previous ones are left untouched while they're still being used
+                MetaAccumulator accumulator = newAccumulator(queryOptions);
+                Map<String, Boolean> permissions = resolvePermissionsAndMeta(accumulator, queryOptions);
+
+                PermissionCache permissionData = newPermissionCache(queryOptions);
+                permissionData.setPermissions(permissions);
+                MetaCache metaData = newMetaCache(queryOptions);
+                metaData.loadMeta(accumulator);
+
+                // only the latest refresh for the query options may install its result
+                this.refreshes.computeIfPresent(queryOptions, (k, latest) -> {
+                    if (latest == refresh) {
+                        this.permissionDataManager.install(queryOptions, permissionData);
+                        this.metaDataManager.install(queryOptions, metaData);
+                        return null;
+                    }
+                    return latest;
+                });
+                refresh.future.complete(null);
+            } catch (Throwable e) {
+                this.refreshes.computeIfPresent(queryOptions, (k, latest) -> {
+                    if (latest == refresh) {
+                        // don't continue to serve stale data - it'll be calculated again on the next read
+                        this.permissionDataManager.invalidate(queryOptions);
+                        this.metaDataManager.invalidate(queryOptions);
+                        return null;
+                    }
+                    return latest;
+                });
+                refresh.future.completeExceptionally(e);
+                this.plugin.getLogger().warn("Exception occurred whilst refreshing cached data: " + e);
+            }
+        });
+    }
+
+    /**
+     * Gets if a refresh for the given query options is in progress, and the previous
+     * data can continue to be used in the meantime.
+     *
+     * <p>If the refresh has exceeded the staleness bound, this method waits for it to
+     * complete and returns false.</p>
+     *
+     * @param queryOptions the query options
+     * @return true if previous data can be used
+     */
+    private boolean isRefreshing(QueryOptions queryOptions) {
+        if (this.refreshes.isEmpty()) {
+            return false;
+        }
+
+        Refresh refresh = this.refreshes.get(queryOptions);
+        if (refresh == null) {
+            return false;
+        }
+        if (System.nanoTime() - refresh.deadline < 0) {
+            return true;
+        }
+
+        refresh.future.handle((result, ex) -> null).join();
+
+        // the refresh may have been superseded whilst we were waiting
+        return isRefreshing(queryOptions);
     }
 
     @Override
     public final void invalidatePermissionCalculators() {
-        this.permissionDataManager.cache.synchronous().asMap().values().forEach(PermissionCache::invalidateCache);
+        this.permissionDataManager.invalidateCalculators();
+    }
+
+    /**
+     * Gets a counter which is incremented whenever a previously returned
+     * {@link PermissionCache} may no longer be current.
+     *
+     * @return the modification count
+     */
+    public final int getPermissionDataModCount() {
+        return this.permissionDataManager.getModCount();
     }
 
     public final void performCacheCleanup() {
@@ -195,6 +409,34 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         this.metaDataManager.cache.synchronous().cleanUp();
     }
 
+    /**
+     * Invalidates all cached data except for the data held for the holders
+     * currently active {@link QueryOptions}.
+     */
+    public final void invalidateInactive() {
+        QueryOptions active = getQueryOptions();
+        this.permissionDataManager.invalidateAllExcept(active);
+        this.metaDataManager.invalidateAllExcept(active);
+    }
+
+    /**
+     * Gets the {@link PermissionCache}s which are currently loaded.
+     *
+     * @return the loaded permission caches
+     */
+    public final Collection<PermissionCache> getLoadedPermissionData() {
+        return this.permissionDataManager.cache.synchronous().asMap().values();
+    }
+
+    /**
+     * Gets the {@link MetaCache}s which are currently loaded.
+     *
+     * @return the loaded meta caches
+     */
+    public final Collection<MetaCache> getLoadedMetaData() {
+        return this.metaDataManager.cache.synchronous().asMap().values();
+    }
+
     private final class Permission extends MRUCache<RecentPermissionData> implements Container<CachedPermissionData> {
         private final AsyncLoadingCache<QueryOptions, PermissionCache> cache = CaffeineFactory.newBuilder()
                 .expireAfterAccess(2, TimeUnit.MINUTES)
@@ -204,8 +446,19 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         public @NonNull PermissionCache get(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
 
+            // check for a refresh first - if it's overdue, this waits for it to complete
+            boolean refreshing = isRefreshing(queryOptions);
+
+            // query options are interned, so the identity check will almost always
+            // be enough to determine whether the recent data can be used
             RecentPermissionData recent = getRecent();
-            if (recent != null && queryOptions.equals(recent.queryOptions)) {
+            if (recent != null && (queryOptions == recent.queryOptions || queryOptions.equals(recent.queryOptions))) {
+                return recent.permissionData;
+            }
+
+            // if data for these query options is being calculated ahead, and nothing is held
+            // for them yet, continue to serve the previous data until it's ready
+            if (recent != null && refreshing && !this.cache.asMap().containsKey(queryOptions)) {
                 return recent.permissionData;
             }
 
@@ -238,6 +491,7 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
             CompletableFuture<PermissionCache> previous = this.cache.getIfPresent(queryOptions);
 
             // invalidate any previous setting
+            clearRecent();
             this.cache.synchronous().invalidate(queryOptions);
             clearRecent();
 
@@ -266,15 +520,48 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         @Override
         public void invalidate(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
+            clearRecent();
             this.cache.synchronous().invalidate(queryOptions);
             clearRecent();
         }
 
         @Override
         public void invalidate() {
+            // the mod count is bumped before the cache is cleared as well as after, so that a value
+            // offered alongside the other cache in between is seen to be stale and removed again
+            clearRecent();
             this.cache.synchronous().invalidateAll();
             clearRecent();
         }
+
+        void invalidateAllExcept(QueryOptions queryOptions) {
+            Set<QueryOptions> keys = this.cache.synchronous().asMap().keySet();
+            if (keys.stream().anyMatch(k -> !k.equals(queryOptions))) {
+                clearRecent();
+                keys.removeIf(k -> !k.equals(queryOptions));
+                clearRecent();
+            }
+        }
+
+        void invalidateCalculators() {
+            this.cache.synchronous().asMap().values().forEach(PermissionCache::invalidateCache);
+
+            // instances held outside of the cache are not reached above, so signal that they are stale
+            clearRecent();
+        }
+
+        int getModCount() {
+            return modCount();
+        }
+
+        void offer(int validAt, QueryOptions queryOptions, PermissionCache value) {
+            AbstractCachedDataManager.offer(this.cache, this::modCount, validAt, queryOptions, value);
+        }
+
+        void install(QueryOptions queryOptions, PermissionCache value) {
+            this.cache.put(queryOptions, CompletableFuture.completedFuture(value));
+            clearRecent();
+        }
     }
 
     private final class Meta extends MRUCache<RecentMetaData> implements Container<CachedMetaData> {
@@ -286,8 +573,17 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         public @NonNull MetaCache get(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
 
+            // check for a refresh first - if it's overdue, this waits for it to complete
+            boolean refreshing = isRefreshing(queryOptions);
+
             RecentMetaData recent = getRecent();
-            if (recent != null && queryOptions.equals(recent.queryOptions)) {
+            if (recent != null && (queryOptions == recent.queryOptions || queryOptions.equals(recent.queryOptions))) {
+                return recent.metaData;
+            }
+
+            // if data for these query options is being calculated ahead, and nothing is held
+            // for them yet, continue to serve the previous data until it's ready
+            if (recent != null && refreshing && !this.cache.asMap().containsKey(queryOptions)) {
                 return recent.metaData;
             }
 
@@ -320,6 +616,7 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
             CompletableFuture<MetaCache> previous = this.cache.getIfPresent(queryOptions);
 
             // invalidate any previous setting
+            clearRecent();
             this.cache.synchronous().invalidate(queryOptions);
             clearRecent();
 
@@ -348,15 +645,40 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         @Override
         public void invalidate(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
+            clearRecent();
             this.cache.synchronous().invalidate(queryOptions);
             clearRecent();
         }
 
         @Override
         public void invalidate() {
+            // bumped either side of the clear - see Permission#invalidate
+            clearRecent();
             this.cache.synchronous().invalidateAll();
             clearRecent();
         }
+
+        void invalidateAllExcept(QueryOptions queryOptions) {
+            Set<QueryOptions> keys = this.cache.synchronous().asMap().keySet();
+            if (keys.stream().anyMatch(k -> !k.equals(queryOptions))) {
+                clearRecent();
+                keys.removeIf(k -> !k.equals(queryOptions));
+                clearRecent();
+            }
+        }
+
+        int getModCount() {
+            return modCount();
+        }
+
+        void offer(int validAt, QueryOptions queryOptions, MetaCache value) {
+            AbstractCachedDataManager.offer(this.cache, this::modCount, validAt, queryOptions, value);
+        }
+
+        void install(QueryOptions queryOptions, MetaCache value) {
+            this.cache.put(queryOptions, CompletableFuture.completedFuture(value));
+            clearRecent();
+        }
     }
 
     private static boolean isReady(@Nullable CompletableFuture<?> future) {
@@ -412,6 +734,16 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         );
     }
 
+    private static final class Refresh {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final long deadline;
+        volatile boolean started = false;
+
+        Refresh(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
     private static final class RecentPermissionData {
         final QueryOptions queryOptions;
         final PermissionCache permissionData;
@@ -82,4 +82,9 @@ public abstract class HolderCachedDataManager<T extends PermissionHolder> extend
     protected void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
         this.holder.accumulateMeta(accumulator, queryOptions);
     }
+
+    @Override
+    protected Map<String, Boolean> resolvePermissionsAndMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
+        return this.holder.resolvePermissionsAndMeta(queryOptions, accumulator, true, getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND));
+    }
 }
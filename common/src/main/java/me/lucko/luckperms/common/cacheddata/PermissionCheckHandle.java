@@ -0,0 +1,90 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.common.cacheddata;
+
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+import me.lucko.luckperms.common.context.QueryOptionsSupplier;
+import me.lucko.luckperms.common.model.User;
+
+import net.luckperms.api.query.QueryOptions;
+
+/**
+ * A handle used to perform permission checks for a connected player.
+ *
+ * <p>The handle is bound when the player connects, and holds direct references
+ * to the {@link User} and the players {@link QueryOptionsSupplier}. The
+ * {@link PermissionCache} for the players current query options is held too,
+ * and is swapped when either the query options change or the users cached
+ * data is invalidated.</p>
+ */
+public final class PermissionCheckHandle {
+    private final User user;
+    private final QueryOptionsSupplier queryOptionsSupplier;
+    private volatile Bound bound = null;
+
+    public PermissionCheckHandle(User user, QueryOptionsSupplier queryOptionsSupplier) {
+        this.user = user;
+        this.queryOptionsSupplier = queryOptionsSupplier;
+    }
+
+    public User getUser() {
+        return this.user;
+    }
+
+    /**
+     * Gets the {@link PermissionCache} for the players current query options.
+     *
+     * @return the permission data
+     */
+    public PermissionCache getPermissionData() {
+        AbstractCachedDataManager cachedData = this.user.getCachedData();
+        QueryOptions queryOptions = this.queryOptionsSupplier.getQueryOptions();
+
+        // the query options cache returns the same instance until the contexts change
+        Bound bound = this.bound;
+        if (bound != null && bound.queryOptions == queryOptions && bound.modCount == cachedData.getPermissionDataModCount()) {
+            return bound.permissionData;
+        }
+
+        // read the mod count first - if the data is invalidated whilst we're fetching it,
+        // the handle will be stale and the data will be fetched again next time
+        int modCount = cachedData.getPermissionDataModCount();
+        PermissionCache permissionData = cachedData.getPermissionData(queryOptions);
+        this.bound = new Bound(queryOptions, modCount, permissionData);
+        return permissionData;
+    }
+
+    private static final class Bound {
+        private final QueryOptions queryOptions;
+        private final int modCount;
+        private final PermissionCache permissionData;
+
+        Bound(QueryOptions queryOptions, int modCount, PermissionCache permissionData) {
+            this.queryOptions = queryOptions;
+            this.modCount = modCount;
+            this.permissionData = permissionData;
+        }
+    }
+}
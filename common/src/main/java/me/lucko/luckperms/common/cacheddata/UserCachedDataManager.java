@@ -45,4 +45,10 @@ public class UserCachedDataManager extends HolderCachedDataManager<User> impleme
         return new CacheMetadata(HolderType.USER, this.holder.getPlainDisplayName(), queryOptions);
     }
 
+    @Override
+    protected boolean shouldRefreshAhead() {
+        // only worth calculating ahead for players who are around to perform checks
+        return this.holder.getPlugin().getBootstrap().isPlayerOnline(this.holder.getUniqueId());
+    }
+
 }
@@ -105,6 +105,19 @@ public class SimpleMetaCache implements CachedMetaData {
         this.suffix = meta.getSuffix();
     }
 
+    /**
+     * Gets the number of meta, prefix and suffix entries held by this cache.
+     *
+     * @return the number of entries
+     */
+    public int getEntryCount() {
+        int count = this.prefixes.size() + this.suffixes.size();
+        for (List<String> values : this.meta.values()) {
+            count += values.size();
+        }
+        return count;
+    }
+
     public String getMetaValue(String key, MetaCheckEvent.Origin origin) {
         Objects.requireNonNull(key, "key");
         return this.flattenedMeta.get(key);
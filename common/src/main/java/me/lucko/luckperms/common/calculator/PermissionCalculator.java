@@ -133,6 +133,15 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         return this.processors;
     }
 
+    /**
+     * Gets the number of permission lookups currently cached by this calculator.
+     *
+     * @return the number of cached lookups
+     */
+    public int getCachedLookupCount() {
+        return this.lookupCache.size();
+    }
+
     public void invalidateCache() {
         for (PermissionProcessor processor : this.processors) {
             processor.invalidate();
@@ -46,6 +46,7 @@ import me.lucko.luckperms.common.commands.misc.EditorCommand;
 import me.lucko.luckperms.common.commands.misc.ExportCommand;
 import me.lucko.luckperms.common.commands.misc.ImportCommand;
 import me.lucko.luckperms.common.commands.misc.InfoCommand;
+import me.lucko.luckperms.common.commands.misc.MemoryCommand;
 import me.lucko.luckperms.common.commands.misc.NetworkSyncCommand;
 import me.lucko.luckperms.common.commands.misc.ReloadConfigCommand;
 import me.lucko.luckperms.common.commands.misc.SearchCommand;
@@ -113,6 +114,7 @@ public class CommandManager {
                 .add(new SearchCommand(locale))
                 .add(new CheckCommand(locale))
                 .add(new NetworkSyncCommand(locale))
+                .add(new MemoryCommand(locale))
                 .add(new ImportCommand(locale))
                 .add(new ExportCommand(locale))
                 .add(new ReloadConfigCommand(locale))
@@ -41,6 +41,7 @@ public enum CommandPermission {
     TREE("tree", Type.NONE),
     SEARCH("search", Type.NONE),
     CHECK("check", Type.NONE),
+    MEMORY("memory", Type.NONE),
     IMPORT("import", Type.NONE),
     EXPORT("export", Type.NONE),
     RELOAD_CONFIG("reloadconfig", Type.NONE),
@@ -36,7 +36,15 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Utility methods for saving users, groups and tracks.
@@ -44,6 +52,29 @@ import java.util.Optional;
 public final class StorageAssistant {
     private StorageAssistant() {}
 
+    /**
+     * Resolves the usernames of the given uuids using a single storage lookup,
+     * falling back to the server's uuid cache (if enabled) and then to the uuid itself.
+     *
+     * @param uniqueIds the uuids to resolve
+     * @param plugin the plugin
+     * @return a map containing a display name for every uuid
+     */
+    public static Map<UUID, String> lookupUsernames(Collection<UUID> uniqueIds, LuckPermsPlugin plugin) {
+        Map<UUID, String> stored = plugin.getStorage().getPlayerNames(uniqueIds).join();
+        boolean useServerUuidCache = plugin.getConfiguration().get(ConfigKeys.USE_SERVER_UUID_CACHE);
+
+        Map<UUID, String> usernames = new HashMap<>();
+        for (UUID uniqueId : uniqueIds) {
+            String s = stored.get(uniqueId);
+            if (s == null || s.isEmpty() || s.equals("null")) {
+                s = useServerUuidCache ? plugin.getBootstrap().lookupUsername(uniqueId).orElse(null) : null;
+            }
+            usernames.put(uniqueId, s != null ? s : uniqueId.toString());
+        }
+        return usernames;
+    }
+
     public static Group loadGroup(String target, Sender sender, LuckPermsPlugin plugin, boolean auditTemporary) {
         Group group = plugin.getGroupManager().getByDisplayName(target);
         if (group != null) {
@@ -124,6 +155,71 @@ public final class StorageAssistant {
         }
     }
 
+    /**
+     * Saves a batch of holders, submitting all of the writes to storage before waiting
+     * on any of them, and only invalidating caches / pushing updates once at the end.
+     *
+     * @param holders the holders to save
+     * @param sender the sender to notify of any errors
+     * @param plugin the plugin
+     */
+    public static void save(Collection<? extends PermissionHolder> holders, Sender sender, LuckPermsPlugin plugin) {
+        if (holders.isEmpty()) {
+            return;
+        }
+
+        Map<PermissionHolder, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        for (PermissionHolder holder : holders) {
+            if (holder.getType() == HolderType.USER) {
+                futures.put(holder, plugin.getStorage().saveUser((User) holder));
+            } else if (holder.getType() == HolderType.GROUP) {
+                futures.put(holder, plugin.getStorage().saveGroup((Group) holder));
+            } else {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        List<User> savedUsers = new ArrayList<>();
+        boolean savedGroups = false;
+        for (Map.Entry<PermissionHolder, CompletableFuture<Void>> entry : futures.entrySet()) {
+            PermissionHolder holder = entry.getKey();
+            try {
+                entry.getValue().get();
+            } catch (Exception e) {
+                e.printStackTrace();
+                if (holder.getType() == HolderType.USER) {
+                    Message.USER_SAVE_ERROR.send(sender, holder.getFormattedDisplayName());
+                } else {
+                    Message.GROUP_SAVE_ERROR.send(sender, holder.getFormattedDisplayName());
+                }
+                continue;
+            }
+
+            if (holder.getType() == HolderType.USER) {
+                savedUsers.add((User) holder);
+            } else {
+                savedGroups = true;
+            }
+        }
+
+        if (savedGroups) {
+            plugin.getGroupManager().invalidateAllGroupCaches();
+            plugin.getUserManager().invalidateAllUserCaches();
+        }
+
+        Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
+        if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
+            if (savedGroups) {
+                // a full update covers any users saved in the same batch
+                messagingService.get().getUpdateBuffer().request();
+            } else {
+                for (User user : savedUsers) {
+                    messagingService.get().pushUserUpdate(user);
+                }
+            }
+        }
+    }
+
     public static void save(PermissionHolder holder, Sender sender, LuckPermsPlugin plugin) {
         if (holder.getType() == HolderType.USER) {
             User user = ((User) holder);
@@ -25,7 +25,7 @@
 
 package me.lucko.luckperms.common.commands.generic.other;
 
-import com.google.gson.JsonObject;
+import com.google.common.collect.Iterables;
 
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.ChildCommand;
@@ -60,6 +60,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 public class HolderEditor<T extends PermissionHolder> extends ChildCommand<T> {
     public HolderEditor(LocaleManager locale, HolderType type) {
@@ -73,7 +74,10 @@ public class HolderEditor<T extends PermissionHolder> extends ChildCommand<T> {
             return CommandResult.NO_PERMISSION;
         }
 
+        Predicate<PermissionHolder> cannotView = h -> ArgumentPermissions.checkViewPerms(plugin, sender, getPermission().get(), h) || ArgumentPermissions.checkGroup(plugin, sender, h, ImmutableContextSetImpl.EMPTY);
+
         List<PermissionHolder> holders = new ArrayList<>();
+        List<UUID> offlineUsers = new ArrayList<>();
 
         // also include users who are a member of the group
         if (holder instanceof Group) {
@@ -85,7 +89,7 @@ public class HolderEditor<T extends PermissionHolder> extends ChildCommand<T> {
             // only include online players who are in the group
             users.values().removeIf(user -> user.normalData().immutable().values().stream().noneMatch(matcher));
 
-            // fill up with other matching users
+            // fill up with other matching users - these are loaded lazily as the payload is written
             if (users.size() < EditorCommand.MAX_USERS) {
                 plugin.getStorage().searchUserNodes(matcher).join().stream()
                         .map(NodeEntry::getHolder)
@@ -93,13 +97,7 @@ public class HolderEditor<T extends PermissionHolder> extends ChildCommand<T> {
                         .filter(uuid -> !users.containsKey(uuid))
                         .sorted()
                         .limit(EditorCommand.MAX_USERS - users.size())
-                        .forEach(uuid -> {
-                            User user = plugin.getStorage().loadUser(uuid, null).join();
-                            if (user != null) {
-                                users.put(uuid, user);
-                            }
-                            plugin.getUserManager().getHouseKeeper().cleanup(uuid);
-                        });
+                        .forEach(offlineUsers::add);
             }
 
             users.values().stream()
@@ -110,16 +108,15 @@ public class HolderEditor<T extends PermissionHolder> extends ChildCommand<T> {
                     .forEach(holders::add);
 
             // remove holders which the sender doesn't have perms to view
-            holders.removeIf(h -> ArgumentPermissions.checkViewPerms(plugin, sender, getPermission().get(), h) || ArgumentPermissions.checkGroup(plugin, sender, h, ImmutableContextSetImpl.EMPTY));
+            holders.removeIf(cannotView);
         }
 
-        // include the original holder too
-        holders.add(holder);
-
         Message.EDITOR_START.send(sender);
 
-        JsonObject payload = WebEditor.formPayload(holders, Collections.emptyList(), sender, label, plugin);
-        return WebEditor.post(payload, sender, plugin);
+        // include the original holder too
+        Iterable<User> lazyUsers = Iterables.filter(WebEditor.lazyLoadUsers(offlineUsers, plugin), user -> !cannotView.test(user));
+        Iterable<PermissionHolder> allHolders = Iterables.concat(holders, lazyUsers, Collections.singletonList(holder));
+        return WebEditor.post(allHolders, Collections.emptyList(), sender, label, plugin);
     }
 
 }
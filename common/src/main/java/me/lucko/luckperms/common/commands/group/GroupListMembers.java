@@ -27,14 +27,13 @@ package me.lucko.luckperms.common.commands.group;
 
 import com.google.common.collect.Maps;
 
-import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.ChildCommand;
 import me.lucko.luckperms.common.command.access.ArgumentPermissions;
 import me.lucko.luckperms.common.command.access.CommandPermission;
 import me.lucko.luckperms.common.command.utils.ArgumentParser;
 import me.lucko.luckperms.common.command.utils.MessageUtils;
-import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.command.utils.StorageAssistant;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
@@ -65,6 +64,7 @@ import net.luckperms.api.node.types.InheritanceNode;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -115,32 +115,17 @@ public class GroupListMembers extends ChildCommand<Group> {
         Message.SEARCH_RESULT.send(sender, users + groups, users, groups);
 
         if (!matchedUsers.isEmpty()) {
-            Map<UUID, String> uuidLookups = LoadingMap.of(u -> {
-                String s = plugin.getStorage().getPlayerName(u).join();
-                if (s != null && !s.isEmpty() && !s.equals("null")) {
-                    return s;
-                }
-
-                if (plugin.getConfiguration().get(ConfigKeys.USE_SERVER_UUID_CACHE)) {
-                    s = plugin.getBootstrap().lookupUsername(u).orElse(null);
-                    if (s != null) {
-                        return s;
-                    }
-                }
-
-                return u.toString();
-            });
-            sendResult(sender, matchedUsers, uuidLookups::get, Message.SEARCH_SHOWING_USERS, HolderType.USER, label, page);
+            sendResult(sender, matchedUsers, uuids -> StorageAssistant.lookupUsernames(uuids, plugin), Message.SEARCH_SHOWING_USERS, HolderType.USER, label, page);
         }
 
         if (!matchedGroups.isEmpty()) {
-            sendResult(sender, matchedGroups, Function.identity(), Message.SEARCH_SHOWING_GROUPS, HolderType.GROUP, label, page);
+            sendResult(sender, matchedGroups, names -> Maps.asMap(names, name -> name), Message.SEARCH_SHOWING_GROUPS, HolderType.GROUP, label, page);
         }
 
         return CommandResult.SUCCESS;
     }
 
-    private static <T extends Comparable<T>> void sendResult(Sender sender, List<NodeEntry<T, InheritanceNode>> results, Function<T, String> lookupFunction, Message headerMessage, HolderType holderType, String label, int page) {
+    private static <T extends Comparable<T>> void sendResult(Sender sender, List<NodeEntry<T, InheritanceNode>> results, Function<Set<T>, Map<T, String>> lookupFunction, Message headerMessage, HolderType holderType, String label, int page) {
         results = new ArrayList<>(results);
         results.sort(NodeEntryComparator.normal());
 
@@ -154,8 +139,10 @@ public class GroupListMembers extends ChildCommand<Group> {
 
         List<NodeEntry<T, InheritanceNode>> content = pages.get(pageIndex);
 
+        // only resolve the names of the holders on the page being displayed
+        Map<T, String> names = lookupFunction.apply(content.stream().map(NodeEntry::getHolder).collect(Collectors.toSet()));
         List<Map.Entry<String, NodeEntry<T, InheritanceNode>>> mappedContent = content.stream()
-                .map(hp -> Maps.immutableEntry(lookupFunction.apply(hp.getHolder()), hp))
+                .map(hp -> Maps.immutableEntry(names.get(hp.getHolder()), hp))
                 .collect(Collectors.toList());
 
         // send header
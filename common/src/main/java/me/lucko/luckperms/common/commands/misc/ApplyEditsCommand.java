@@ -62,6 +62,7 @@ import net.luckperms.api.node.Node;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -101,12 +102,17 @@ public class ApplyEditsCommand extends SingleCommand {
 
         boolean work = false;
         if (data.has("changes")) {
+            // holder changes are applied in memory first, then written to storage in one batch
+            List<PermissionHolder> modifiedHolders = new ArrayList<>();
+
             JsonArray changes = data.get("changes").getAsJsonArray();
             for (JsonElement change : changes) {
-                if (readChanges(change.getAsJsonObject(), sender, plugin)) {
+                if (readChanges(change.getAsJsonObject(), sender, plugin, modifiedHolders)) {
                     work = true;
                 }
             }
+
+            StorageAssistant.save(modifiedHolders, sender, plugin);
         }
         if (data.has("groupDeletions")) {
             JsonArray groupDeletions = data.get("groupDeletions").getAsJsonArray();
@@ -132,11 +138,11 @@ public class ApplyEditsCommand extends SingleCommand {
         return CommandResult.SUCCESS;
     }
 
-    private boolean readChanges(JsonObject data, Sender sender, LuckPermsPlugin plugin) {
+    private boolean readChanges(JsonObject data, Sender sender, LuckPermsPlugin plugin, List<PermissionHolder> modifiedHolders) {
         String type = data.get("type").getAsString();
 
         if (type.equals("user") || type.equals("group")) {
-            return readHolderChanges(data, sender, plugin);
+            return readHolderChanges(data, sender, plugin, modifiedHolders);
         } else if (type.equals("track")) {
             return readTrackChanges(data, sender, plugin);
         } else {
@@ -145,7 +151,7 @@ public class ApplyEditsCommand extends SingleCommand {
         }
     }
 
-    private boolean readHolderChanges(JsonObject data, Sender sender, LuckPermsPlugin plugin) {
+    private boolean readHolderChanges(JsonObject data, Sender sender, LuckPermsPlugin plugin, List<PermissionHolder> modifiedHolders) {
         String type = data.get("type").getAsString();
         String id = data.get("id").getAsString();
 
@@ -176,10 +182,21 @@ public class ApplyEditsCommand extends SingleCommand {
         }
 
         Set<Node> before = new HashSet<>(holder.normalData().immutable().values());
-        Set<Node> after = new HashSet<>(NodeJsonSerializer.deserializeNodes(data.getAsJsonArray("nodes")));
 
-        Set<Node> diffAdded = getAdded(before, after);
-        Set<Node> diffRemoved = getRemoved(before, after);
+        Set<Node> diffAdded;
+        Set<Node> diffRemoved;
+        if (data.has("added") || data.has("removed")) {
+            // changeset: only the nodes which were added / removed in the editor
+            diffAdded = new LinkedHashSet<>(readNodes(data, "added"));
+            diffAdded.removeAll(before);
+            diffRemoved = new LinkedHashSet<>(readNodes(data, "removed"));
+            diffRemoved.retainAll(before);
+        } else {
+            // legacy format: the full set of nodes the holder should have
+            Set<Node> after = new HashSet<>(readNodes(data, "nodes"));
+            diffAdded = getAdded(before, after);
+            diffRemoved = getRemoved(before, after);
+        }
 
         int additions = diffAdded.size();
         int deletions = diffRemoved.size();
@@ -188,7 +205,7 @@ public class ApplyEditsCommand extends SingleCommand {
             return false;
         }
 
-        holder.setNodes(DataType.NORMAL, after);
+        holder.applyNodeChanges(DataType.NORMAL, diffRemoved, diffAdded);
 
         for (Node n : diffAdded) {
             LoggedAction.build().source(sender).target(holder)
@@ -212,10 +229,18 @@ public class ApplyEditsCommand extends SingleCommand {
         for (Node n : diffRemoved) {
             Message.APPLY_EDITS_DIFF_REMOVED.send(sender, formatNode(plugin.getLocaleManager(), n));
         }
-        StorageAssistant.save(holder, sender, plugin);
+        modifiedHolders.add(holder);
         return true;
     }
 
+    private static Collection<Node> readNodes(JsonObject data, String key) {
+        JsonElement nodes = data.get(key);
+        if (nodes == null || !nodes.isJsonArray()) {
+            return Collections.emptyList();
+        }
+        return NodeJsonSerializer.deserializeNodes(nodes.getAsJsonArray());
+    }
+
     private boolean readTrackChanges(JsonObject data, Sender sender, LuckPermsPlugin plugin) {
         String id = data.get("id").getAsString();
 
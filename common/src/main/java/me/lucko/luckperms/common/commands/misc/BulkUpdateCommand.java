@@ -29,6 +29,7 @@ import com.github.benmanes.caffeine.cache.Cache;
 
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdateBuilder;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdateStatistics;
 import me.lucko.luckperms.common.bulkupdate.DataType;
 import me.lucko.luckperms.common.bulkupdate.action.DeleteAction;
 import me.lucko.luckperms.common.bulkupdate.action.UpdateAction;
@@ -50,7 +51,10 @@ import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.util.CaffeineFactory;
 import me.lucko.luckperms.common.util.Predicates;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
@@ -80,8 +84,38 @@ public class BulkUpdateCommand extends SingleCommand {
             Message.BULK_UPDATE_STARTING.send(sender);
             plugin.getStorage().applyBulkUpdate(operation).whenCompleteAsync((v, ex) -> {
                 if (ex == null) {
-                    plugin.getSyncTaskBuffer().requestDirectly();
+                    BulkUpdateStatistics statistics = operation.getStatistics();
+                    reloadAffectedHolders(plugin, statistics);
                     Message.BULK_UPDATE_SUCCESS.send(sender);
+                    Message.BULK_UPDATE_STATISTICS.send(sender, statistics.getAffectedNodes(), statistics.getAffectedUsers(), statistics.getAffectedGroups());
+                } else {
+                    ex.printStackTrace();
+                    Message.BULK_UPDATE_FAILURE.send(sender);
+                }
+            }, plugin.getBootstrap().getScheduler().async());
+            return CommandResult.SUCCESS;
+        }
+
+        if (args.size() == 2 && args.get(0).equalsIgnoreCase("dryrun")) {
+            String id = args.get(1);
+            BulkUpdate operation = this.pendingOperations.getIfPresent(id);
+
+            if (operation == null) {
+                Message.BULK_UPDATE_UNKNOWN_ID.send(sender, id);
+                return CommandResult.INVALID_ARGS;
+            }
+
+            BulkUpdate dryRun = operation.asDryRun();
+
+            Message.BULK_UPDATE_DRY_RUN_STARTING.send(sender);
+            plugin.getStorage().applyBulkUpdate(dryRun).whenCompleteAsync((v, ex) -> {
+                if (ex == null) {
+                    BulkUpdateStatistics statistics = dryRun.getStatistics();
+                    Message.BULK_UPDATE_DRY_RUN_RESULT.send(sender, statistics.getAffectedNodes(), statistics.getAffectedUsers(), statistics.getAffectedGroups());
+
+                    // the preview might have taken a while, so give the sender a fresh chance to confirm
+                    this.pendingOperations.put(id, operation);
+                    Message.BULK_UPDATE_CONFIRM.send(sender, label, id, label, id);
                 } else {
                     ex.printStackTrace();
                     Message.BULK_UPDATE_FAILURE.send(sender);
@@ -156,8 +190,42 @@ public class BulkUpdateCommand extends SingleCommand {
         this.pendingOperations.put(id, bulkUpdate);
 
         Message.BULK_UPDATE_QUEUED.send(sender, bulkUpdate.buildAsSql().toReadableString().replace("{table}", bulkUpdate.getDataType().getName()));
-        Message.BULK_UPDATE_CONFIRM.send(sender, label, id);
+        Message.BULK_UPDATE_CONFIRM.send(sender, label, id, label, id);
 
         return CommandResult.SUCCESS;
     }
+
+    /**
+     * Reloads the holders affected by a bulk update which are currently loaded.
+     *
+     * <p>Falls back to a full sync if too many holders were affected to keep track of.</p>
+     *
+     * @param plugin the plugin
+     * @param statistics the statistics recorded by the update
+     */
+    private static void reloadAffectedHolders(LuckPermsPlugin plugin, BulkUpdateStatistics statistics) {
+        if (!statistics.isComplete()) {
+            plugin.getSyncTaskBuffer().requestDirectly();
+            return;
+        }
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (String group : statistics.getGroups()) {
+            if (plugin.getGroupManager().isLoaded(group)) {
+                futures.add(plugin.getStorage().loadGroup(group));
+            }
+        }
+        for (UUID uniqueId : statistics.getUsers()) {
+            if (plugin.getUserManager().isLoaded(uniqueId)) {
+                futures.add(plugin.getStorage().loadUser(uniqueId, null));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        if (!statistics.getGroups().isEmpty()) {
+            // anything inheriting from the changed groups needs to be recalculated too
+            plugin.getGroupManager().invalidateAllGroupCaches();
+            plugin.getUserManager().invalidateAllUserCaches();
+        }
+    }
 }
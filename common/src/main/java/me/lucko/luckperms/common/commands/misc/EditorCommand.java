@@ -25,7 +25,7 @@
 
 package me.lucko.luckperms.common.commands.misc;
 
-import com.google.gson.JsonObject;
+import com.google.common.collect.Iterables;
 
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.SingleCommand;
@@ -58,6 +58,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 public class EditorCommand extends SingleCommand {
     public static final int MAX_USERS = 1000;
@@ -91,6 +92,7 @@ public class EditorCommand extends SingleCommand {
 
         // collect holders
         List<PermissionHolder> holders = new ArrayList<>();
+        List<UUID> offlineUsers = new ArrayList<>();
         List<Track> tracks = new ArrayList<>();
         if (type.includingGroups) {
             plugin.getGroupManager().getAll().values().stream()
@@ -112,7 +114,7 @@ public class EditorCommand extends SingleCommand {
                 // only include online players matching the permission
                 users.values().removeIf(user -> user.normalData().immutable().values().stream().noneMatch(matcher));
 
-                // fill up with other matching users
+                // fill up with other matching users - these are loaded lazily as the payload is written
                 if (type.includingOffline && users.size() < MAX_USERS) {
                     plugin.getStorage().searchUserNodes(matcher).join().stream()
                             .map(NodeEntry::getHolder)
@@ -120,29 +122,17 @@ public class EditorCommand extends SingleCommand {
                             .filter(uuid -> !users.containsKey(uuid))
                             .sorted()
                             .limit(MAX_USERS - users.size())
-                            .forEach(uuid -> {
-                                User user = plugin.getStorage().loadUser(uuid, null).join();
-                                if (user != null) {
-                                    users.put(uuid, user);
-                                }
-                                plugin.getUserManager().getHouseKeeper().cleanup(uuid);
-                            });
+                            .forEach(offlineUsers::add);
                 }
             } else {
 
-                // fill up with other users
+                // fill up with other users - these are loaded lazily as the payload is written
                 if (type.includingOffline && users.size() < MAX_USERS) {
                     plugin.getStorage().getUniqueUsers().join().stream()
                             .filter(uuid -> !users.containsKey(uuid))
                             .sorted()
                             .limit(MAX_USERS - users.size())
-                            .forEach(uuid -> {
-                                User user = plugin.getStorage().loadUser(uuid, null).join();
-                                if (user != null) {
-                                    users.put(uuid, user);
-                                }
-                                plugin.getUserManager().getHouseKeeper().cleanup(uuid);
-                            });
+                            .forEach(offlineUsers::add);
                 }
             }
 
@@ -154,25 +144,26 @@ public class EditorCommand extends SingleCommand {
                     .forEach(holders::add);
         }
 
-        if (holders.isEmpty()) {
+        if (holders.isEmpty() && offlineUsers.isEmpty()) {
             Message.EDITOR_NO_MATCH.send(sender);
             return CommandResult.STATE_ERROR;
         }
 
         // remove holders which the sender doesn't have perms to view
-        holders.removeIf(holder -> ArgumentPermissions.checkViewPerms(plugin, sender, getPermission().get(), holder) || ArgumentPermissions.checkGroup(plugin, sender, holder, ImmutableContextSetImpl.EMPTY));
+        Predicate<PermissionHolder> cannotView = holder -> ArgumentPermissions.checkViewPerms(plugin, sender, getPermission().get(), holder) || ArgumentPermissions.checkGroup(plugin, sender, holder, ImmutableContextSetImpl.EMPTY);
+        holders.removeIf(cannotView);
         tracks.removeIf(track -> ArgumentPermissions.checkViewPerms(plugin, sender, getPermission().get(), track));
 
         // they don't have perms to view any of them
-        if (holders.isEmpty() && tracks.isEmpty()) {
+        if (holders.isEmpty() && offlineUsers.isEmpty() && tracks.isEmpty()) {
             Message.COMMAND_NO_PERMISSION.send(sender);
             return CommandResult.NO_PERMISSION;
         }
 
         Message.EDITOR_START.send(sender);
 
-        JsonObject payload = WebEditor.formPayload(holders, tracks, sender, label, plugin);
-        return WebEditor.post(payload, sender, plugin);
+        Iterable<User> lazyUsers = Iterables.filter(WebEditor.lazyLoadUsers(offlineUsers, plugin), user -> !cannotView.test(user));
+        return WebEditor.post(Iterables.concat(holders, lazyUsers), tracks, sender, label, plugin);
     }
 
     private enum Type {
@@ -29,6 +29,7 @@ import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.SingleCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
 import me.lucko.luckperms.common.command.utils.MessageUtils;
+import me.lucko.luckperms.common.context.ContextCalculatorTimings;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
@@ -47,6 +48,7 @@ import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class InfoCommand extends SingleCommand {
     public InfoCommand(LocaleManager locale) {
@@ -78,9 +80,30 @@ public class InfoCommand extends SingleCommand {
             }
         }
 
+        Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
+        Message.INFO_MESSAGING.send(sender, messagingService.map(InternalMessagingService::getName).orElse("None"));
+        if (messagingService.isPresent()) {
+            for (Map.Entry<String, String> e : messagingService.get().getMeta().entrySet()) {
+                Message.INFO_MESSAGING_META.send(sender, e.getKey(), formatValue(e.getValue()));
+            }
+        }
+
+        List<ContextCalculatorTimings> calculatorTimings = plugin.getContextManager().getCalculatorTimings();
+        if (!calculatorTimings.isEmpty()) {
+            Message.INFO_CONTEXT_CALCULATORS.send(sender);
+            for (ContextCalculatorTimings timings : calculatorTimings) {
+                Message.INFO_CONTEXT_CALCULATOR_ENTRY.send(sender,
+                        timings.getCalculatorName(),
+                        timings.isSignalDriven() ? " &7(signal-driven)" : "",
+                        timings.getCalls(),
+                        String.format("%.3f", timings.getAverageMillis()),
+                        String.format("%.3f", timings.getMaxMillis())
+                );
+            }
+        }
+
         ImmutableContextSet staticContext = plugin.getContextManager().getStaticContext();
         Message.INFO_MIDDLE.send(sender,
-                plugin.getMessagingService().map(InternalMessagingService::getName).orElse("None"),
                 staticContext.isEmpty() ? "None" : MessageUtils.contextSetToString(plugin.getLocaleManager(), staticContext),
                 plugin.getBootstrap().getPlayerCount(),
                 plugin.getConnectionListener().getUniqueConnections().size(),
@@ -0,0 +1,116 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.commands.misc;
+
+import me.lucko.luckperms.common.command.CommandResult;
+import me.lucko.luckperms.common.command.abstraction.SingleCommand;
+import me.lucko.luckperms.common.command.access.CommandPermission;
+import me.lucko.luckperms.common.command.utils.ArgumentParser;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.locale.LocaleManager;
+import me.lucko.luckperms.common.locale.command.CommandSpec;
+import me.lucko.luckperms.common.locale.message.Message;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.MemoryFootprint;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.util.Predicates;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MemoryCommand extends SingleCommand {
+    private static final int DEFAULT_COUNT = 10;
+
+    public MemoryCommand(LocaleManager locale) {
+        super(CommandSpec.MEMORY.localize(locale), "Memory", CommandPermission.MEMORY, Predicates.notInRange(0, 1));
+    }
+
+    @Override
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, List<String> args, String label) {
+        int count = Math.max(0, ArgumentParser.parseIntOrElse(0, args, DEFAULT_COUNT));
+
+        List<MemoryFootprint> footprints = new ArrayList<>();
+
+        long userTotal = 0;
+        int users = 0;
+        for (User user : plugin.getUserManager().getAll().values()) {
+            MemoryFootprint footprint = MemoryFootprint.estimate(user);
+            footprints.add(footprint);
+            userTotal += footprint.getEstimatedSize();
+            users++;
+        }
+
+        long groupTotal = 0;
+        int groups = 0;
+        for (Group group : plugin.getGroupManager().getAll().values()) {
+            MemoryFootprint footprint = MemoryFootprint.estimate(group);
+            footprints.add(footprint);
+            groupTotal += footprint.getEstimatedSize();
+            groups++;
+        }
+
+        Message.MEMORY_HEADER.send(sender);
+        Message.MEMORY_SUMMARY.send(sender, "Users", users, MemoryFootprint.formatSize(userTotal));
+        Message.MEMORY_SUMMARY.send(sender, "Groups", groups, MemoryFootprint.formatSize(groupTotal));
+
+        long budget = plugin.getConfiguration().get(ConfigKeys.USER_MEMORY_BUDGET);
+        if (budget > 0) {
+            Message.MEMORY_BUDGET.send(sender, MemoryFootprint.formatSize(budget), userTotal * 100 / budget);
+        } else {
+            Message.MEMORY_BUDGET_DISABLED.send(sender);
+        }
+
+        if (count == 0 || footprints.isEmpty()) {
+            return CommandResult.SUCCESS;
+        }
+
+        footprints.sort(MemoryFootprint.LARGEST_FIRST);
+        Message.MEMORY_TOP_HEADER.send(sender);
+        for (int i = 0; i < count && i < footprints.size(); i++) {
+            MemoryFootprint footprint = footprints.get(i);
+            Message.MEMORY_TOP_ENTRY.send(sender,
+                    i + 1,
+                    describe(footprint.getHolder()),
+                    MemoryFootprint.formatSize(footprint.getEstimatedSize()),
+                    footprint.getNodeCount(),
+                    footprint.getCacheCount()
+            );
+        }
+
+        return CommandResult.SUCCESS;
+    }
+
+    private static String describe(PermissionHolder holder) {
+        if (holder.getType() == HolderType.GROUP) {
+            return "group/" + holder.getPlainDisplayName();
+        }
+        return holder.getPlainDisplayName();
+    }
+}
@@ -45,6 +45,7 @@ public class ReloadConfigCommand extends SingleCommand {
     @Override
     public CommandResult execute(LuckPermsPlugin plugin, Sender sender, List<String> args, String label) {
         plugin.getConfiguration().reload();
+        plugin.getContextManager().invalidateSignalDrivenContexts();
         Message.RELOAD_CONFIG_SUCCESS.send(sender);
         return CommandResult.SUCCESS;
     }
@@ -30,7 +30,6 @@ import com.google.common.collect.Maps;
 import me.lucko.luckperms.common.bulkupdate.comparison.Comparison;
 import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
 import me.lucko.luckperms.common.bulkupdate.comparison.StandardComparison;
-import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.SingleCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
@@ -38,7 +37,7 @@ import me.lucko.luckperms.common.command.tabcomplete.TabCompleter;
 import me.lucko.luckperms.common.command.tabcomplete.TabCompletions;
 import me.lucko.luckperms.common.command.utils.ArgumentParser;
 import me.lucko.luckperms.common.command.utils.MessageUtils;
-import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.command.utils.StorageAssistant;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
@@ -64,6 +63,7 @@ import net.luckperms.api.node.Node;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -96,26 +96,11 @@ public class SearchCommand extends SingleCommand {
         Message.SEARCH_RESULT.send(sender, users + groups, users, groups);
 
         if (!matchedUsers.isEmpty()) {
-            Map<UUID, String> uuidLookups = LoadingMap.of(u -> {
-                String s = plugin.getStorage().getPlayerName(u).join();
-                if (s != null && !s.isEmpty() && !s.equals("null")) {
-                    return s;
-                }
-
-                if (plugin.getConfiguration().get(ConfigKeys.USE_SERVER_UUID_CACHE)) {
-                    s = plugin.getBootstrap().lookupUsername(u).orElse(null);
-                    if (s != null) {
-                        return s;
-                    }
-                }
-
-                return u.toString();
-            });
-            sendResult(sender, matchedUsers, uuidLookups::get, Message.SEARCH_SHOWING_USERS, HolderType.USER, label, page, comparison);
+            sendResult(sender, matchedUsers, uuids -> StorageAssistant.lookupUsernames(uuids, plugin), Message.SEARCH_SHOWING_USERS, HolderType.USER, label, page, comparison);
         }
 
         if (!matchedGroups.isEmpty()) {
-            sendResult(sender, matchedGroups, Function.identity(), Message.SEARCH_SHOWING_GROUPS, HolderType.GROUP, label, page, comparison);
+            sendResult(sender, matchedGroups, names -> Maps.asMap(names, name -> name), Message.SEARCH_SHOWING_GROUPS, HolderType.GROUP, label, page, comparison);
         }
 
         return CommandResult.SUCCESS;
@@ -128,7 +113,7 @@ public class SearchCommand extends SingleCommand {
                 .complete(args);
     }
 
-    private static <T extends Comparable<T>> void sendResult(Sender sender, List<NodeEntry<T, Node>> results, Function<T, String> lookupFunction, Message headerMessage, HolderType holderType, String label, int page, Comparison comparison) {
+    private static <T extends Comparable<T>> void sendResult(Sender sender, List<NodeEntry<T, Node>> results, Function<Set<T>, Map<T, String>> lookupFunction, Message headerMessage, HolderType holderType, String label, int page, Comparison comparison) {
         results = new ArrayList<>(results);
         results.sort(NodeEntryComparator.normal());
 
@@ -142,8 +127,10 @@ public class SearchCommand extends SingleCommand {
 
         List<NodeEntry<T, Node>> content = pages.get(pageIndex);
 
+        // only resolve the names of the holders on the page being displayed
+        Map<T, String> names = lookupFunction.apply(content.stream().map(NodeEntry::getHolder).collect(Collectors.toSet()));
         List<Map.Entry<String, NodeEntry<T, Node>>> mappedContent = content.stream()
-                .map(hp -> Maps.immutableEntry(lookupFunction.apply(hp.getHolder()), hp))
+                .map(hp -> Maps.immutableEntry(names.get(hp.getHolder()), hp))
                 .collect(Collectors.toList());
 
         // send header
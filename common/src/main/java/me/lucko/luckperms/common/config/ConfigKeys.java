@@ -142,6 +142,21 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> DEBUG_LOGINS = booleanKey("debug-logins", false);
 
+    /**
+     * The estimated amount of memory (in megabytes) loaded users may use before the plugin
+     * starts to unload offline users early. A value <= 0 disables the budget.
+     */
+    public static final ConfigKey<Long> USER_MEMORY_BUDGET = key(c -> {
+        int val = c.getInteger("user-memory-budget", 0);
+        return val <= 0 ? 0L : val * 1024L * 1024L;
+    });
+
+    /**
+     * The maximum time (in milliseconds) previously cached permission & meta data can continue to be
+     * used for whilst it is recalculated in the background. A value <= 0 disables refresh-ahead.
+     */
+    public static final ConfigKey<Long> REFRESH_AHEAD_MAX_STALENESS = key(c -> Math.max(0L, c.getInteger("refresh-ahead-max-staleness", 0)));
+
     /**
      * If LP should cancel login attempts for players whose permission data could not be loaded.
      */
@@ -487,6 +502,11 @@ public final class ConfigKeys {
         return c.getString("data.table-prefix", c.getString("data.table_prefix", "luckperms_"));
     }));
 
+    /**
+     * If user data should be stored using the compact SQL schema
+     */
+    public static final ConfigKey<Boolean> SQL_COMPACT_SCHEMA = notReloadable(booleanKey("data.compact-schema", false));
+
     /**
      * The prefix for any MongoDB collections
      */
@@ -571,6 +591,11 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> REDIS_SSL = notReloadable(booleanKey("redis.ssl", false));
 
+    /**
+     * If the redis messenger should publish messages in pipelined batches over a dedicated connection
+     */
+    public static final ConfigKey<Boolean> REDIS_PIPELINED = notReloadable(booleanKey("redis.pipelined", false));
+
     /**
      * The URL of the bytebin instance used to upload data
      */
@@ -0,0 +1,81 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context;
+
+import net.luckperms.api.context.ContextCalculator;
+import net.luckperms.api.context.SignalDrivenContextCalculator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long calls to a {@link ContextCalculator} take.
+ */
+public final class ContextCalculatorTimings {
+    private final String calculatorName;
+    private final boolean signalDriven;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    ContextCalculatorTimings(String calculatorName, ContextCalculator<?> calculator) {
+        this.calculatorName = calculatorName;
+        this.signalDriven = calculator instanceof SignalDrivenContextCalculator;
+    }
+
+    void record(long nanos) {
+        this.calls.increment();
+        this.totalNanos.add(nanos);
+        this.maxNanos.accumulate(nanos);
+    }
+
+    public String getCalculatorName() {
+        return this.calculatorName;
+    }
+
+    public boolean isSignalDriven() {
+        return this.signalDriven;
+    }
+
+    public long getCalls() {
+        return this.calls.sum();
+    }
+
+    public long getTotalTime(TimeUnit unit) {
+        return unit.convert(this.totalNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public double getAverageMillis() {
+        long calls = this.calls.sum();
+        return calls == 0 ? 0 : (this.totalNanos.sum() / (double) calls) / 1_000_000d;
+    }
+
+    public double getMaxMillis() {
+        return this.maxNanos.get() / 1_000_000d;
+    }
+}
@@ -28,20 +28,27 @@ package me.lucko.luckperms.common.context;
 import me.lucko.luckperms.common.cache.ExpiringCache;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import net.luckperms.api.context.ContextCalculator;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.context.SignalDrivenContextCalculator;
 import net.luckperms.api.context.StaticContextCalculator;
 import net.luckperms.api.query.QueryOptions;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base implementation of {@link ContextManager} which caches content lookups.
@@ -55,8 +62,16 @@ public abstract class ContextManager<S, P extends S> {
     private final Class<P> playerClass;
 
     private final List<ContextCalculator<? super S>> calculators = new CopyOnWriteArrayList<>();
+    private final List<ContextCalculator<? super S>> signalDrivenCalculators = new CopyOnWriteArrayList<>();
+    private final List<ContextCalculator<? super S>> dynamicCalculators = new CopyOnWriteArrayList<>();
     private final List<StaticContextCalculator> staticCalculators = new CopyOnWriteArrayList<>();
 
+    // timings for each registered calculator
+    private final Map<ContextCalculator<?>, ContextCalculatorTimings> timings = new ConcurrentHashMap<>();
+
+    // incremented to invalidate the contexts provided by signal driven calculators for all subjects
+    private final AtomicInteger signalGeneration = new AtomicInteger();
+
     // caches static context lookups
     private final StaticLookupCache staticLookupCache = new StaticLookupCache();
 
@@ -108,55 +123,132 @@ public abstract class ContextManager<S, P extends S> {
         // invalidate their cache
         invalidateCache(subject);
 
+        // calculate their data for the new contexts in the background, if enabled
+        if (this.playerClass.isInstance(subject) && this.plugin.getConfiguration().get(ConfigKeys.REFRESH_AHEAD_MAX_STALENESS) > 0) {
+            User user = this.plugin.getUserManager().getIfLoaded(getUniqueId(this.playerClass.cast(subject)));
+            if (user != null) {
+                user.getCachedData().calculateAhead(getQueryOptions(subject));
+            }
+        }
+
         // call event
         this.plugin.getEventDispatcher().dispatchContextUpdate(subject);
     }
 
     protected abstract void invalidateCache(S subject);
 
+    /**
+     * Invalidates the contexts provided by signal driven calculators for
+     * all subjects, for example after the configuration has been reloaded.
+     */
+    public void invalidateSignalDrivenContexts() {
+        this.signalGeneration.incrementAndGet();
+    }
+
+    int getSignalGeneration() {
+        return this.signalGeneration.get();
+    }
+
     public void registerCalculator(ContextCalculator<? super S> calculator) {
+        this.timings.put(calculator, new ContextCalculatorTimings(getCalculatorClass(calculator), calculator));
+
         // calculators registered first should have priority (and be checked last.)
         this.calculators.add(0, calculator);
 
+        if (calculator instanceof SignalDrivenContextCalculator) {
+            this.signalDrivenCalculators.add(0, calculator);
+        } else {
+            this.dynamicCalculators.add(0, calculator);
+        }
+
         if (calculator instanceof StaticContextCalculator) {
             StaticContextCalculator staticCalculator = (StaticContextCalculator) calculator;
             this.staticCalculators.add(0, staticCalculator);
         }
+
+        invalidateSignalDrivenContexts();
     }
 
     public void unregisterCalculator(ContextCalculator<? super S> calculator) {
         this.calculators.remove(calculator);
+        this.signalDrivenCalculators.remove(calculator);
+        this.dynamicCalculators.remove(calculator);
         if (calculator instanceof StaticContextCalculator) {
             this.staticCalculators.remove(calculator);
         }
+        this.timings.remove(calculator);
+
+        invalidateSignalDrivenContexts();
+    }
+
+    /**
+     * Gets the timings recorded for the registered calculators, most expensive first.
+     *
+     * @return the calculator timings
+     */
+    public List<ContextCalculatorTimings> getCalculatorTimings() {
+        List<ContextCalculatorTimings> timings = new ArrayList<>(this.timings.values());
+        timings.sort(Comparator.comparingLong((ContextCalculatorTimings t) -> t.getTotalTime(TimeUnit.NANOSECONDS)).reversed());
+        return timings;
     }
 
     protected QueryOptions calculate(S subject) {
+        return formQueryOptions(subject, calculateContexts(subject, this.calculators));
+    }
+
+    ImmutableContextSet calculateSignalDriven(S subject) {
+        return calculateContexts(subject, this.signalDrivenCalculators);
+    }
+
+    ImmutableContextSet calculateDynamic(S subject) {
+        return calculateContexts(subject, this.dynamicCalculators);
+    }
+
+    boolean hasDynamicCalculators() {
+        return !this.dynamicCalculators.isEmpty();
+    }
+
+    private ImmutableContextSet calculateContexts(S subject, List<ContextCalculator<? super S>> calculators) {
+        if (calculators.isEmpty()) {
+            return ImmutableContextSetImpl.EMPTY;
+        }
+
         ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
-        for (ContextCalculator<? super S> calculator : this.calculators) {
+        for (ContextCalculator<? super S> calculator : calculators) {
+            long start = System.nanoTime();
             try {
                 calculator.calculate(subject, accumulator::add);
             } catch (Throwable e) {
                 this.plugin.getLogger().warn("An exception was thrown by " + getCalculatorClass(calculator) + " whilst calculating the context of subject " + subject);
                 e.printStackTrace();
             }
+            recordTiming(calculator, System.nanoTime() - start);
         }
-        return formQueryOptions(subject, accumulator.build());
+        return accumulator.build();
     }
 
     private QueryOptions calculateStatic() {
         ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
         for (StaticContextCalculator calculator : this.staticCalculators) {
+            long start = System.nanoTime();
             try {
                 calculator.calculate(accumulator::add);
             } catch (Throwable e) {
                 this.plugin.getLogger().warn("An exception was thrown by " + getCalculatorClass(calculator) + " whilst calculating static contexts");
                 e.printStackTrace();
             }
+            recordTiming(calculator, System.nanoTime() - start);
         }
         return formQueryOptions(accumulator.build());
     }
 
+    private void recordTiming(ContextCalculator<?> calculator, long nanos) {
+        ContextCalculatorTimings timings = this.timings.get(calculator);
+        if (timings != null) {
+            timings.record(nanos);
+        }
+    }
+
     public ImmutableContextSet getPotentialContexts() {
         ImmutableContextSet.Builder builder = new ImmutableContextSetImpl.BuilderImpl();
         for (ContextCalculator<? super S> calculator : this.calculators) {
@@ -26,6 +26,7 @@
 package me.lucko.luckperms.common.context;
 
 import me.lucko.luckperms.common.cache.ExpiringCache;
+import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
 
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.query.QueryOptions;
@@ -37,12 +38,28 @@ import java.util.concurrent.TimeUnit;
 /**
  * Implementation of {@link QueryOptionsSupplier} that caches results.
  *
+ * <p>Contexts provided by {@link net.luckperms.api.context.SignalDrivenContextCalculator}s
+ * are only recalculated after the cache has been invalidated. The remaining
+ * calculators are queried roughly every tick. If the resultant query options
+ * are unchanged, the previous instance is returned again.</p>
+ *
  * @param <T> the player type
  */
 public final class QueryOptionsCache<T> extends ExpiringCache<QueryOptions> implements QueryOptionsSupplier {
     private final T subject;
     private final ContextManager<T, ?> contextManager;
 
+    // set when the contexts provided by signal driven calculators need to be recalculated
+    private volatile boolean signalled = true;
+
+    // the following fields are only accessed from #supply, which is always called whilst
+    // holding the lock on this instance
+    private int signalGeneration;
+    private ImmutableContextSet signalDrivenContexts = ImmutableContextSetImpl.EMPTY;
+    private ImmutableContextSet dynamicContexts = null;
+    private ImmutableContextSet contexts = null;
+    private QueryOptions queryOptions = null;
+
     public QueryOptionsCache(T subject, ContextManager<T, ?> contextManager) {
         super(50L, TimeUnit.MILLISECONDS); // expire roughly every tick
         this.subject = subject;
@@ -51,7 +68,55 @@ public final class QueryOptionsCache<T> extends ExpiringCache<QueryOptions> impl
 
     @Override
     protected @NonNull QueryOptions supply() {
-        return this.contextManager.calculate(this.subject);
+        boolean changed = this.contexts == null;
+
+        int generation = this.contextManager.getSignalGeneration();
+        if (this.signalled || generation != this.signalGeneration) {
+            // reset the flag before calculating, so signals received during the calculation aren't lost
+            this.signalled = false;
+            this.signalGeneration = generation;
+
+            ImmutableContextSet signalDriven = this.contextManager.calculateSignalDriven(this.subject);
+            if (!signalDriven.equals(this.signalDrivenContexts)) {
+                this.signalDrivenContexts = signalDriven;
+                changed = true;
+            }
+        }
+
+        if (this.dynamicContexts == null || this.contextManager.hasDynamicCalculators()) {
+            ImmutableContextSet dynamic = this.contextManager.calculateDynamic(this.subject);
+            if (!dynamic.equals(this.dynamicContexts)) {
+                this.dynamicContexts = dynamic;
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            if (this.signalDrivenContexts.isEmpty()) {
+                this.contexts = this.dynamicContexts;
+            } else if (this.dynamicContexts.isEmpty()) {
+                this.contexts = this.signalDrivenContexts;
+            } else {
+                this.contexts = new ImmutableContextSetImpl.BuilderImpl()
+                        .addAll(this.signalDrivenContexts)
+                        .addAll(this.dynamicContexts)
+                        .build();
+            }
+        }
+
+        // the query options may depend on other properties of the subject, so always re-form them,
+        // but return the existing instance if nothing has changed
+        QueryOptions queryOptions = this.contextManager.formQueryOptions(this.subject, this.contexts);
+        if (!queryOptions.equals(this.queryOptions)) {
+            this.queryOptions = queryOptions;
+        }
+        return this.queryOptions;
+    }
+
+    @Override
+    public void invalidate() {
+        this.signalled = true;
+        super.invalidate();
     }
 
     @Override
@@ -29,6 +29,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
@@ -63,6 +65,28 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
         return new ImmutableContextSetImpl(ImmutableSetMultimap.of(key, sanitizeValue(value)));
     }
 
+    /**
+     * Weakly held pool of canonical context set instances
+     */
+    private static final Interner<ImmutableContextSet> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Returns the canonical instance for the given context set, so that equal
+     * sets can share a single instance and be compared by identity.
+     *
+     * @param contextSet the context set
+     * @return the canonical instance
+     */
+    public static ImmutableContextSet intern(ImmutableContextSet contextSet) {
+        if (contextSet.isEmpty()) {
+            return EMPTY;
+        }
+        if (!(contextSet instanceof ImmutableContextSetImpl)) {
+            return contextSet;
+        }
+        return INTERNER.intern(contextSet);
+    }
+
     private final ImmutableSetMultimap<String, String> map;
     private final int hashCode;
 
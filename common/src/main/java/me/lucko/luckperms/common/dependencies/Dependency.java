@@ -162,8 +162,8 @@ public enum Dependency {
     POSTGRESQL_DRIVER(
             "org{}postgresql",
             "postgresql",
-            "9.4.1212",
-            "DLKhWL4xrPIY4KThjI89usaKO8NIBkaHc/xECUsMNl0=",
+            "42.2.14",
+            "SLu6BYRbQLzOZuzj12UhU9J7U3nVrpCXe3ju/Xx6Aoc=",
             Relocation.of("postgresql", "org{}postgresql")
     ),
     H2_DRIVER(
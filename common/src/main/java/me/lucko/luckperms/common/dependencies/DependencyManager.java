@@ -42,13 +42,15 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Loads and manages runtime dependencies for the plugin.
@@ -61,25 +63,36 @@ public class DependencyManager {
     private final DependencyRegistry registry;
     /** The path where library jars are cached. */
     private final Path cacheDirectory;
+    /** A manifest recording the dependencies which have already been verified and relocated. */
+    private final DependencyManifest manifest;
 
     /** A map of dependencies which have already been loaded. */
-    private final EnumMap<Dependency, Path> loaded = new EnumMap<>(Dependency.class);
+    private final Map<Dependency, Path> loaded = Collections.synchronizedMap(new EnumMap<>(Dependency.class));
+    /** A map of dependencies which are being (or have been) loaded, so each is only loaded once. */
+    private final Map<Dependency, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
     /** A map of isolated classloaders which have been created. */
     private final Map<ImmutableSet<Dependency>, IsolatedClassLoader> loaders = new HashMap<>();
     /** Cached relocation handler instance. */
-    private @MonotonicNonNull RelocationHandler relocationHandler = null;
+    private volatile @MonotonicNonNull RelocationHandler relocationHandler = null;
 
     public DependencyManager(LuckPermsPlugin plugin) {
         this.plugin = plugin;
         this.registry = new DependencyRegistry(plugin);
         this.cacheDirectory = setupCacheDirectory(plugin);
+        this.manifest = new DependencyManifest(this.cacheDirectory);
     }
 
-    private synchronized RelocationHandler getRelocationHandler() {
-        if (this.relocationHandler == null) {
-            this.relocationHandler = new RelocationHandler(this);
+    private RelocationHandler getRelocationHandler() {
+        RelocationHandler relocationHandler = this.relocationHandler;
+        if (relocationHandler == null) {
+            synchronized (this) {
+                relocationHandler = this.relocationHandler;
+                if (relocationHandler == null) {
+                    relocationHandler = this.relocationHandler = new RelocationHandler(this);
+                }
+            }
         }
-        return this.relocationHandler;
+        return relocationHandler;
     }
 
     public IsolatedClassLoader obtainClassLoaderWith(Set<Dependency> dependencies) {
@@ -118,27 +131,31 @@ public class DependencyManager {
         loadDependencies(this.registry.resolveStorageDependencies(storageTypes));
     }
 
+    public CompletableFuture<Void> loadStorageDependenciesAsync(Set<StorageType> storageTypes) {
+        return loadDependenciesAsync(this.registry.resolveStorageDependencies(storageTypes));
+    }
+
     public void loadDependencies(Set<Dependency> dependencies) {
-        CountDownLatch latch = new CountDownLatch(dependencies.size());
+        loadDependenciesAsync(dependencies).join();
+    }
 
+    public CompletableFuture<Void> loadDependenciesAsync(Set<Dependency> dependencies) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(dependencies.size());
         for (Dependency dependency : dependencies) {
-            this.plugin.getBootstrap().getScheduler().async().execute(() -> {
+            futures.add(this.loading.computeIfAbsent(dependency, d -> CompletableFuture.runAsync(() -> {
                 try {
-                    loadDependency(dependency);
+                    loadDependency(d);
                 } catch (Throwable e) {
-                    this.plugin.getLogger().severe("Unable to load dependency " + dependency.name() + ".");
+                    this.plugin.getLogger().severe("Unable to load dependency " + d.name() + ".");
                     e.printStackTrace();
-                } finally {
-                    latch.countDown();
+
+                    // allow another attempt to be made
+                    this.loading.remove(d);
                 }
-            });
+            }, this.plugin.getBootstrap().getScheduler().async())));
         }
 
-        try {
-            latch.await();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenRun(this.manifest::saveIfDirty);
     }
 
     private void loadDependency(Dependency dependency) throws Exception {
@@ -146,7 +163,20 @@ public class DependencyManager {
             return;
         }
 
-        Path file = remapDependency(dependency, downloadDependency(dependency));
+        List<Relocation> rules = new ArrayList<>(dependency.getRelocations());
+        this.registry.applyRelocationSettings(dependency, rules);
+
+        Path normalFile = this.cacheDirectory.resolve(dependency.getFileName() + ".jar");
+        Path remappedFile = rules.isEmpty() ? normalFile : this.cacheDirectory.resolve(dependency.getFileName() + "-remapped.jar");
+
+        Path file;
+        if (this.manifest.isValid(dependency, normalFile, remappedFile, rules)) {
+            // the files haven't changed since they were last verified
+            file = remappedFile;
+        } else {
+            file = remapDependency(rules, downloadDependency(dependency), remappedFile);
+            this.manifest.record(dependency, normalFile, file, rules);
+        }
 
         this.loaded.put(dependency, file);
 
@@ -158,9 +188,17 @@ public class DependencyManager {
     private Path downloadDependency(Dependency dependency) throws DependencyDownloadException {
         Path file = this.cacheDirectory.resolve(dependency.getFileName() + ".jar");
 
-        // if the file already exists, don't attempt to re-download it.
+        // if the file already exists, don't attempt to re-download it,
+        // unless it doesn't match the checksum.
         if (Files.exists(file)) {
-            return file;
+            try {
+                if (DependencyManifest.verifyChecksum(dependency, file)) {
+                    return file;
+                }
+                this.plugin.getLogger().warn("Dependency " + dependency.name() + " did not match its checksum, downloading it again.");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
 
         DependencyDownloadException lastError = null;
@@ -178,20 +216,14 @@ public class DependencyManager {
         throw Objects.requireNonNull(lastError);
     }
 
-    private Path remapDependency(Dependency dependency, Path normalFile) throws Exception {
-        List<Relocation> rules = new ArrayList<>(dependency.getRelocations());
-        this.registry.applyRelocationSettings(dependency, rules);
-
+    private Path remapDependency(List<Relocation> rules, Path normalFile, Path remappedFile) throws Exception {
         if (rules.isEmpty()) {
             return normalFile;
         }
 
-        Path remappedFile = this.cacheDirectory.resolve(dependency.getFileName() + "-remapped.jar");
-
-        // if the remapped source exists already, just use that.
-        if (Files.exists(remappedFile)) {
-            return remappedFile;
-        }
+        // the remapped file isn't recorded in the manifest, so it may have been
+        // produced using different rules - remap it again.
+        Files.deleteIfExists(remappedFile);
 
         getRelocationHandler().remap(normalFile, remappedFile, rules);
         return remappedFile;
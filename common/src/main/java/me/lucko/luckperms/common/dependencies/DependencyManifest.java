@@ -0,0 +1,251 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.common.dependencies;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import me.lucko.luckperms.common.dependencies.relocation.Relocation;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Records the state of the files in the dependency cache directory.
+ *
+ * <p>Once a dependency has been verified against its checksum and relocated,
+ * an entry is written to the manifest describing the resultant files. On
+ * subsequent startups, if the files are unchanged, the verification and
+ * relocation steps can be skipped entirely.</p>
+ */
+class DependencyManifest {
+    private static final String FILE_NAME = "manifest.json";
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    DependencyManifest(Path cacheDirectory) {
+        this.file = cacheDirectory.resolve(FILE_NAME);
+        load();
+    }
+
+    /**
+     * Gets if the files for the given dependency can be used without any further verification.
+     *
+     * @param dependency the dependency
+     * @param normalFile the downloaded file
+     * @param remappedFile the remapped file, or the downloaded file if no rules apply
+     * @param rules the relocation rules
+     * @return true if the files are known to be valid
+     */
+    boolean isValid(Dependency dependency, Path normalFile, Path remappedFile, List<Relocation> rules) {
+        Entry entry = this.entries.get(dependency.name());
+        if (entry == null) {
+            return false;
+        }
+
+        return entry.checksum.equals(encodeChecksum(dependency)) &&
+                entry.rules.equals(describeRules(rules)) &&
+                entry.normal.matches(normalFile) &&
+                entry.remapped.matches(remappedFile);
+    }
+
+    /**
+     * Records that the files for the given dependency have been verified.
+     *
+     * @param dependency the dependency
+     * @param normalFile the downloaded file
+     * @param remappedFile the remapped file, or the downloaded file if no rules apply
+     * @param rules the relocation rules
+     * @throws IOException if unable to read the file attributes
+     */
+    void record(Dependency dependency, Path normalFile, Path remappedFile, List<Relocation> rules) throws IOException {
+        Entry entry = new Entry(encodeChecksum(dependency), describeRules(rules), FileState.of(normalFile), FileState.of(remappedFile));
+        this.entries.put(dependency.name(), entry);
+        this.dirty = true;
+    }
+
+    /**
+     * Gets if the contents of the given file match the checksum of the dependency.
+     *
+     * @param dependency the dependency
+     * @param file the file
+     * @return true if the checksum matches
+     * @throws IOException if unable to read the file
+     */
+    static boolean verifyChecksum(Dependency dependency, Path file) throws IOException {
+        MessageDigest digest = Dependency.createDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return dependency.checksumMatches(digest.digest());
+    }
+
+    private static String encodeChecksum(Dependency dependency) {
+        return Base64.getEncoder().encodeToString(dependency.getChecksum());
+    }
+
+    private static String describeRules(List<Relocation> rules) {
+        return rules.stream()
+                .map(r -> r.getPattern() + "=" + r.getRelocatedPattern())
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    private void load() {
+        if (!Files.exists(this.file)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+            JsonObject data = GsonProvider.normal().fromJson(reader, JsonObject.class);
+            if (data == null) {
+                return;
+            }
+
+            for (Map.Entry<String, JsonElement> e : data.entrySet()) {
+                this.entries.put(e.getKey(), Entry.deserialize(e.getValue().getAsJsonObject()));
+            }
+        } catch (Exception e) {
+            // the manifest is just a cache, so discard it if it can't be read
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * Saves the manifest to disk, if it has changed since it was last saved.
+     */
+    synchronized void saveIfDirty() {
+        if (!this.dirty) {
+            return;
+        }
+        this.dirty = false;
+
+        JsonObject data = new JsonObject();
+        for (Map.Entry<String, Entry> e : this.entries.entrySet()) {
+            data.add(e.getKey(), e.getValue().serialize());
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8)) {
+            GsonProvider.prettyPrinting().toJson(data, writer);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static final class Entry {
+        private final String checksum;
+        private final String rules;
+        private final FileState normal;
+        private final FileState remapped;
+
+        Entry(String checksum, String rules, FileState normal, FileState remapped) {
+            this.checksum = checksum;
+            this.rules = rules;
+            this.normal = normal;
+            this.remapped = remapped;
+        }
+
+        JsonObject serialize() {
+            JsonObject object = new JsonObject();
+            object.addProperty("checksum", this.checksum);
+            object.addProperty("rules", this.rules);
+            object.add("normal", this.normal.serialize());
+            object.add("remapped", this.remapped.serialize());
+            return object;
+        }
+
+        static Entry deserialize(JsonObject object) {
+            return new Entry(
+                    object.get("checksum").getAsString(),
+                    object.get("rules").getAsString(),
+                    FileState.deserialize(object.get("normal").getAsJsonObject()),
+                    FileState.deserialize(object.get("remapped").getAsJsonObject())
+            );
+        }
+    }
+
+    private static final class FileState {
+        private final String name;
+        private final long size;
+        private final long lastModified;
+
+        FileState(String name, long size, long lastModified) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        static FileState of(Path file) throws IOException {
+            return new FileState(file.getFileName().toString(), Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        }
+
+        boolean matches(Path file) {
+            if (!Objects.equals(this.name, file.getFileName().toString())) {
+                return false;
+            }
+            try {
+                return Files.size(file) == this.size && Files.getLastModifiedTime(file).toMillis() == this.lastModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        JsonObject serialize() {
+            JsonObject object = new JsonObject();
+            object.addProperty("name", this.name);
+            object.addProperty("size", this.size);
+            object.addProperty("lastModified", this.lastModified);
+            return object;
+        }
+
+        static FileState deserialize(JsonObject object) {
+            return new FileState(
+                    object.get("name").getAsString(),
+                    object.get("size").getAsLong(),
+                    object.get("lastModified").getAsLong()
+            );
+        }
+    }
+
+}
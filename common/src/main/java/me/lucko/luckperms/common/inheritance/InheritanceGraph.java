@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.inheritance;
 
+import com.google.common.collect.Iterables;
+
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.graph.Graph;
 import me.lucko.luckperms.common.graph.TraversalAlgorithm;
@@ -36,39 +38,95 @@ import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A {@link Graph} which represents an "inheritance tree".
+ *
+ * <p>The edges leading out of groups, and complete traversals starting at groups,
+ * are memoised in a snapshot which is discarded whenever the
+ * {@link InheritanceGraphFactory#getVersion() group inheritance version} changes.</p>
  */
 public class InheritanceGraph implements Graph<PermissionHolder> {
+    private static final Group[] NO_PARENTS = new Group[0];
+
     private final LuckPermsPlugin plugin;
+    private final InheritanceGraphFactory factory;
 
     /**
      * The contexts to resolve inheritance in.
      */
     private final QueryOptions queryOptions;
 
-    public InheritanceGraph(LuckPermsPlugin plugin, QueryOptions queryOptions) {
+    /**
+     * The current snapshot of group edges and traversals
+     */
+    private volatile Snapshot snapshot = null;
+
+    public InheritanceGraph(LuckPermsPlugin plugin, InheritanceGraphFactory factory, QueryOptions queryOptions) {
         this.plugin = plugin;
+        this.factory = factory;
         this.queryOptions = queryOptions;
     }
 
+    private Snapshot getSnapshot() {
+        int version = this.factory.getVersion();
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null || snapshot.version != version) {
+            this.snapshot = snapshot = new Snapshot(version);
+        }
+        return snapshot;
+    }
+
     @Override
     public Iterable<? extends PermissionHolder> successors(PermissionHolder holder) {
-        Set<Group> successors = new LinkedHashSet<>();
-        for (InheritanceNode n : holder.getOwnInheritanceNodes(this.queryOptions)) {
+        if (holder instanceof Group) {
+            return Arrays.asList(getSnapshot().parents.computeIfAbsent((Group) holder, this::calculateParents));
+        }
+        return calculateSuccessors(holder);
+    }
+
+    private Group[] calculateParents(Group group) {
+        List<Group> successors = calculateSuccessors(group);
+        return successors.isEmpty() ? NO_PARENTS : successors.toArray(NO_PARENTS);
+    }
+
+    private List<Group> calculateSuccessors(PermissionHolder holder) {
+        List<InheritanceNode> nodes = holder.getOwnInheritanceNodes(this.queryOptions);
+        if (nodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // holders rarely have more than a handful of parents, so a list
+        // is cheaper to de-duplicate with than a hash set
+        List<Group> successors = new ArrayList<>(nodes.size());
+        for (InheritanceNode n : nodes) {
             Group g = this.plugin.getGroupManager().getIfLoaded(n.getGroupName());
-            if (g != null) {
+            if (g != null && !successors.contains(g)) {
                 successors.add(g);
             }
         }
 
-        List<Group> successorsSorted = new ArrayList<>(successors);
-        successorsSorted.sort(holder.getInheritanceComparator());
-        return successorsSorted;
+        if (successors.size() > 1) {
+            successors.sort(holder.getInheritanceComparator());
+        }
+        return successors;
+    }
+
+    @Override
+    public Iterable<PermissionHolder> traverse(TraversalAlgorithm algorithm, PermissionHolder startNode) {
+        if (startNode instanceof Group) {
+            // the traversal from a group only depends on group data, so it can be flattened once per snapshot
+            PermissionHolder[] traversal = getSnapshot().traversals.get(algorithm)
+                    .computeIfAbsent((Group) startNode, group -> Iterables.toArray(algorithm.traverse(this, group), PermissionHolder.class));
+            return Collections.unmodifiableList(Arrays.asList(traversal));
+        }
+        return algorithm.traverse(this, startNode);
     }
 
     /**
@@ -112,4 +170,25 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
         );
     }
 
+    /**
+     * An immutable (once populated) view of the group edges in the graph,
+     * valid for a single group inheritance version.
+     */
+    private static final class Snapshot {
+        private final int version;
+
+        /** The sorted parents of each group */
+        private final Map<Group, Group[]> parents = new ConcurrentHashMap<>();
+
+        /** The flattened traversal order starting at each group, per algorithm */
+        private final Map<TraversalAlgorithm, Map<Group, PermissionHolder[]>> traversals = new EnumMap<>(TraversalAlgorithm.class);
+
+        Snapshot(int version) {
+            this.version = version;
+            for (TraversalAlgorithm algorithm : TraversalAlgorithm.values()) {
+                this.traversals.put(algorithm, new ConcurrentHashMap<>());
+            }
+        }
+    }
+
 }
@@ -25,24 +25,43 @@
 
 package me.lucko.luckperms.common.inheritance;
 
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 
 import net.luckperms.api.query.QueryOptions;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Provides {@link InheritanceGraph}s.
  */
 public class InheritanceGraphFactory {
     private final LuckPermsPlugin plugin;
 
+    /**
+     * Incremented whenever the inheritance between groups may have changed
+     */
+    private final AtomicInteger version = new AtomicInteger();
+
     private final InheritanceGraph nonContextualGraph;
     private final InheritanceGraph defaultContextualGraph;
 
+    private final LoadingCache<QueryOptions, InheritanceGraph> graphs = CaffeineFactory.newBuilder()
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .build(this::createGraph);
+
     public InheritanceGraphFactory(LuckPermsPlugin plugin) {
         this.plugin = plugin;
-        this.nonContextualGraph = new InheritanceGraph(plugin, QueryOptionsImpl.DEFAULT_NON_CONTEXTUAL);
-        this.defaultContextualGraph = new InheritanceGraph(plugin, QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+        this.nonContextualGraph = createGraph(QueryOptionsImpl.DEFAULT_NON_CONTEXTUAL);
+        this.defaultContextualGraph = createGraph(QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+    }
+
+    private InheritanceGraph createGraph(QueryOptions queryOptions) {
+        return new InheritanceGraph(this.plugin, this, queryOptions);
     }
 
     public InheritanceGraph getGraph(QueryOptions queryOptions) {
@@ -51,8 +70,27 @@ public class InheritanceGraphFactory {
         } else if (queryOptions == QueryOptionsImpl.DEFAULT_CONTEXTUAL) {
             return this.defaultContextualGraph;
         } else {
-            return new InheritanceGraph(this.plugin, queryOptions);
+            return this.graphs.get(queryOptions);
         }
     }
 
+    /**
+     * Gets the current group inheritance version.
+     *
+     * @return the version
+     */
+    public int getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Invalidates all memoised group edges and traversals.
+     *
+     * <p>Should be called whenever a group is loaded or unloaded, or the
+     * inheritance nodes or weight of a group change.</p>
+     */
+    public void invalidate() {
+        this.version.incrementAndGet();
+    }
+
 }
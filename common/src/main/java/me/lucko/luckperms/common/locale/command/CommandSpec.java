@@ -89,6 +89,11 @@ public enum CommandSpec {
             )
     ),
     NETWORK_SYNC("Sync changes with the storage and request that all other servers on the network do the same", "/%s networksync"),
+    MEMORY("Shows the estimated memory used by loaded users and groups", "/%s memory [count]",
+            Argument.list(
+                    Argument.create("count", false, "the number of holders to list, largest first")
+            )
+    ),
     IMPORT("Imports data from a (previously created) export file", "/%s import <file>",
             Argument.list(
                     Argument.create("file", true, "the file to import from"),
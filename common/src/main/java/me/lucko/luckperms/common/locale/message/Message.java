@@ -228,8 +228,13 @@ public enum Message {
     INFO_EXTENSIONS("&f-  &bExtensions:", true),
     INFO_EXTENSION_ENTRY("     &3{}", true),
 
+    INFO_MESSAGING("{PREFIX}&f-  &bMessaging: &f{}", false),
+    INFO_MESSAGING_META("     &3{}: {}", true),
+
+    INFO_CONTEXT_CALCULATORS("&f-  &bContext Calculators:", true),
+    INFO_CONTEXT_CALCULATOR_ENTRY("     &3{}{}: &a{} &7calls, avg &f{}ms&7, max &f{}ms", true),
+
     INFO_MIDDLE(
-            "{PREFIX}&f-  &bMessaging: &f{}" + "\n" +
             "{PREFIX}&f-  &bInstance:" + "\n" +
             "{PREFIX}     &3Static contexts: &f{}" + "\n" +
             "{PREFIX}     &3Online Players: &a{} &7(&a{}&7 unique)" + "\n" +
@@ -238,6 +243,13 @@ public enum Message {
             false
     ),
 
+    MEMORY_HEADER("&aEstimated memory usage of loaded data:", true),
+    MEMORY_SUMMARY("&f-  &3{}: &a{} &7loaded, &f{}", true),
+    MEMORY_BUDGET("&f-  &3User memory budget: &f{} &7({}% used)", true),
+    MEMORY_BUDGET_DISABLED("&f-  &3User memory budget: &7none", true),
+    MEMORY_TOP_HEADER("&bLargest holders:", true),
+    MEMORY_TOP_ENTRY("&f{}. &3{} &7- &f{} &7(&a{}&7 nodes, &a{}&7 caches)", true),
+
     DEBUG_START("&bGenerating debugging output...", true),
     DEBUG_URL("&aDebug data URL:", true),
 
@@ -348,11 +360,14 @@ public enum Message {
     BULK_UPDATE_INVALID_CONSTRAINT("&cInvalid constraint &4{}&c. Constraints should be in the format '&f<field> <comparison operator> <value>&c'.", true),
     BULK_UPDATE_INVALID_COMPARISON("&cInvalid comparison operator '&4{}&c'. Expected one of the following: &f==  !=  ~~  ~!", true),
     BULK_UPDATE_QUEUED("&aBulk update operation was queued. &7(&f{}&7)", true),
-    BULK_UPDATE_CONFIRM("&aRun &b/{} bulkupdate confirm {} &ato execute the update.", true),
+    BULK_UPDATE_CONFIRM("&aRun &b/{} bulkupdate confirm {} &ato execute the update, or &b/{} bulkupdate dryrun {} &ato preview it.", true),
     BULK_UPDATE_UNKNOWN_ID("&aOperation with id &b{}&a does not exist or has expired.", true),
 
     BULK_UPDATE_STARTING("&aRunning bulk update.", true),
     BULK_UPDATE_SUCCESS("&bBulk update completed successfully.", true),
+    BULK_UPDATE_STATISTICS("&b{}&a nodes held by &b{}&a users and &b{}&a groups were affected.", true),
+    BULK_UPDATE_DRY_RUN_STARTING("&aPreviewing bulk update.", true),
+    BULK_UPDATE_DRY_RUN_RESULT("&b{}&a nodes held by &b{}&a users and &b{}&a groups would be affected.", true),
     BULK_UPDATE_FAILURE("&cBulk update failed. Check the console for errors.", true),
 
     USER_INFO_GENERAL(
@@ -474,8 +489,8 @@ public enum Message {
     IMPORT_FILE_NOT_READABLE("&cError: File &4{}&c is not readable.", true),
     IMPORT_FILE_READ_FAILURE("&cAn unexpected error occured whilst reading from the import file. (is it the correct format?)", true),
 
-    IMPORT_PROGRESS("&b(Import) &b-> &f{}&f% complete &7- &b{}&f/&b{} &foperations complete with &c{} &ferrors.", true),
-    IMPORT_PROGRESS_SIN("&b(Import) &b-> &f{}&f% complete &7- &b{}&f/&b{} &foperations complete with &c{} &ferror.", true),
+    IMPORT_PROGRESS("&b(Import) &b-> &f{}&f% read &7- &b{} &fusers imported with &c{} &ferrors.", true),
+    IMPORT_PROGRESS_SIN("&b(Import) &b-> &f{}&f% read &7- &b{} &fusers imported with &c{} &ferror.", true),
     IMPORT_START("&b(Import) &b-> &fStarting import process.", true),
     IMPORT_INFO("&b(Import) &b-> &f{}.", true),
 
@@ -32,6 +32,8 @@ import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.messenger.Messenger;
 import net.luckperms.api.messenger.MessengerProvider;
 
+import java.util.Map;
+
 public interface InternalMessagingService {
 
     /**
@@ -45,6 +47,13 @@ public interface InternalMessagingService {
 
     MessengerProvider getMessengerProvider();
 
+    /**
+     * Gets a map of metrics reported by the messenger, if any.
+     *
+     * @return the messenger metrics
+     */
+    Map<String, String> getMeta();
+
     /**
      * Closes the messaging service
      */
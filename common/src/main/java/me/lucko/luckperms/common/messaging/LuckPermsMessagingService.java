@@ -53,6 +53,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
@@ -92,6 +93,14 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         return this.messengerProvider;
     }
 
+    @Override
+    public Map<String, String> getMeta() {
+        if (this.messenger instanceof InstrumentedMessenger) {
+            return ((InstrumentedMessenger) this.messenger).getMeta();
+        }
+        return Collections.emptyMap();
+    }
+
     @Override
     public void close() {
         this.messenger.close();
@@ -241,6 +250,9 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         } else if (message instanceof UserUpdateMessage) {
             UserUpdateMessage msg = (UserUpdateMessage) message;
 
+            // the players name may have changed too, whether or not they're loaded here
+            this.plugin.getStorage().invalidatePlayerName(msg.getUserUniqueId());
+
             User user = this.plugin.getUserManager().getIfLoaded(msg.getUserUniqueId());
             if (user == null) {
                 return;
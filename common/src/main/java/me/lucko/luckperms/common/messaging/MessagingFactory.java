@@ -27,13 +27,12 @@ package me.lucko.luckperms.common.messaging;
 
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.messaging.redis.PipelinedRedisMessenger;
 import me.lucko.luckperms.common.messaging.redis.RedisMessenger;
 import me.lucko.luckperms.common.messaging.sql.SqlMessenger;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.SqlStorage;
-import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.MariaDbConnectionFactory;
-import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.MySqlConnectionFactory;
 
 import net.luckperms.api.messenger.IncomingMessageConsumer;
 import net.luckperms.api.messenger.Messenger;
@@ -66,7 +65,7 @@ public class MessagingFactory<P extends LuckPermsPlugin> {
                 for (StorageImplementation implementation : this.plugin.getStorage().getImplementations()) {
                     if (implementation instanceof SqlStorage) {
                         SqlStorage sql = (SqlStorage) implementation;
-                        if (sql.getConnectionFactory() instanceof MySqlConnectionFactory || sql.getConnectionFactory() instanceof MariaDbConnectionFactory) {
+                        if (SqlMessenger.isRemote(sql.getConnectionFactory())) {
                             messagingType = "sql";
                             break;
                         }
@@ -121,8 +120,6 @@ public class MessagingFactory<P extends LuckPermsPlugin> {
 
         @Override
         public @NonNull Messenger obtain(@NonNull IncomingMessageConsumer incomingMessageConsumer) {
-            RedisMessenger redis = new RedisMessenger(getPlugin(), incomingMessageConsumer);
-
             LuckPermsConfiguration config = getPlugin().getConfiguration();
             String address = config.get(ConfigKeys.REDIS_ADDRESS);
             String password = config.get(ConfigKeys.REDIS_PASSWORD);
@@ -131,6 +128,13 @@ public class MessagingFactory<P extends LuckPermsPlugin> {
             }
             boolean ssl = config.get(ConfigKeys.REDIS_SSL);
 
+            if (config.get(ConfigKeys.REDIS_PIPELINED)) {
+                PipelinedRedisMessenger redis = new PipelinedRedisMessenger(getPlugin(), incomingMessageConsumer);
+                redis.init(address, password, ssl);
+                return redis;
+            }
+
+            RedisMessenger redis = new RedisMessenger(getPlugin(), incomingMessageConsumer);
             redis.init(address, password, ssl);
             return redis;
         }
@@ -148,7 +152,7 @@ public class MessagingFactory<P extends LuckPermsPlugin> {
             for (StorageImplementation implementation : getPlugin().getStorage().getImplementations()) {
                 if (implementation instanceof SqlStorage) {
                     SqlStorage storage = (SqlStorage) implementation;
-                    if (storage.getConnectionFactory() instanceof MySqlConnectionFactory || storage.getConnectionFactory() instanceof MariaDbConnectionFactory) {
+                    if (SqlMessenger.isSupported(storage.getConnectionFactory())) {
                         // found an implementation match!
                         SqlMessenger sql = new SqlMessenger(getPlugin(), storage, incomingMessageConsumer);
                         sql.init();
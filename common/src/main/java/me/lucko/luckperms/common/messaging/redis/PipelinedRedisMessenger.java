@@ -0,0 +1,296 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.common.messaging.redis;
+
+import com.google.common.collect.ImmutableMap;
+
+import me.lucko.luckperms.common.messaging.InstrumentedMessenger;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.ExponentialBackoff;
+
+import net.luckperms.api.messenger.IncomingMessageConsumer;
+import net.luckperms.api.messenger.Messenger;
+import net.luckperms.api.messenger.message.OutgoingMessage;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An implementation of {@link Messenger} using Redis, which publishes messages
+ * in pipelined batches over a single long-lived connection.
+ *
+ * <p>Outgoing messages are added to a queue and published by a dedicated
+ * thread, so callers never block on network I/O. The subscription is also run
+ * on a dedicated thread, which resubscribes with an exponential backoff if the
+ * connection is lost.</p>
+ */
+public class PipelinedRedisMessenger implements InstrumentedMessenger {
+    private static final String CHANNEL = "luckperms:update";
+
+    /** The maximum number of messages to send in a single pipeline */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    /** The maximum number of messages to hold in the queue whilst Redis is unavailable */
+    private static final int MAX_QUEUE_SIZE = 10000;
+
+    private final LuckPermsPlugin plugin;
+    private final IncomingMessageConsumer consumer;
+
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(MAX_QUEUE_SIZE);
+    private final ExponentialBackoff publishBackoff = new ExponentialBackoff(100, 30000, TimeUnit.MILLISECONDS);
+    private final ExponentialBackoff subscribeBackoff = new ExponentialBackoff(100, 30000, TimeUnit.MILLISECONDS);
+
+    private JedisPool jedisPool;
+    private Jedis publisher;
+    private volatile Subscription sub;
+
+    private Thread publisherThread;
+    private Thread subscriberThread;
+    private volatile boolean closed = false;
+
+    // metrics
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong publisherReconnects = new AtomicLong();
+    private final AtomicLong subscriberReconnects = new AtomicLong();
+    private final AtomicLong totalPublishNanos = new AtomicLong();
+    private final AtomicLong publishBatches = new AtomicLong();
+    private volatile long lastPublishNanos = 0;
+
+    public PipelinedRedisMessenger(LuckPermsPlugin plugin, IncomingMessageConsumer consumer) {
+        this.plugin = plugin;
+        this.consumer = consumer;
+    }
+
+    public void init(String address, String password, boolean ssl) {
+        String[] addressSplit = address.split(":");
+        String host = addressSplit[0];
+        int port = addressSplit.length > 1 ? Integer.parseInt(addressSplit[1]) : Protocol.DEFAULT_PORT;
+
+        this.jedisPool = new JedisPool(new JedisPoolConfig(), host, port, Protocol.DEFAULT_TIMEOUT, password, ssl);
+
+        this.publisherThread = new Thread(this::publishLoop, "luckperms-redis-publisher");
+        this.publisherThread.setDaemon(true);
+        this.publisherThread.start();
+
+        this.subscriberThread = new Thread(this::subscribeLoop, "luckperms-redis-subscriber");
+        this.subscriberThread.setDaemon(true);
+        this.subscriberThread.start();
+    }
+
+    @Override
+    public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
+        if (!this.queue.offer(outgoingMessage.asEncodedString())) {
+            this.dropped.incrementAndGet();
+            this.plugin.getLogger().warn("[Messaging] Redis publish queue is full, dropping outgoing message.");
+        }
+    }
+
+    private void publishLoop() {
+        List<String> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            try {
+                String message = this.queue.poll(1, TimeUnit.SECONDS);
+                if (message == null) {
+                    if (this.closed) {
+                        break;
+                    }
+                    continue;
+                }
+                batch.add(message);
+            } catch (InterruptedException e) {
+                // interrupted by #close, drain anything left in the queue before exiting
+                continue;
+            }
+
+            this.queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            publishBatch(batch);
+            batch.clear();
+        }
+        closePublisher();
+    }
+
+    private void publishBatch(List<String> batch) {
+        while (true) {
+            try {
+                if (this.publisher == null) {
+                    this.publisher = this.jedisPool.getResource();
+                }
+
+                long start = System.nanoTime();
+                Pipeline pipeline = this.publisher.pipelined();
+                for (String message : batch) {
+                    pipeline.publish(CHANNEL, message);
+                }
+                pipeline.sync();
+                long duration = System.nanoTime() - start;
+
+                this.lastPublishNanos = duration;
+                this.totalPublishNanos.addAndGet(duration);
+                this.publishBatches.incrementAndGet();
+                this.published.addAndGet(batch.size());
+                this.publishBackoff.reset();
+                return;
+            } catch (Exception e) {
+                closePublisher();
+                if (this.closed) {
+                    this.dropped.addAndGet(batch.size());
+                    this.plugin.getLogger().warn("[Messaging] Unable to publish " + batch.size() + " message(s) to Redis whilst shutting down: " + e.getMessage());
+                    return;
+                }
+
+                this.publisherReconnects.incrementAndGet();
+                long delay = this.publishBackoff.peek();
+                this.plugin.getLogger().warn("[Messaging] Unable to publish to Redis, retrying in " + delay + "ms: " + e.getMessage());
+                try {
+                    this.publishBackoff.sleep();
+                } catch (InterruptedException ie) {
+                    // interrupted by #close, make one final attempt
+                }
+            }
+        }
+    }
+
+    private void closePublisher() {
+        if (this.publisher != null) {
+            try {
+                this.publisher.close();
+            } catch (Exception e) {
+                // ignore
+            }
+            this.publisher = null;
+        }
+    }
+
+    private void subscribeLoop() {
+        boolean first = true;
+        while (!this.closed) {
+            if (!first) {
+                this.subscriberReconnects.incrementAndGet();
+                long delay = this.subscribeBackoff.peek();
+                this.plugin.getLogger().warn("[Messaging] Redis subscription lost, resubscribing in " + delay + "ms.");
+                try {
+                    this.subscribeBackoff.sleep();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            first = false;
+
+            Subscription sub = this.sub = new Subscription(this);
+            try (Jedis jedis = this.jedisPool.getResource()) {
+                // blocks until the subscription is closed
+                jedis.subscribe(sub, CHANNEL);
+            } catch (Exception e) {
+                if (!this.closed) {
+                    this.plugin.getLogger().warn("[Messaging] Redis subscription error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, String> getMeta() {
+        long batches = this.publishBatches.get();
+        double avgNanos = batches == 0 ? 0 : (double) this.totalPublishNanos.get() / batches;
+        Subscription sub = this.sub;
+
+        return ImmutableMap.<String, String>builder()
+                .put("Subscribed", String.valueOf(sub != null && sub.isSubscribed()))
+                .put("Queue Depth", String.valueOf(this.queue.size()))
+                .put("Published", String.valueOf(this.published.get()))
+                .put("Dropped", String.valueOf(this.dropped.get()))
+                .put("Publisher Reconnects", String.valueOf(this.publisherReconnects.get()))
+                .put("Subscriber Reconnects", String.valueOf(this.subscriberReconnects.get()))
+                .put("Last Publish Latency", formatNanos(this.lastPublishNanos))
+                .put("Avg Publish Latency", formatNanos(avgNanos))
+                .build();
+    }
+
+    private static String formatNanos(double nanos) {
+        return String.format("%.2fms", nanos / 1_000_000d);
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+
+        Subscription sub = this.sub;
+        if (sub != null && sub.isSubscribed()) {
+            try {
+                sub.unsubscribe();
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+        this.subscriberThread.interrupt();
+
+        // allow the publisher to flush any queued messages
+        this.publisherThread.interrupt();
+        try {
+            this.publisherThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.jedisPool.destroy();
+    }
+
+    private static class Subscription extends JedisPubSub {
+        private final PipelinedRedisMessenger parent;
+
+        private Subscription(PipelinedRedisMessenger parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            this.parent.subscribeBackoff.reset();
+        }
+
+        @Override
+        public void onMessage(String channel, String msg) {
+            if (!channel.equals(CHANNEL)) {
+                return;
+            }
+            this.parent.consumer.consumeIncomingMessageAsString(msg);
+        }
+    }
+
+}
@@ -36,15 +36,36 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * An implementation of {@link Messenger} using SQL.
+ *
+ * <p>Statements are written using ' as the identifier quote character, and are
+ * passed through {@link #getStatementProcessor()} before being executed. All
+ * timestamps are based on the database clock (read using the portable
+ * {@code CURRENT_TIMESTAMP}), so servers with skewed clocks still agree on
+ * message visibility and lease expiry.</p>
  */
 public abstract class AbstractSqlMessenger implements Messenger {
 
+    /** How long messages remain visible to pollers */
+    private static final long MESSAGE_VISIBLE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /** How long messages are kept before being removed by housekeeping */
+    private static final long MESSAGE_EXPIRY_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    /** The name of the lease which grants the right to perform housekeeping */
+    private static final String HOUSEKEEPING_LEASE = "housekeeping";
+
     private final IncomingMessageConsumer consumer;
     private long lastId = -1;
 
+    /** The difference between the database clock and the local clock, in milliseconds */
+    private volatile long clockOffset = 0;
+
     protected AbstractSqlMessenger(IncomingMessageConsumer consumer) {
         this.consumer = consumer;
     }
@@ -52,10 +73,39 @@ public abstract class AbstractSqlMessenger implements Messenger {
     protected abstract Connection getConnection() throws SQLException;
     protected abstract String getTableName();
 
+    protected String getLeaseTableName() {
+        return getTableName() + "_lease";
+    }
+
+    protected Function<String, String> getStatementProcessor() {
+        return s -> s.replace("'", "`");
+    }
+
+    protected String getCreateTableStatement() {
+        return "CREATE TABLE IF NOT EXISTS '" + getTableName() + "' ('id' INT AUTO_INCREMENT NOT NULL, 'time' TIMESTAMP NOT NULL, 'msg' TEXT NOT NULL, PRIMARY KEY ('id')) DEFAULT CHARSET = utf8mb4";
+    }
+
+    /**
+     * Called after a message has been inserted, using the same connection.
+     *
+     * <p>Implementations can override this to notify other instances that a
+     * new message is available.</p>
+     *
+     * @param c the connection
+     * @throws SQLException if an error occurs
+     */
+    protected void afterMessageInserted(Connection c) throws SQLException {
+
+    }
+
+    private String process(String statement) {
+        return getStatementProcessor().apply(statement);
+    }
+
     public void init() throws SQLException {
         try (Connection c = getConnection()) {
             // init table
-            String createStatement = "CREATE TABLE IF NOT EXISTS `" + getTableName() + "` (`id` INT AUTO_INCREMENT NOT NULL, `time` TIMESTAMP NOT NULL, `msg` TEXT NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4";
+            String createStatement = process(getCreateTableStatement());
             try (Statement s = c.createStatement()) {
                 try {
                     s.execute(createStatement);
@@ -67,10 +117,14 @@ public abstract class AbstractSqlMessenger implements Messenger {
                         throw e;
                     }
                 }
+
+                s.execute(process("CREATE TABLE IF NOT EXISTS '" + getLeaseTableName() + "' ('name' VARCHAR(36) NOT NULL, 'owner' VARCHAR(36) NOT NULL, 'expires' BIGINT NOT NULL, PRIMARY KEY ('name'))"));
             }
 
+            syncClock(c);
+
             // pull last id
-            try (PreparedStatement ps = c.prepareStatement("SELECT MAX(`id`) as `latest` FROM `" + getTableName() + "`")) {
+            try (PreparedStatement ps = c.prepareStatement(process("SELECT MAX('id') as latest FROM '" + getTableName() + "'"))) {
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
                         this.lastId = rs.getLong("latest");
@@ -80,24 +134,60 @@ public abstract class AbstractSqlMessenger implements Messenger {
         }
     }
 
+    /**
+     * Measures the offset between the database clock and the local clock.
+     *
+     * @param c the connection
+     * @throws SQLException if an error occurs
+     */
+    protected void syncClock(Connection c) throws SQLException {
+        long before = System.currentTimeMillis();
+        try (Statement s = c.createStatement()) {
+            try (ResultSet rs = s.executeQuery("SELECT CURRENT_TIMESTAMP")) {
+                if (rs.next()) {
+                    long after = System.currentTimeMillis();
+                    this.clockOffset = rs.getTimestamp(1).getTime() - ((before + after) / 2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the current time according to the database clock.
+     *
+     * @return the database time in milliseconds
+     */
+    protected long databaseTimeMillis() {
+        return System.currentTimeMillis() + this.clockOffset;
+    }
+
     @Override
     public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
         try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("INSERT INTO `" + getTableName() + "` (`time`, `msg`) VALUES(NOW(), ?)")) {
+            try (PreparedStatement ps = c.prepareStatement(process("INSERT INTO '" + getTableName() + "' ('time', 'msg') VALUES(CURRENT_TIMESTAMP, ?)"))) {
                 ps.setString(1, outgoingMessage.asEncodedString());
                 ps.execute();
             }
+            afterMessageInserted(c);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    public void pollMessages() {
+    /**
+     * Polls for new messages, passing any found to the consumer.
+     *
+     * @return true if any messages were received
+     */
+    public boolean pollMessages() {
+        boolean received = false;
         try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("SELECT `id`, `msg` FROM `" + getTableName() + "` WHERE `id` > ? AND (NOW() - `time` < 30)")) {
+            try (PreparedStatement ps = c.prepareStatement(process("SELECT 'id', 'msg' FROM '" + getTableName() + "' WHERE 'id' > ? AND 'time' > ?"))) {
                 ps.setLong(1, this.lastId);
+                ps.setTimestamp(2, new Timestamp(databaseTimeMillis() - MESSAGE_VISIBLE_MILLIS));
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
+                        received = true;
                         long id = rs.getLong("id");
                         this.lastId = Math.max(this.lastId, id);
 
@@ -109,11 +199,57 @@ public abstract class AbstractSqlMessenger implements Messenger {
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return received;
+    }
+
+    /**
+     * Attempts to acquire (or renew) the housekeeping lease for the given owner.
+     *
+     * <p>Only one instance holds the lease at a time. The lease is transferred
+     * to another instance if the current owner fails to renew it before it expires.</p>
+     *
+     * @param owner the id of the instance trying to acquire the lease
+     * @param duration the duration of the lease in milliseconds
+     * @return true if the lease is held by the owner
+     */
+    public boolean tryAcquireHousekeepingLease(String owner, long duration) {
+        try (Connection c = getConnection()) {
+            // re-measure on each attempt, so drift is corrected before the lease is compared
+            syncClock(c);
+            long now = databaseTimeMillis();
+
+            try (PreparedStatement ps = c.prepareStatement(process("UPDATE '" + getLeaseTableName() + "' SET 'owner' = ?, 'expires' = ? WHERE 'name' = ? AND ('owner' = ? OR 'expires' < ?)"))) {
+                ps.setString(1, owner);
+                ps.setLong(2, now + duration);
+                ps.setString(3, HOUSEKEEPING_LEASE);
+                ps.setString(4, owner);
+                ps.setLong(5, now);
+                if (ps.executeUpdate() > 0) {
+                    return true;
+                }
+            }
+
+            // the lease row may not exist yet
+            try (PreparedStatement ps = c.prepareStatement(process("INSERT INTO '" + getLeaseTableName() + "' ('name', 'owner', 'expires') VALUES(?, ?, ?)"))) {
+                ps.setString(1, HOUSEKEEPING_LEASE);
+                ps.setString(2, owner);
+                ps.setLong(3, now + duration);
+                ps.execute();
+                return true;
+            } catch (SQLException e) {
+                // the lease exists and is held by another instance
+                return false;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
     }
 
     public void runHousekeeping() {
         try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("DELETE FROM `" + getTableName() + "` WHERE (NOW() - `time` > 60)")) {
+            try (PreparedStatement ps = c.prepareStatement(process("DELETE FROM '" + getTableName() + "' WHERE 'time' < ?"))) {
+                ps.setTimestamp(1, new Timestamp(databaseTimeMillis() - MESSAGE_EXPIRY_MILLIS));
                 ps.execute();
             }
         } catch (SQLException e) {
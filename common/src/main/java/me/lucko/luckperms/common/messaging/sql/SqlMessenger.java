@@ -25,28 +25,108 @@
 
 package me.lucko.luckperms.common.messaging.sql;
 
+import com.google.common.collect.ImmutableMap;
+
+import me.lucko.luckperms.common.messaging.InstrumentedMessenger;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
 import me.lucko.luckperms.common.storage.implementation.sql.SqlStorage;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.ConnectionFactory;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.file.H2ConnectionFactory;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.HikariConnectionFactory;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.MariaDbConnectionFactory;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.MySqlConnectionFactory;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.PostgreConnectionFactory;
+import me.lucko.luckperms.common.util.ExponentialBackoff;
 
 import net.luckperms.api.messenger.IncomingMessageConsumer;
+import net.luckperms.api.messenger.message.OutgoingMessage;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * An adaptive {@link AbstractSqlMessenger} backed by the plugins {@link SqlStorage}.
+ *
+ * <p>The messages table is polled frequently just after activity, and the poll
+ * interval backs off exponentially whilst idle. When using PostgreSQL, the
+ * poller instead waits on a LISTEN/NOTIFY channel, so messages are received as
+ * soon as they are sent.</p>
+ *
+ * <p>Housekeeping is only performed by the instance which currently holds the
+ * housekeeping lease.</p>
+ */
+public class SqlMessenger extends AbstractSqlMessenger implements InstrumentedMessenger {
+    private static final long MIN_POLL_INTERVAL_MILLIS = 100;
+    private static final long MAX_POLL_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_POLL_INTERVAL_NOTIFY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final long HOUSEKEEPING_INTERVAL_SECONDS = 30;
+    private static final long HOUSEKEEPING_LEASE_MILLIS = TimeUnit.SECONDS.toMillis(HOUSEKEEPING_INTERVAL_SECONDS * 3);
+
+    /**
+     * Gets if the given connection factory is supported by the messenger.
+     *
+     * @param connectionFactory the connection factory
+     * @return true if supported
+     */
+    public static boolean isSupported(ConnectionFactory connectionFactory) {
+        return isRemote(connectionFactory) || connectionFactory instanceof H2ConnectionFactory;
+    }
+
+    /**
+     * Gets if the given connection factory connects to a remote database,
+     * which is shared between servers.
+     *
+     * @param connectionFactory the connection factory
+     * @return true if remote
+     */
+    public static boolean isRemote(ConnectionFactory connectionFactory) {
+        return connectionFactory instanceof MySqlConnectionFactory ||
+                connectionFactory instanceof MariaDbConnectionFactory ||
+                connectionFactory instanceof PostgreConnectionFactory;
+    }
 
-public class SqlMessenger extends AbstractSqlMessenger {
     private final LuckPermsPlugin plugin;
     private final SqlStorage sqlStorage;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final boolean nativeNotify;
+
+    private final ExponentialBackoff pollBackoff;
+    private final Object pollLock = new Object();
+    private Thread pollThread;
+
+    // held out of the pool for as long as we're listening - the pool is grown by one to make up for it
+    private Connection listenConnection;
+    private boolean listenConnectionReserved = false;
+    private Method getNotificationsMethod;
 
-    private SchedulerTask pollTask;
     private SchedulerTask housekeepingTask;
+    private volatile boolean closed = false;
+
+    // metrics
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong notifications = new AtomicLong();
+    private volatile long currentPollInterval = MIN_POLL_INTERVAL_MILLIS;
+    private volatile boolean housekeepingLeader = false;
 
     public SqlMessenger(LuckPermsPlugin plugin, SqlStorage sqlStorage, IncomingMessageConsumer consumer) {
         super(consumer);
         this.plugin = plugin;
         this.sqlStorage = sqlStorage;
+        this.nativeNotify = sqlStorage.getConnectionFactory() instanceof PostgreConnectionFactory;
+        this.pollBackoff = new ExponentialBackoff(MIN_POLL_INTERVAL_MILLIS, this.nativeNotify ? MAX_POLL_INTERVAL_NOTIFY_MILLIS : MAX_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -57,26 +137,157 @@ public class SqlMessenger extends AbstractSqlMessenger {
             throw new RuntimeException(e);
         }
 
-        // schedule poll tasks
+        this.pollThread = new Thread(this::pollLoop, "luckperms-sql-messenger");
+        this.pollThread.setDaemon(true);
+        this.pollThread.start();
+
         SchedulerAdapter scheduler = this.plugin.getBootstrap().getScheduler();
-        this.pollTask = scheduler.asyncRepeating(this::pollMessages, 1, TimeUnit.SECONDS);
-        this.housekeepingTask = scheduler.asyncRepeating(this::runHousekeeping, 30, TimeUnit.SECONDS);
+        this.housekeepingTask = scheduler.asyncRepeating(this::runLeasedHousekeeping, HOUSEKEEPING_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
     @Override
-    public void close() {
-        SchedulerTask task = this.pollTask;
-        if (task != null) {
-            task.cancel();
+    public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
+        super.sendOutgoingMessage(outgoingMessage);
+
+        // replies are likely to follow, so start polling quickly again
+        this.pollBackoff.reset();
+        synchronized (this.pollLock) {
+            this.pollLock.notifyAll();
+        }
+    }
+
+    private void pollLoop() {
+        try {
+            while (!this.closed) {
+                this.polls.incrementAndGet();
+                if (pollMessages()) {
+                    this.pollBackoff.reset();
+                }
+
+                long delay = this.pollBackoff.next();
+                this.currentPollInterval = delay;
+
+                if (this.nativeNotify && awaitNotification(delay)) {
+                    continue;
+                }
+
+                synchronized (this.pollLock) {
+                    if (!this.closed) {
+                        this.pollLock.wait(delay);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        } finally {
+            closeListenConnection();
+        }
+    }
+
+    /**
+     * Waits for a notification on the LISTEN channel.
+     *
+     * <p>The connection used to LISTEN is taken from the pool and held until
+     * the messenger is closed, so the pool is grown by one to compensate.</p>
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @return true if the wait was performed, false if the channel is unavailable
+     */
+    private boolean awaitNotification(long timeout) {
+        try {
+            if (this.listenConnection == null) {
+                ConnectionFactory connectionFactory = this.sqlStorage.getConnectionFactory();
+                if (connectionFactory instanceof HikariConnectionFactory) {
+                    ((HikariConnectionFactory) connectionFactory).reserveConnection();
+                    this.listenConnectionReserved = true;
+                }
+
+                Connection c = getConnection();
+                try (Statement s = c.createStatement()) {
+                    s.execute(getStatementProcessor().apply("LISTEN '" + getTableName() + "'"));
+                }
+
+                // the driver is relocated at runtime, so access PGConnection#getNotifications reflectively
+                Connection unwrapped = c.unwrap(Connection.class);
+                this.getNotificationsMethod = unwrapped.getClass().getMethod("getNotifications", int.class);
+                this.listenConnection = c;
+            }
+
+            Connection unwrapped = this.listenConnection.unwrap(Connection.class);
+            Object received = this.getNotificationsMethod.invoke(unwrapped, (int) timeout);
+            if (received != null && Array.getLength(received) > 0) {
+                this.notifications.incrementAndGet();
+                this.pollBackoff.reset();
+            }
+            return true;
+        } catch (Exception e) {
+            if (!this.closed) {
+                this.plugin.getLogger().warn("[Messaging] Unable to listen for SQL notifications, falling back to polling: " + e);
+            }
+            closeListenConnection();
+            return false;
+        }
+    }
+
+    private void closeListenConnection() {
+        if (this.listenConnection != null) {
+            try {
+                this.listenConnection.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+            this.listenConnection = null;
+        }
+        if (this.listenConnectionReserved) {
+            ((HikariConnectionFactory) this.sqlStorage.getConnectionFactory()).releaseConnection();
+            this.listenConnectionReserved = false;
+        }
+    }
+
+    @Override
+    protected void afterMessageInserted(Connection c) throws SQLException {
+        if (this.nativeNotify) {
+            try (Statement s = c.createStatement()) {
+                s.execute(getStatementProcessor().apply("NOTIFY '" + getTableName() + "'"));
+            }
+        }
+    }
+
+    private void runLeasedHousekeeping() {
+        this.housekeepingLeader = tryAcquireHousekeepingLease(this.instanceId, HOUSEKEEPING_LEASE_MILLIS);
+        if (this.housekeepingLeader) {
+            runHousekeeping();
         }
-        task = this.housekeepingTask;
+    }
+
+    @Override
+    public Map<String, String> getMeta() {
+        return ImmutableMap.<String, String>builder()
+                .put("Native Notify", String.valueOf(this.nativeNotify))
+                .put("Poll Interval", this.currentPollInterval + "ms")
+                .put("Polls", String.valueOf(this.polls.get()))
+                .put("Notifications", String.valueOf(this.notifications.get()))
+                .put("Housekeeping Leader", String.valueOf(this.housekeepingLeader))
+                .build();
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+
+        SchedulerTask task = this.housekeepingTask;
         if (task != null) {
             task.cancel();
         }
-
-        this.pollTask = null;
         this.housekeepingTask = null;
 
+        synchronized (this.pollLock) {
+            this.pollLock.notifyAll();
+        }
+        if (this.pollThread != null) {
+            this.pollThread.interrupt();
+        }
+
         super.close();
     }
 
@@ -89,4 +300,21 @@ public class SqlMessenger extends AbstractSqlMessenger {
     protected String getTableName() {
         return this.sqlStorage.getStatementProcessor().apply("{prefix}messenger");
     }
+
+    @Override
+    protected Function<String, String> getStatementProcessor() {
+        return this.sqlStorage.getConnectionFactory().getStatementProcessor();
+    }
+
+    @Override
+    protected String getCreateTableStatement() {
+        ConnectionFactory connectionFactory = this.sqlStorage.getConnectionFactory();
+        if (connectionFactory instanceof PostgreConnectionFactory) {
+            return "CREATE TABLE IF NOT EXISTS '" + getTableName() + "' ('id' SERIAL NOT NULL, 'time' TIMESTAMP NOT NULL, 'msg' TEXT NOT NULL, PRIMARY KEY ('id'))";
+        }
+        if (connectionFactory instanceof H2ConnectionFactory) {
+            return "CREATE TABLE IF NOT EXISTS '" + getTableName() + "' ('id' INT AUTO_INCREMENT NOT NULL, 'time' TIMESTAMP NOT NULL, 'msg' TEXT NOT NULL, PRIMARY KEY ('id'))";
+        }
+        return super.getCreateTableStatement();
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * An index of the {@link PermissionHolder}s which hold temporary nodes, ordered
+ * by the time at which their next node is due to expire.
+ *
+ * <p>Entries are added by {@link NodeMap} as temporary nodes are added, and are
+ * never removed eagerly. A stale entry (for a node which has since been removed
+ * or replaced) just results in a holder being audited with nothing to do.</p>
+ *
+ * <p>Holders are referenced weakly, so entries for users which have since been
+ * unloaded do not keep them in memory until their nodes expire. Once a holder has
+ * been garbage collected, its entries are purged the next time the queue is used.</p>
+ */
+public class ExpiryQueue {
+
+    /** The pending entries, ordered by expiry time */
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+    /** Entries whose holder has been garbage collected */
+    private final ReferenceQueue<PermissionHolder> collected = new ReferenceQueue<>();
+
+    /**
+     * Schedules the holder to be audited once the given time has passed.
+     *
+     * @param holder the holder
+     * @param expireAt the expiry time, in epoch seconds
+     */
+    public void schedule(PermissionHolder holder, long expireAt) {
+        Entry entry = new Entry(holder, expireAt, this.collected);
+        synchronized (this.queue) {
+            purgeCollected();
+            this.queue.add(entry);
+        }
+    }
+
+    /**
+     * Removes and returns the holders which have an entry that is due at the
+     * given time.
+     *
+     * @param now the current time, in epoch seconds
+     * @return the holders which are due to be audited
+     */
+    public Set<PermissionHolder> pollExpired(long now) {
+        Set<PermissionHolder> holders = Collections.newSetFromMap(new IdentityHashMap<>());
+        synchronized (this.queue) {
+            purgeCollected();
+
+            Entry entry;
+            while ((entry = this.queue.peek()) != null && entry.expireAt <= now) {
+                this.queue.poll();
+
+                PermissionHolder holder = entry.get();
+                if (holder != null) {
+                    holders.add(holder);
+                }
+            }
+        }
+        return holders;
+    }
+
+    // must be called whilst synchronized on the queue
+    private void purgeCollected() {
+        Reference<? extends PermissionHolder> ref = this.collected.poll();
+        if (ref == null) {
+            return;
+        }
+
+        Set<Reference<?>> refs = Collections.newSetFromMap(new IdentityHashMap<>());
+        do {
+            refs.add(ref);
+        } while ((ref = this.collected.poll()) != null);
+        this.queue.removeIf(refs::contains);
+    }
+
+    /**
+     * Gets the number of pending entries.
+     *
+     * @return the size of the queue
+     */
+    public int size() {
+        synchronized (this.queue) {
+            return this.queue.size();
+        }
+    }
+
+    private static final class Entry extends WeakReference<PermissionHolder> implements Comparable<Entry> {
+        private final long expireAt;
+
+        Entry(PermissionHolder holder, long expireAt, ReferenceQueue<PermissionHolder> queue) {
+            super(holder, queue);
+            this.expireAt = expireAt;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(this.expireAt, other.expireAt);
+        }
+    }
+}
@@ -37,6 +37,8 @@ import net.luckperms.api.query.QueryOptions;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -58,6 +60,11 @@ public class Group extends PermissionHolder {
      */
     private final Cache<Optional<String>> displayNameCache = new DisplayNameCache();
 
+    /**
+     * The inheritance nodes and weight of the group when the inheritance graphs were last invalidated
+     */
+    private volatile List<Object> inheritanceState = null;
+
     /**
      * The groups data cache instance
      */
@@ -78,6 +85,17 @@ public class Group extends PermissionHolder {
         // invalidate our caches
         this.weightCache.invalidate();
         this.displayNameCache.invalidate();
+
+        // invalidate the inheritance graphs, but only if the data they depend on has changed
+        List<Object> inheritanceState = Arrays.asList(
+                normalData().immutableInheritance(),
+                transientData().immutableInheritance(),
+                getWeight()
+        );
+        if (!inheritanceState.equals(this.inheritanceState)) {
+            this.inheritanceState = inheritanceState;
+            getPlugin().getInheritanceGraphFactory().invalidate();
+        }
     }
 
     // name getters
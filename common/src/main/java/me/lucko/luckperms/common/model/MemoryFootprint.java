@@ -0,0 +1,145 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import me.lucko.luckperms.common.cacheddata.HolderCachedDataManager;
+import me.lucko.luckperms.common.cacheddata.type.MetaCache;
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+
+import java.util.Comparator;
+
+/**
+ * An estimate of the heap retained by a {@link PermissionHolder}.
+ *
+ * <p>The estimate is calculated from the number of nodes and cached entries
+ * held by the holder, using rough per-entry sizes for a 64-bit JVM. It is
+ * intended for comparing holders and enforcing a budget, not as an exact
+ * measurement.</p>
+ */
+public final class MemoryFootprint {
+
+    /** Orders footprints from largest to smallest */
+    public static final Comparator<MemoryFootprint> LARGEST_FIRST = Comparator.comparingLong(MemoryFootprint::getEstimatedSize).reversed();
+
+    // the holder instance itself, its two node maps and its cached data manager
+    private static final long HOLDER_OVERHEAD = 2048;
+    // a node, its key, contexts and metadata, and its slot in the node map
+    private static final long NODE_SIZE = 256;
+    // a cache for a single query options instance, including its permission calculator
+    private static final long CACHE_OVERHEAD = 1024;
+    // a resolved permission, held by the cache and again by the calculator's processors
+    private static final long PERMISSION_ENTRY_SIZE = 160;
+    // a permission lookup result cached by a calculator
+    private static final long LOOKUP_ENTRY_SIZE = 96;
+    // a resolved meta, prefix or suffix entry
+    private static final long META_ENTRY_SIZE = 128;
+
+    /**
+     * Estimates the footprint of the given holder.
+     *
+     * @param holder the holder
+     * @return the footprint
+     */
+    public static MemoryFootprint estimate(PermissionHolder holder) {
+        int nodes = holder.normalData().immutable().size() + holder.transientData().immutable().size();
+
+        HolderCachedDataManager<?> cachedData = holder.getCachedData();
+        int caches = 0;
+        long cacheSize = 0;
+        for (PermissionCache permissionData : cachedData.getLoadedPermissionData()) {
+            caches++;
+            cacheSize += CACHE_OVERHEAD;
+            cacheSize += permissionData.getPermissionMap().size() * PERMISSION_ENTRY_SIZE;
+            cacheSize += permissionData.getCalculator().getCachedLookupCount() * LOOKUP_ENTRY_SIZE;
+        }
+        for (MetaCache metaData : cachedData.getLoadedMetaData()) {
+            caches++;
+            cacheSize += CACHE_OVERHEAD;
+            cacheSize += metaData.getEntryCount() * META_ENTRY_SIZE;
+        }
+
+        return new MemoryFootprint(holder, nodes, caches, HOLDER_OVERHEAD + nodes * NODE_SIZE + cacheSize);
+    }
+
+    private final PermissionHolder holder;
+    private final int nodeCount;
+    private final int cacheCount;
+    private final long estimatedSize;
+
+    private MemoryFootprint(PermissionHolder holder, int nodeCount, int cacheCount, long estimatedSize) {
+        this.holder = holder;
+        this.nodeCount = nodeCount;
+        this.cacheCount = cacheCount;
+        this.estimatedSize = estimatedSize;
+    }
+
+    public PermissionHolder getHolder() {
+        return this.holder;
+    }
+
+    /**
+     * Gets the number of nodes held by the holder.
+     *
+     * @return the node count
+     */
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    /**
+     * Gets the number of permission and meta caches held for the holder.
+     *
+     * @return the cache count
+     */
+    public int getCacheCount() {
+        return this.cacheCount;
+    }
+
+    /**
+     * Gets the estimated retained size, in bytes.
+     *
+     * @return the estimated size
+     */
+    public long getEstimatedSize() {
+        return this.estimatedSize;
+    }
+
+    /**
+     * Formats a size in bytes for display.
+     *
+     * @param bytes the size in bytes
+     * @return the formatted size
+     */
+    public static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + "B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1fKB", bytes / 1024D);
+        }
+        return String.format("%.1fMB", bytes / (1024D * 1024D));
+    }
+}
@@ -28,8 +28,9 @@ package me.lucko.luckperms.common.model;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
 
-import me.lucko.luckperms.common.cache.Cache;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ContextSetComparator;
 import me.lucko.luckperms.common.node.comparator.NodeComparator;
@@ -48,25 +49,25 @@ import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.Flag;
 import net.luckperms.api.query.QueryOptions;
 
-import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -77,11 +78,12 @@ import java.util.stream.Stream;
  * the value. The keys (context sets) are ordered according to their weight {@link ContextSetComparator}, and the values
  * are ordered according to the priority of the node, according to {@link NodeComparator}.</p>
  *
+ * <p>The contents of the map are held in an immutable {@link Snapshot}. Writers are serialised per map, and publish
+ * a new snapshot once they have finished, so readers always see a consistent state without locking.</p>
+ *
  * <p>Each holder has two of these maps, one for enduring and transient nodes.</p>
  */
 public final class NodeMap {
-    private static final Function<ImmutableContextSet, SortedSet<Node>> VALUE_SET_SUPPLIER = k -> new ConcurrentSkipListSet<>(NodeComparator.reverse());
-    private static final Function<ImmutableContextSet, SortedSet<InheritanceNode>> INHERITANCE_VALUE_SET_SUPPLIER = k -> new ConcurrentSkipListSet<>(NodeComparator.reverse());
 
     /**
      * The holder which this map is for
@@ -89,26 +91,24 @@ public final class NodeMap {
     private final PermissionHolder holder;
 
     /**
-     * The backing data map.
-     *
-     * <p>Nodes are mapped by the result of {@link Node#getContexts()}, and keys are sorted by the weight of the
-     * ContextSet. ContextSets are ordered first by the presence of a server key, then by the presence of a world
-     * key, and finally by the overall size of the set. Nodes are ordered according to the priority rules
-     * defined in {@link NodeComparator}.</p>
+     * The current state of the map.
      */
-    private final SortedMap<ImmutableContextSet, SortedSet<Node>> map = new ConcurrentSkipListMap<>(ContextSetComparator.reverse());
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
 
     /**
-     * Copy of {@link #map} which only contains group nodes
-     * @see InheritanceNode
+     * Lock held by writers while a new snapshot is being built.
      */
-    private final SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = new ConcurrentSkipListMap<>(ContextSetComparator.reverse());
+    private final Object writeLock = new Object();
 
     /**
-     * A cache which holds an immutable copy of the backing map
+     * The earliest time (in epoch seconds) this map has been registered in the
+     * {@link ExpiryQueue} for, or {@link Long#MAX_VALUE} if it hasn't been.
+     *
+     * <p>This is always less than or equal to the expiry time of every temporary
+     * node in the map, so the map only needs to be registered again when a node
+     * which expires sooner is added.</p>
      */
-    private final ImmutableSetMultimapCache<ImmutableContextSet, Node> mapCache = new ImmutableSetMultimapCache<>(this.map);
-    private final ImmutableSetMultimapCache<ImmutableContextSet, InheritanceNode> inheritanceMapCache = new ImmutableSetMultimapCache<>(this.inheritanceMap);
+    private final AtomicLong scheduledExpiry = new AtomicLong(Long.MAX_VALUE);
 
     NodeMap(PermissionHolder holder) {
         this.holder = holder;
@@ -160,7 +160,8 @@ public final class NodeMap {
     }
 
     public void forEach(QueryOptions filter, Consumer<? super Node> consumer) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
+        Snapshot snapshot = this.snapshot;
+        for (Map.Entry<ImmutableContextSet, ImmutableSortedSet<Node>> e : snapshot.map.entrySet()) {
             if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
                 continue;
             }
@@ -168,7 +169,7 @@ public final class NodeMap {
             if (normalNodesExcludeTest(filter, e.getKey())) {
                 if (inheritanceNodesIncludeTest(filter, e.getKey())) {
                     // only copy inheritance nodes.
-                    SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
+                    ImmutableSortedSet<InheritanceNode> inheritanceNodes = snapshot.inheritanceMap.get(e.getKey());
                     if (inheritanceNodes != null) {
                         inheritanceNodes.forEach(consumer);
                     }
@@ -180,7 +181,8 @@ public final class NodeMap {
     }
 
     public void copyTo(Collection<? super Node> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
+        Snapshot snapshot = this.snapshot;
+        for (Map.Entry<ImmutableContextSet, ImmutableSortedSet<Node>> e : snapshot.map.entrySet()) {
             if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
                 continue;
             }
@@ -188,7 +190,7 @@ public final class NodeMap {
             if (normalNodesExcludeTest(filter, e.getKey())) {
                 if (inheritanceNodesIncludeTest(filter, e.getKey())) {
                     // only copy inheritance nodes.
-                    SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
+                    ImmutableSortedSet<InheritanceNode> inheritanceNodes = snapshot.inheritanceMap.get(e.getKey());
                     if (inheritanceNodes != null) {
                         collection.addAll(inheritanceNodes);
                     }
@@ -200,7 +202,8 @@ public final class NodeMap {
     }
 
     public <T extends Node> void copyTo(Collection<? super T> collection, NodeType<T> type, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
+        Snapshot snapshot = this.snapshot;
+        for (Map.Entry<ImmutableContextSet, ImmutableSortedSet<Node>> e : snapshot.map.entrySet()) {
             if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
                 continue;
             }
@@ -209,7 +212,7 @@ public final class NodeMap {
                 if (inheritanceNodesIncludeTest(filter, e.getKey())) {
                     // only copy inheritance nodes.
                     if (type == NodeType.INHERITANCE) {
-                        SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
+                        ImmutableSortedSet<InheritanceNode> inheritanceNodes = snapshot.inheritanceMap.get(e.getKey());
                         if (inheritanceNodes != null) {
                             for (InheritanceNode node : inheritanceNodes) {
                                 collection.add(type.cast(node));
@@ -228,7 +231,7 @@ public final class NodeMap {
     }
 
     public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : this.inheritanceMap.entrySet()) {
+        for (Map.Entry<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>> e : this.snapshot.inheritanceMap.entrySet()) {
             if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
                 continue;
             }
@@ -245,19 +248,11 @@ public final class NodeMap {
      * @return an immutable copy
      */
     public ImmutableSetMultimap<ImmutableContextSet, Node> immutable() {
-        return this.mapCache.get();
+        return this.snapshot.multimap;
     }
 
     public ImmutableSetMultimap<ImmutableContextSet, InheritanceNode> immutableInheritance() {
-        return this.inheritanceMapCache.get();
-    }
-
-    /**
-     * Invalidates the cache
-     */
-    void invalidate() {
-        this.mapCache.invalidate();
-        this.inheritanceMapCache.invalidate();
+        return this.snapshot.inheritanceMultimap;
     }
 
     private Node localise(Node node) {
@@ -269,152 +264,196 @@ public final class NodeMap {
         return node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, new InheritanceOrigin(this.holder.getIdentifier())).build();
     }
 
-    void add(Node node) {
-        ImmutableContextSet context = node.getContexts();
-        Node n = localise(node);
-
-        SortedSet<Node> nodesInContext = this.map.computeIfAbsent(context, VALUE_SET_SUPPLIER);
-        nodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
-        nodesInContext.add(n);
-
-        if (n instanceof InheritanceNode) {
-            SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.computeIfAbsent(context, INHERITANCE_VALUE_SET_SUPPLIER);
-            inheritanceNodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
-            if (n.getValue()) {
-                inheritanceNodesInContext.add((InheritanceNode) n);
-            }
+    private void scheduleExpiry(Node node) {
+        Instant expiry = node.getExpiry();
+        if (expiry != null) {
+            scheduleExpiry(expiry.getEpochSecond());
         }
     }
 
-    void remove(Node node) {
-        ImmutableContextSet context = node.getContexts();
-        SortedSet<Node> nodesInContext = this.map.get(context);
-        if (nodesInContext != null) {
-            nodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
-        }
-
-        if (node instanceof InheritanceNode) {
-            SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
-            if (inheritanceNodesInContext != null) {
-                inheritanceNodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
+    private void scheduleExpiry(long expireAt) {
+        long current;
+        do {
+            current = this.scheduledExpiry.get();
+            if (expireAt >= current) {
+                return;
             }
-        }
+        } while (!this.scheduledExpiry.compareAndSet(current, expireAt));
+
+        this.holder.getPlugin().getExpiryQueue().schedule(this.holder, expireAt);
     }
 
-    private void removeExact(Node node) {
-        ImmutableContextSet context = node.getContexts();
-        SortedSet<Node> nodesInContext = this.map.get(context);
-        if (nodesInContext != null) {
-            nodesInContext.remove(node);
+    void add(Node node) {
+        Node n = localise(node);
+        scheduleExpiry(n);
+
+        synchronized (this.writeLock) {
+            Editor editor = new Editor(this.snapshot);
+            editor.add(n);
+            this.snapshot = editor.build();
         }
+    }
 
-        if (node instanceof InheritanceNode && node.getValue()) {
-            SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
-            if (inheritanceNodesInContext != null) {
-                inheritanceNodesInContext.remove(node);
-            }
+    void remove(Node node) {
+        synchronized (this.writeLock) {
+            Editor editor = new Editor(this.snapshot);
+            editor.remove(node);
+            this.snapshot = editor.build();
         }
     }
 
     void replace(Node node, Node previous) {
-        removeExact(previous);
-        add(node);
+        Node n = localise(node);
+        scheduleExpiry(n);
+
+        synchronized (this.writeLock) {
+            Editor editor = new Editor(this.snapshot);
+            editor.removeExact(previous);
+            editor.add(n);
+            this.snapshot = editor.build();
+        }
     }
 
     void clear() {
-        this.map.clear();
-        this.inheritanceMap.clear();
+        synchronized (this.writeLock) {
+            this.snapshot = Snapshot.EMPTY;
+        }
     }
 
     void clear(ContextSet contextSet) {
         ImmutableContextSet context = contextSet.immutableCopy();
-        this.map.remove(context);
-        this.inheritanceMap.remove(context);
+        synchronized (this.writeLock) {
+            Editor editor = new Editor(this.snapshot);
+            editor.clear(context);
+            this.snapshot = editor.build();
+        }
     }
 
     void setContent(Iterable<? extends Node> set) {
-        this.map.clear();
-        this.inheritanceMap.clear();
-        mergeContent(set);
+        List<Node> nodes = new ArrayList<>();
+        for (Node n : set) {
+            nodes.add(localise(n));
+        }
+        setContent(nodes, true);
     }
 
     void setContent(Stream<? extends Node> stream) {
-        this.map.clear();
-        this.inheritanceMap.clear();
-        mergeContent(stream);
+        List<Node> nodes = new ArrayList<>();
+        stream.forEach(n -> nodes.add(localise(n)));
+        setContent(nodes, true);
     }
 
     void mergeContent(Iterable<? extends Node> set) {
+        List<Node> nodes = new ArrayList<>();
         for (Node n : set) {
-            add(n);
+            nodes.add(localise(n));
         }
+        setContent(nodes, false);
     }
 
     void mergeContent(Stream<? extends Node> stream) {
-        stream.forEach(this::add);
+        List<Node> nodes = new ArrayList<>();
+        stream.forEach(n -> nodes.add(localise(n)));
+        setContent(nodes, false);
     }
 
-    boolean removeIf(Predicate<? super Node> predicate) {
-        boolean success = false;
-        for (SortedSet<Node> valueSet : this.map.values()) {
-            if (valueSet.removeIf(predicate)) {
-                success = true;
+    private void setContent(List<Node> nodes, boolean replace) {
+        for (Node n : nodes) {
+            scheduleExpiry(n);
+        }
+
+        synchronized (this.writeLock) {
+            Editor editor = new Editor(replace ? Snapshot.EMPTY : this.snapshot);
+            for (Node n : nodes) {
+                editor.add(n);
             }
+            this.snapshot = editor.build();
         }
-        for (SortedSet<InheritanceNode> valueSet : this.inheritanceMap.values()) {
-            valueSet.removeIf(predicate);
+    }
+
+    boolean removeIf(Predicate<? super Node> predicate) {
+        synchronized (this.writeLock) {
+            Editor editor = new Editor(this.snapshot);
+            boolean success = false;
+            for (ImmutableContextSet context : this.snapshot.map.keySet()) {
+                if (editor.removeIf(context, predicate)) {
+                    success = true;
+                }
+            }
+            this.snapshot = editor.build();
+            return success;
         }
-        return success;
     }
 
     boolean removeIf(ContextSet contextSet, Predicate<? super Node> predicate) {
         ImmutableContextSet context = contextSet.immutableCopy();
-
-        boolean success = false;
-
-        SortedSet<Node> nodesInContext = this.map.get(context);
-        if (nodesInContext != null) {
-            success = nodesInContext.removeIf(predicate);
-        }
-
-        SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
-        if (inheritanceNodesInContext != null) {
-            inheritanceNodesInContext.removeIf(predicate);
+        synchronized (this.writeLock) {
+            Editor editor = new Editor(this.snapshot);
+            boolean success = editor.removeIf(context, predicate);
+            this.snapshot = editor.build();
+            return success;
         }
-
-        return success;
     }
 
     boolean auditTemporaryNodes(@Nullable Set<? super Node> removed) {
         boolean work = false;
 
-        for (SortedSet<Node> valueSet : this.map.values()) {
-            Iterator<Node> it = valueSet.iterator();
-            while (it.hasNext()) {
-                Node entry = it.next();
-                if (!entry.hasExpired()) {
-                    continue;
-                }
+        synchronized (this.writeLock) {
+            // reset before walking the map, any temporary nodes which remain
+            // are registered again below
+            this.scheduledExpiry.set(Long.MAX_VALUE);
 
-                // remove
-                if (removed != null) {
-                    removed.add(entry);
-                }
-                if (entry instanceof InheritanceNode && entry.getValue()) {
-                    SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(entry.getContexts());
-                    if (inheritanceNodesInContext != null) {
-                        inheritanceNodesInContext.remove(entry);
+            Instant now = Instant.now();
+            long nextExpiry = Long.MAX_VALUE;
+
+            Editor editor = new Editor(this.snapshot);
+            for (ImmutableSortedSet<Node> valueSet : this.snapshot.map.values()) {
+                for (Node entry : valueSet) {
+                    Instant expiry = entry.getExpiry();
+                    if (expiry == null) {
+                        continue;
                     }
+                    if (!expiry.isBefore(now)) {
+                        nextExpiry = Math.min(nextExpiry, expiry.getEpochSecond());
+                        continue;
+                    }
+
+                    // remove
+                    if (removed != null) {
+                        removed.add(entry);
+                    }
+                    editor.removeExact(entry);
+                    work = true;
                 }
-                it.remove();
-                work = true;
+            }
+
+            if (work) {
+                this.snapshot = editor.build();
+            }
+            if (nextExpiry != Long.MAX_VALUE) {
+                scheduleExpiry(nextExpiry);
             }
         }
 
         return work;
     }
 
-    private static final class ImmutableSetMultimapCache<K, V> extends Cache<ImmutableSetMultimap<K, V>> {
+    /**
+     * An immutable state of a {@link NodeMap}.
+     *
+     * <p>Nodes are mapped by the result of {@link Node#getContexts()}, and keys are sorted by the weight of the
+     * ContextSet. ContextSets are ordered first by the presence of a server key, then by the presence of a world
+     * key, and finally by the overall size of the set. Nodes are ordered according to the priority rules
+     * defined in {@link NodeComparator}.</p>
+     *
+     * <p>Empty value sets are never stored.</p>
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(
+                ImmutableSortedMap.<ImmutableContextSet, ImmutableSortedSet<Node>>orderedBy(ContextSetComparator.reverse()).build(),
+                ImmutableSortedMap.<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>>orderedBy(ContextSetComparator.reverse()).build()
+        );
+
         @SuppressWarnings("rawtypes")
         private static final Constructor<ImmutableSetMultimap> IMMUTABLE_SET_MULTIMAP_CONSTRUCTOR;
         static {
@@ -426,33 +465,158 @@ public final class NodeMap {
             }
         }
 
-        private final Map<K, ? extends Collection<V>> handle;
+        /** All nodes in the map */
+        private final ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<Node>> map;
 
-        private ImmutableSetMultimapCache(Map<K, ? extends Collection<V>> handle) {
-            this.handle = handle;
+        /** Copy of {@link #map} which only contains group nodes */
+        private final ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>> inheritanceMap;
+
+        /** Multimap views of the maps above, sharing the same value sets */
+        private final ImmutableSetMultimap<ImmutableContextSet, Node> multimap;
+        private final ImmutableSetMultimap<ImmutableContextSet, InheritanceNode> inheritanceMultimap;
+
+        Snapshot(ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<Node>> map, ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>> inheritanceMap) {
+            this.map = map;
+            this.inheritanceMap = inheritanceMap;
+            this.multimap = asMultimap(map);
+            this.inheritanceMultimap = asMultimap(inheritanceMap);
         }
 
-        @Override
-        protected @NonNull ImmutableSetMultimap<K, V> supply() {
-            ImmutableMap.Builder<K, ImmutableSet<V>> builder = ImmutableMap.builder();
+        private static <K, V> ImmutableSetMultimap<K, V> asMultimap(ImmutableMap<K, ? extends ImmutableSet<V>> map) {
             int size = 0;
-
-            for (Map.Entry<K, ? extends Collection<V>> entry : this.handle.entrySet()) {
-                K key = entry.getKey();
-                ImmutableSet<V> values = ImmutableSet.copyOf(entry.getValue());
-                if (!values.isEmpty()) {
-                    builder.put(key, values);
-                    size += values.size();
-                }
+            for (ImmutableSet<V> values : map.values()) {
+                size += values.size();
             }
 
             try {
                 //noinspection unchecked
-                return IMMUTABLE_SET_MULTIMAP_CONSTRUCTOR.newInstance(builder.build(), size, null);
+                return IMMUTABLE_SET_MULTIMAP_CONSTRUCTOR.newInstance(map, size, null);
             } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
                 throw new RuntimeException(e);
             }
         }
     }
 
+    /**
+     * Builds a new {@link Snapshot} from an existing one.
+     *
+     * <p>Value sets are only copied once they are modified, so sets for contexts
+     * which were not touched are shared with the previous snapshot.</p>
+     */
+    private static final class Editor {
+        private final SortedMap<ImmutableContextSet, SortedSet<Node>> map;
+        private final SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap;
+        private boolean modified = false;
+        private final Snapshot base;
+
+        Editor(Snapshot base) {
+            this.base = base;
+            this.map = new TreeMap<>(base.map);
+            this.inheritanceMap = new TreeMap<>(base.inheritanceMap);
+        }
+
+        private static <T extends Node> SortedSet<T> mutable(SortedMap<ImmutableContextSet, SortedSet<T>> map, ImmutableContextSet context) {
+            SortedSet<T> set = map.get(context);
+            if (set instanceof TreeSet) {
+                return set;
+            }
+
+            SortedSet<T> copy = new TreeSet<>(NodeComparator.reverse());
+            if (set != null) {
+                copy.addAll(set);
+            }
+            map.put(context, copy);
+            return copy;
+        }
+
+        void add(Node n) {
+            ImmutableContextSet context = n.getContexts();
+
+            SortedSet<Node> nodesInContext = mutable(this.map, context);
+            nodesInContext.removeIf(e -> e.equals(n, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
+            nodesInContext.add(n);
+
+            if (n instanceof InheritanceNode) {
+                SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
+                if (inheritanceNodesInContext != null || n.getValue()) {
+                    inheritanceNodesInContext = mutable(this.inheritanceMap, context);
+                    inheritanceNodesInContext.removeIf(e -> e.equals(n, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
+                    if (n.getValue()) {
+                        inheritanceNodesInContext.add((InheritanceNode) n);
+                    }
+                }
+            }
+
+            this.modified = true;
+        }
+
+        void remove(Node node) {
+            ImmutableContextSet context = node.getContexts();
+            removeIf(context, e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
+        }
+
+        void removeExact(Node node) {
+            ImmutableContextSet context = node.getContexts();
+            SortedSet<Node> nodesInContext = this.map.get(context);
+            if (nodesInContext != null && nodesInContext.contains(node)) {
+                mutable(this.map, context).remove(node);
+                this.modified = true;
+            }
+
+            if (node instanceof InheritanceNode && node.getValue()) {
+                SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
+                if (inheritanceNodesInContext != null && inheritanceNodesInContext.contains(node)) {
+                    mutable(this.inheritanceMap, context).remove(node);
+                    this.modified = true;
+                }
+            }
+        }
+
+        void clear(ImmutableContextSet context) {
+            if (this.map.remove(context) != null) {
+                this.modified = true;
+            }
+            if (this.inheritanceMap.remove(context) != null) {
+                this.modified = true;
+            }
+        }
+
+        boolean removeIf(ImmutableContextSet context, Predicate<? super Node> predicate) {
+            boolean success = false;
+
+            SortedSet<Node> nodesInContext = this.map.get(context);
+            if (nodesInContext != null && nodesInContext.stream().anyMatch(predicate)) {
+                success = mutable(this.map, context).removeIf(predicate);
+                this.modified = true;
+            }
+
+            SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
+            if (inheritanceNodesInContext != null && inheritanceNodesInContext.stream().anyMatch(predicate)) {
+                mutable(this.inheritanceMap, context).removeIf(predicate);
+                this.modified = true;
+            }
+
+            return success;
+        }
+
+        Snapshot build() {
+            if (!this.modified) {
+                return this.base;
+            }
+            return new Snapshot(freeze(this.map), freeze(this.inheritanceMap));
+        }
+
+        private static <T extends Node> ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<T>> freeze(SortedMap<ImmutableContextSet, SortedSet<T>> map) {
+            ImmutableSortedMap.Builder<ImmutableContextSet, ImmutableSortedSet<T>> builder = ImmutableSortedMap.orderedBy(ContextSetComparator.reverse());
+            for (Map.Entry<ImmutableContextSet, SortedSet<T>> e : map.entrySet()) {
+                SortedSet<T> values = e.getValue();
+                if (values.isEmpty()) {
+                    continue;
+                }
+                builder.put(e.getKey(), values instanceof ImmutableSortedSet ? (ImmutableSortedSet<T>) values : ImmutableSortedSet.copyOfSorted(values));
+            }
+            return builder.build();
+        }
+    }
+
 }
@@ -236,9 +236,6 @@ public abstract class PermissionHolder {
     public abstract HolderType getType();
 
     protected void invalidateCache() {
-        this.normalNodes.invalidate();
-        this.transientNodes.invalidate();
-
         getCachedData().invalidate();
         getPlugin().getEventDispatcher().dispatchDataRecalculate(this);
     }
@@ -263,6 +260,15 @@ public abstract class PermissionHolder {
         invalidateCache();
     }
 
+    public void applyNodeChanges(DataType type, Iterable<? extends Node> removed, Iterable<? extends Node> added) {
+        NodeMap data = getData(type);
+        for (Node node : removed) {
+            data.remove(node);
+        }
+        data.mergeContent(added);
+        invalidateCache();
+    }
+
     private List<DataType> queryOrder(QueryOptions queryOptions) {
         Comparator<DataType> comparator = queryOptions.option(DataQueryOrderFunction.KEY)
                 .map(func -> func.getOrderComparator(getIdentifier()))
@@ -417,8 +423,8 @@ public abstract class PermissionHolder {
     }
 
     public MetaAccumulator accumulateMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
-        InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
-        for (PermissionHolder holder : graph.traverse(this)) {
+        List<PermissionHolder> traversal = resolveTraversal(queryOptions);
+        for (PermissionHolder holder : traversal) {
             // accumulate nodes
             for (DataType dataType : holder.queryOrder(queryOptions)) {
                 holder.getData(dataType).forEach(queryOptions, node -> {
@@ -435,14 +441,68 @@ public abstract class PermissionHolder {
             }
         }
 
+        completeMeta(accumulator, queryOptions, traversal);
+        return accumulator;
+    }
+
+    /**
+     * Resolves both the permissions and the meta of this holder, using a single
+     * traversal of the inheritance graph.
+     *
+     * <p>The results are the same as those of {@link #exportPermissions(QueryOptions, boolean, boolean)}
+     * and {@link #accumulateMeta(MetaAccumulator, QueryOptions)}.</p>
+     *
+     * @param queryOptions the query options
+     * @param accumulator the accumulator to add resolved meta to
+     * @param convertToLowercase if permissions should be converted to lowercase
+     * @param resolveShorthand if shorthand permissions should be resolved
+     * @return the resolved permissions
+     */
+    public Map<String, Boolean> resolvePermissionsAndMeta(QueryOptions queryOptions, MetaAccumulator accumulator, boolean convertToLowercase, boolean resolveShorthand) {
+        boolean resolveInheritance = queryOptions.flag(Flag.RESOLVE_INHERITANCE);
+
+        List<Node> permissions = new ArrayList<>();
+        List<PermissionHolder> traversal = resolveTraversal(queryOptions);
+        for (PermissionHolder holder : traversal) {
+            // meta is always inherited, permissions only if the flag is set
+            boolean includePermissions = resolveInheritance || holder == this;
+
+            for (DataType dataType : holder.queryOrder(queryOptions)) {
+                holder.getData(dataType).forEach(queryOptions, node -> {
+                    if (includePermissions) {
+                        permissions.add(node);
+                    }
+                    if (node.getValue() && NodeType.META_OR_CHAT_META.matches(node)) {
+                        accumulator.accumulateNode(node);
+                    }
+                });
+            }
+
+            OptionalInt w = holder.getWeight();
+            if (w.isPresent()) {
+                accumulator.accumulateWeight(w.getAsInt());
+            }
+        }
+
+        completeMeta(accumulator, queryOptions, traversal);
+        return processExportedPermissions(permissions, convertToLowercase, resolveShorthand);
+    }
+
+    private List<PermissionHolder> resolveTraversal(QueryOptions queryOptions) {
+        InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
+        List<PermissionHolder> traversal = new ArrayList<>();
+        Iterables.addAll(traversal, graph.traverse(this));
+        return traversal;
+    }
+
+    private void completeMeta(MetaAccumulator accumulator, QueryOptions queryOptions, List<PermissionHolder> traversal) {
         // accumulate primary group
         if (this instanceof User) {
-            String primaryGroup = ((User) this).getPrimaryGroup().calculateValue(queryOptions);
+            String primaryGroup = ((User) this).getPrimaryGroup().calculateValue(queryOptions, traversal);
             accumulator.setPrimaryGroup(primaryGroup);
         }
 
         accumulator.complete();
-        return accumulator;
     }
 
     /**
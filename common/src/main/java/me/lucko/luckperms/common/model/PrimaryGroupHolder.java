@@ -31,7 +31,9 @@ import me.lucko.luckperms.common.inheritance.InheritanceGraph;
 import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 
+import java.util.Comparator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -49,6 +51,21 @@ public interface PrimaryGroupHolder {
      */
     String calculateValue(QueryOptions queryOptions);
 
+    /**
+     * Gets the name of the primary group, or null.
+     *
+     * <p>Implementations may use the given traversal of the user's inheritance
+     * graph instead of performing their own.</p>
+     *
+     * @param queryOptions the query options to lookup with
+     * @param traversal a traversal of the user's inheritance graph in the same query options,
+     *                  performed using the configured algorithm
+     * @return the name of the primary group, or null.
+     */
+    default String calculateValue(QueryOptions queryOptions, List<PermissionHolder> traversal) {
+        return calculateValue(queryOptions);
+    }
+
     /**
      * Gets the primary group which is stored against the user's data.
      *
@@ -118,6 +135,22 @@ public interface PrimaryGroupHolder {
             // fallback to stored
             return super.calculateValue(queryOptions);
         }
+
+        @Override
+        public String calculateValue(QueryOptions queryOptions, List<PermissionHolder> traversal) {
+            // find the group that would come first if the traversal was sorted.
+            // the sort is stable, so on ties the earliest group in the traversal wins
+            Comparator<? super PermissionHolder> comparator = this.user.getInheritanceComparator();
+            Group best = null;
+            for (PermissionHolder holder : traversal) {
+                if (holder instanceof Group && (best == null || comparator.compare(holder, best) < 0)) {
+                    best = (Group) holder;
+                }
+            }
+
+            // fallback to stored
+            return best != null ? best.getName() : super.calculateValue(queryOptions);
+        }
     }
 
     class ParentsByWeight extends Stored {
@@ -59,6 +59,28 @@ public abstract class AbstractGroupManager<T extends Group> extends AbstractMana
         return null;
     }
 
+    @Override
+    public T getOrMake(String id) {
+        T group = getIfLoaded(id);
+        if (group != null) {
+            return group;
+        }
+
+        // a newly loaded group may be the target of existing inheritance nodes
+        group = super.getOrMake(id);
+        group.getPlugin().getInheritanceGraphFactory().invalidate();
+        return group;
+    }
+
+    @Override
+    public void unload(String id) {
+        T group = getIfLoaded(id);
+        super.unload(id);
+        if (group != null) {
+            group.getPlugin().getInheritanceGraphFactory().invalidate();
+        }
+    }
+
     @Override
     protected String sanitizeIdentifier(String s) {
         return s.toLowerCase();
@@ -26,16 +26,32 @@
 package me.lucko.luckperms.common.model.manager.user;
 
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.model.MemoryFootprint;
+import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.ExpiringSet;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
  * The instance responsible for unloading users which are no longer needed.
+ *
+ * <p>Users are normally unloaded once they have been offline for the configured timeout.
+ * If a {@link ConfigKeys#USER_MEMORY_BUDGET memory budget} is set and the estimated
+ * footprint of loaded users exceeds it, the housekeeper will also drop cached data for
+ * inactive contexts, and then unload offline users early, largest first.</p>
  */
 public class UserHousekeeper implements Runnable {
+
+    /** How often cached data for inactive contexts is dropped whilst the budget can't be met */
+    private static final long OVER_BUDGET_INVALIDATE_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    /** How often a warning is logged whilst the budget can't be met */
+    private static final long OVER_BUDGET_WARNING_INTERVAL = TimeUnit.MINUTES.toMillis(30);
+
     private final LuckPermsPlugin plugin;
     private final UserManager<?> userManager;
 
@@ -45,6 +61,11 @@ public class UserHousekeeper implements Runnable {
     // contains the uuids of users who have recently been retrieved from the API
     private final ExpiringSet<UUID> recentlyUsedApi;
 
+    // if the budget couldn't be met on the last run, and when we last acted on / warned about it
+    private boolean overBudget = false;
+    private long lastInactiveInvalidation = 0;
+    private long lastOverBudgetWarning = 0;
+
     public UserHousekeeper(LuckPermsPlugin plugin, UserManager<?> userManager, TimeoutSettings timeoutSettings) {
         this.plugin = plugin;
         this.userManager = userManager;
@@ -70,6 +91,86 @@ public class UserHousekeeper implements Runnable {
         for (UUID entry : this.userManager.getAll().keySet()) {
             cleanup(entry);
         }
+
+        long budget = this.plugin.getConfiguration().get(ConfigKeys.USER_MEMORY_BUDGET);
+        if (budget > 0) {
+            enforceBudget(budget);
+        }
+    }
+
+    private List<MemoryFootprint> estimateFootprints() {
+        List<MemoryFootprint> footprints = new ArrayList<>();
+        for (User user : this.userManager.getAll().values()) {
+            footprints.add(MemoryFootprint.estimate(user));
+        }
+        return footprints;
+    }
+
+    private static long totalSize(List<MemoryFootprint> footprints) {
+        long total = 0;
+        for (MemoryFootprint footprint : footprints) {
+            total += footprint.getEstimatedSize();
+        }
+        return total;
+    }
+
+    private void enforceBudget(long budget) {
+        List<MemoryFootprint> footprints = estimateFootprints();
+        long total = totalSize(footprints);
+        if (total <= budget) {
+            this.overBudget = false;
+            return;
+        }
+
+        // first, drop cached data held for contexts the users are no longer in.
+        // if the budget couldn't be met last time, don't keep wiping it on every run
+        long now = System.currentTimeMillis();
+        if (!this.overBudget || now - this.lastInactiveInvalidation >= OVER_BUDGET_INVALIDATE_INTERVAL) {
+            this.lastInactiveInvalidation = now;
+            for (MemoryFootprint footprint : footprints) {
+                ((User) footprint.getHolder()).getCachedData().invalidateInactive();
+            }
+
+            footprints = estimateFootprints();
+            total = totalSize(footprints);
+            if (total <= budget) {
+                this.overBudget = false;
+                return;
+            }
+        }
+
+        // then unload offline users, largest first, until we're back within the budget.
+        // users who have recently tried to connect are kept, as they may be mid-login,
+        // and so are users recently retrieved via the API, as they may still be in use
+        footprints.sort(MemoryFootprint.LARGEST_FIRST);
+        int unloaded = 0;
+        for (MemoryFootprint footprint : footprints) {
+            if (total <= budget) {
+                break;
+            }
+
+            UUID uuid = ((User) footprint.getHolder()).getUniqueId();
+            if (this.recentlyUsed.contains(uuid) || this.recentlyUsedApi.contains(uuid) || this.plugin.getBootstrap().isPlayerOnline(uuid)) {
+                continue;
+            }
+
+            this.userManager.unload(uuid);
+            total -= footprint.getEstimatedSize();
+            unloaded++;
+        }
+
+        this.overBudget = total > budget;
+        if (this.overBudget && now - this.lastOverBudgetWarning >= OVER_BUDGET_WARNING_INTERVAL) {
+            this.lastOverBudgetWarning = now;
+            this.plugin.getLogger().warn("Loaded user data (" + MemoryFootprint.formatSize(total) + ") exceeds the configured memory budget of " +
+                    MemoryFootprint.formatSize(budget) + ", but the remaining users are online or in use and can't be unloaded. " +
+                    "Consider increasing 'user-memory-budget'.");
+        }
+
+        if (this.plugin.getConfiguration().get(ConfigKeys.DEBUG_LOGINS)) {
+            this.plugin.getLogger().info("User Housekeeper: unloaded " + unloaded + " users to stay within the memory budget " +
+                    "(now using " + MemoryFootprint.formatSize(total) + " of " + MemoryFootprint.formatSize(budget) + ")");
+        }
     }
 
     public void cleanup(UUID uuid) {
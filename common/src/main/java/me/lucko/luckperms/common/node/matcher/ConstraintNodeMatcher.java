@@ -50,7 +50,7 @@ public abstract class ConstraintNodeMatcher<T extends Node> implements NodeMatch
     public abstract @Nullable T filterConstraintMatch(@NonNull Node node);
 
     public @Nullable T match(Node node) {
-        return getConstraint().eval(node.getKey()) ? filterConstraintMatch(node) : null;
+        return getConstraint().evalLowerCase(node.getKey().toLowerCase()) ? filterConstraintMatch(node) : null;
     }
 
     @Override
@@ -43,12 +43,15 @@ import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
 import me.lucko.luckperms.common.messaging.MessagingFactory;
+import me.lucko.luckperms.common.model.ExpiryQueue;
 import me.lucko.luckperms.common.plugin.logging.PluginLogger;
+import me.lucko.luckperms.common.plugin.util.StartupTimer;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.storage.StorageFactory;
 import me.lucko.luckperms.common.storage.StorageType;
 import me.lucko.luckperms.common.storage.implementation.file.watcher.FileWatcher;
+import me.lucko.luckperms.common.tasks.InitialLoadTask;
 import me.lucko.luckperms.common.tasks.SyncTask;
 import me.lucko.luckperms.common.treeview.PermissionRegistry;
 import me.lucko.luckperms.common.verbose.VerboseHandler;
@@ -65,11 +68,13 @@ import java.time.Month;
 import java.util.EnumSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
 
     // init during load
+    private StartupTimer startupTimer;
     private DependencyManager dependencyManager;
 
     // init during enable
@@ -84,6 +89,7 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
     private InternalMessagingService messagingService = null;
     private SyncTask.Buffer syncTaskBuffer;
     private InheritanceGraphFactory inheritanceGraphFactory;
+    private ExpiryQueue expiryQueue;
     private CalculatorFactory calculatorFactory;
     private LuckPermsApiProvider apiProvider;
     private EventDispatcher eventDispatcher;
@@ -93,12 +99,16 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
      * Performs the initial actions to load the plugin
      */
     public final void load() {
+        this.startupTimer = new StartupTimer();
+
         // load dependencies
+        this.startupTimer.start("dependencies");
         this.dependencyManager = new DependencyManager(this);
         this.dependencyManager.loadDependencies(getGlobalDependencies());
 
         // load the sender factory instance
         setupSenderFactory();
+        this.startupTimer.end();
     }
 
     public final void enable() {
@@ -112,21 +122,26 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
 
         // load configuration
         getLogger().info("Loading configuration...");
+        this.startupTimer.start("configuration");
         this.configuration = new LuckPermsConfiguration(this, provideConfigurationAdapter());
 
+        // now the configuration is loaded, we can create a storage factory and start loading
+        // the storage dependencies in the background
+        StorageFactory storageFactory = new StorageFactory(this);
+        Set<StorageType> storageTypes = storageFactory.getRequiredTypes();
+        CompletableFuture<Void> storageDependencies = this.startupTimer.track("storage dependencies",
+                this.dependencyManager.loadStorageDependenciesAsync(storageTypes));
+
         // load locale
+        this.startupTimer.start("locale");
         this.localeManager = new LocaleManager();
         this.localeManager.tryLoad(this, getBootstrap().getConfigDirectory().resolve("lang.yml"));
 
         // setup a bytebin instance
         this.bytebin = new BytebinClient(new OkHttpClient(), getConfiguration().get(ConfigKeys.BYTEBIN_URL), "luckperms");
 
-        // now the configuration is loaded, we can create a storage factory and load initial dependencies
-        StorageFactory storageFactory = new StorageFactory(this);
-        Set<StorageType> storageTypes = storageFactory.getRequiredTypes();
-        this.dependencyManager.loadStorageDependencies(storageTypes);
-
         // register listeners
+        this.startupTimer.start("listeners");
         registerPlatformListeners();
 
         // initialise the storage
@@ -142,8 +157,14 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
             }
         }
 
+        // wait for the storage dependencies to finish loading
+        this.startupTimer.start("storage dependencies (waiting)");
+        storageDependencies.join();
+
         // initialise storage
+        this.startupTimer.start("storage");
         this.storage = storageFactory.getInstance();
+        this.startupTimer.start("messaging");
         this.messagingService = provideMessagingFactory().getInstance();
 
         // setup the update task buffer
@@ -154,7 +175,9 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
 
         // load internal managers
         getLogger().info("Loading internal permission managers...");
+        this.startupTimer.start("managers");
         this.inheritanceGraphFactory = new InheritanceGraphFactory(this);
+        this.expiryQueue = new ExpiryQueue();
 
         // setup user/group/track manager
         setupManagers();
@@ -167,9 +190,11 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         getContextManager().registerCalculator(new LPStaticContextsCalculator(getConfiguration()));
 
         // setup platform hooks
+        this.startupTimer.start("platform hooks");
         setupPlatformHooks();
 
         // register with the LP API
+        this.startupTimer.start("api & extensions");
         this.apiProvider = new LuckPermsApiProvider(this);
         this.eventDispatcher = new EventDispatcher(provideEventBus(this.apiProvider));
         ApiRegistrationUtil.registerProvider(this.apiProvider);
@@ -185,22 +210,30 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
             getBootstrap().getScheduler().asyncRepeating(() -> this.syncTaskBuffer.request(), mins, TimeUnit.MINUTES);
         }
 
-        // run an update instantly.
+        // perform the initial data load. non-essential data continues loading in the background
         getLogger().info("Performing initial data load...");
+        this.startupTimer.start("initial data load");
         try {
-            new SyncTask(this).run();
+            new InitialLoadTask(this).run().exceptionally(e -> {
+                getLogger().warn("Exception occurred whilst loading data in the background");
+                e.printStackTrace();
+                return null;
+            });
         } catch (Exception e) {
             e.printStackTrace();
         }
 
         // init housekeeping tasks
+        this.startupTimer.start("final setup");
         registerHousekeepingTasks();
 
         // perform any platform-specific final setup tasks
         performFinalSetup();
+        this.startupTimer.end();
 
         Duration timeTaken = Duration.between(getBootstrap().getStartupTime(), Instant.now());
         getLogger().info("Successfully enabled. (took " + timeTaken.toMillis() + "ms)");
+        getLogger().info("Startup timings: " + this.startupTimer.summarise());
     }
 
     public final void disable() {
@@ -344,6 +377,11 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         return this.inheritanceGraphFactory;
     }
 
+    @Override
+    public ExpiryQueue getExpiryQueue() {
+        return this.expiryQueue;
+    }
+
     @Override
     public CalculatorFactory getCalculatorFactory() {
         return this.calculatorFactory;
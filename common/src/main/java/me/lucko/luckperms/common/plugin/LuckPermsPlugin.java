@@ -38,6 +38,7 @@ import me.lucko.luckperms.common.extension.SimpleExtensionManager;
 import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
+import me.lucko.luckperms.common.model.ExpiryQueue;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
@@ -197,6 +198,13 @@ public interface LuckPermsPlugin {
      */
     InheritanceGraphFactory getInheritanceGraphFactory();
 
+    /**
+     * Gets the index of holders with temporary nodes, ordered by expiry time.
+     *
+     * @return the expiry queue
+     */
+    ExpiryQueue getExpiryQueue();
+
     /**
      * Gets the class responsible for constructing PermissionCalculators on this platform.
      *
@@ -0,0 +1,96 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.common.plugin.util;
+
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each phase of the plugin startup process takes.
+ */
+public class StartupTimer {
+    private final ConcurrentMap<String, Long> timings = new ConcurrentHashMap<>();
+    private final Map<String, Long> order = new ConcurrentHashMap<>();
+
+    private String currentPhase = null;
+    private long currentPhaseStart = 0;
+
+    /**
+     * Marks the start of a new phase, ending the current phase if there is one.
+     *
+     * @param phase the name of the phase
+     */
+    public synchronized void start(String phase) {
+        end();
+        this.currentPhase = phase;
+        this.currentPhaseStart = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of the current phase.
+     */
+    public synchronized void end() {
+        if (this.currentPhase != null) {
+            record(this.currentPhase, System.nanoTime() - this.currentPhaseStart);
+            this.currentPhase = null;
+        }
+    }
+
+    /**
+     * Records the time taken for a phase which runs in the background.
+     *
+     * @param phase the name of the phase
+     * @param future the future which completes when the phase ends
+     * @param <T> the future type
+     * @return the future
+     */
+    public <T> CompletableFuture<T> track(String phase, CompletableFuture<T> future) {
+        long start = System.nanoTime();
+        return future.whenComplete((r, ex) -> record(phase, System.nanoTime() - start));
+    }
+
+    private void record(String phase, long nanos) {
+        this.order.putIfAbsent(phase, System.nanoTime());
+        this.timings.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Gets a summary of the recorded timings, in the order the phases completed.
+     *
+     * @return the summary
+     */
+    public String summarise() {
+        StringJoiner joiner = new StringJoiner(", ");
+        this.order.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .forEach(phase -> joiner.add(phase + ": " + TimeUnit.NANOSECONDS.toMillis(this.timings.get(phase)) + "ms"));
+        return joiner.toString();
+    }
+}
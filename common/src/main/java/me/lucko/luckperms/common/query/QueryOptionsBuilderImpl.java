@@ -164,6 +164,7 @@ public class QueryOptionsBuilderImpl implements QueryOptions.Builder {
             }
         }
 
-        return new QueryOptionsImpl(this.mode, this.context, flags, this.options);
+        ImmutableContextSet context = this.context == null ? null : ImmutableContextSetImpl.intern(this.context);
+        return QueryOptionsImpl.intern(new QueryOptionsImpl(this.mode, context, flags, this.options));
     }
 }
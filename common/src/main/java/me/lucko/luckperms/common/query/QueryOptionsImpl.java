@@ -27,6 +27,8 @@ package me.lucko.luckperms.common.query;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
 
@@ -50,6 +52,20 @@ public class QueryOptionsImpl implements QueryOptions {
     public static final QueryOptions DEFAULT_CONTEXTUAL = new QueryOptionsImpl(QueryMode.CONTEXTUAL, ImmutableContextSetImpl.EMPTY, FlagUtils.DEFAULT_FLAGS, null);
     public static final QueryOptions DEFAULT_NON_CONTEXTUAL = new QueryOptionsImpl(QueryMode.NON_CONTEXTUAL, null, FlagUtils.DEFAULT_FLAGS, null);
 
+    // weakly held pool of canonical instances
+    private static final Interner<QueryOptions> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Returns the canonical instance for the given query options, so that
+     * equal instances can be compared by identity.
+     *
+     * @param queryOptions the query options
+     * @return the canonical instance
+     */
+    static QueryOptions intern(QueryOptionsImpl queryOptions) {
+        return INTERNER.intern(queryOptions);
+    }
+
     // state
     private final QueryMode mode;
     private final ImmutableContextSet context;
@@ -145,7 +161,8 @@ public class QueryOptionsImpl implements QueryOptions {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         QueryOptionsImpl that = (QueryOptionsImpl) o;
-        return this.flags == that.flags &&
+        return this.hashCode == that.hashCode &&
+                this.flags == that.flags &&
                 this.mode == that.mode &&
                 Objects.equals(this.context, that.context) &&
                 Objects.equals(this.options, that.options);
@@ -37,6 +37,8 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.split.SplitStorage;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.storage.misc.PlayerNameCache;
+import me.lucko.luckperms.common.storage.misc.UserDataRecord;
 import me.lucko.luckperms.common.util.Throwing;
 
 import net.luckperms.api.actionlog.Action;
@@ -45,6 +47,7 @@ import net.luckperms.api.event.cause.DeletionCause;
 import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.Node;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -55,6 +58,7 @@ import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
  * Provides a {@link CompletableFuture} based API for interacting with a {@link StorageImplementation}.
@@ -62,6 +66,7 @@ import java.util.concurrent.CompletionException;
 public class Storage {
     private final LuckPermsPlugin plugin;
     private final StorageImplementation implementation;
+    private final PlayerNameCache playerNameCache = new PlayerNameCache();
 
     public Storage(LuckPermsPlugin plugin, StorageImplementation implementation) {
         this.plugin = plugin;
@@ -158,6 +163,37 @@ public class Storage {
         return makeFuture(() -> this.implementation.saveUser(user));
     }
 
+    public CompletableFuture<Void> iterateUserData(int pageSize, Throwing.Consumer<List<UserDataRecord>> consumer) {
+        return makeFuture(() -> this.implementation.iterateUserData(pageSize, consumer));
+    }
+
+    public CompletableFuture<Void> saveUserData(List<UserDataRecord> records, boolean merge) {
+        return makeFuture(() -> {
+            // loaded users are written through their in-memory instance, under its io lock,
+            // so that their next save doesn't overwrite the data with what was held before
+            List<UserDataRecord> bulk = new ArrayList<>(records.size());
+            for (UserDataRecord record : records) {
+                if (this.plugin.getUserManager().isLoaded(record.getUniqueId())) {
+                    this.implementation.saveUserData(record, merge);
+                } else {
+                    bulk.add(record);
+                }
+            }
+
+            this.implementation.saveUserData(bulk, merge);
+
+            for (UserDataRecord record : bulk) {
+                // the user may have been loaded whilst the batch was being written
+                if (this.plugin.getUserManager().isLoaded(record.getUniqueId())) {
+                    this.implementation.loadUser(record.getUniqueId(), null);
+                }
+                if (record.getUsername() != null) {
+                    this.playerNameCache.invalidate(record.getUniqueId());
+                }
+            }
+        });
+    }
+
     public CompletableFuture<Set<UUID>> getUniqueUsers() {
         return makeFuture(this.implementation::getUniqueUsers);
     }
@@ -257,6 +293,11 @@ public class Storage {
     public CompletableFuture<PlayerSaveResult> savePlayerData(UUID uniqueId, String username) {
         return makeFuture(() -> {
             PlayerSaveResult result = this.implementation.savePlayerData(uniqueId, username);
+            this.playerNameCache.put(uniqueId, username);
+            if (result != null && result.getOtherUniqueIds() != null) {
+                // other players have used the same name, so whatever we know about them is likely to be stale
+                result.getOtherUniqueIds().forEach(this.playerNameCache::invalidate);
+            }
             if (result != null) {
                 this.plugin.getEventDispatcher().dispatchPlayerDataSave(uniqueId, username, result);
             }
@@ -264,11 +305,56 @@ public class Storage {
         });
     }
 
+    /**
+     * Discards any cached username for the given player, e.g. after being told
+     * their data has changed elsewhere on the network.
+     *
+     * @param uniqueId the players uuid
+     */
+    public void invalidatePlayerName(UUID uniqueId) {
+        this.playerNameCache.invalidate(uniqueId);
+    }
+
     public CompletableFuture<UUID> getPlayerUniqueId(String username) {
-        return makeFuture(() -> this.implementation.getPlayerUniqueId(username));
+        UUID cached = this.playerNameCache.getUniqueId(username);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return makeFuture(() -> {
+            UUID uniqueId = this.implementation.getPlayerUniqueId(username);
+            if (uniqueId != null) {
+                this.playerNameCache.put(uniqueId, username);
+            }
+            return uniqueId;
+        });
     }
 
     public CompletableFuture<String> getPlayerName(UUID uniqueId) {
-        return makeFuture(() -> this.implementation.getPlayerName(uniqueId));
+        String cached = this.playerNameCache.getUsername(uniqueId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return makeFuture(() -> {
+            String username = this.implementation.getPlayerName(uniqueId);
+            this.playerNameCache.put(uniqueId, username);
+            return username;
+        });
+    }
+
+    public CompletableFuture<Map<UUID, String>> getPlayerNames(Collection<UUID> uniqueIds) {
+        Map<UUID, String> names = this.playerNameCache.getUsernames(uniqueIds);
+        if (names.size() == uniqueIds.size()) {
+            return CompletableFuture.completedFuture(names);
+        }
+
+        List<UUID> missing = uniqueIds.stream().filter(uuid -> !names.containsKey(uuid)).collect(Collectors.toList());
+        return makeFuture(() -> {
+            Map<UUID, String> loaded = this.implementation.getPlayerNames(missing);
+            this.playerNameCache.putAll(loaded);
+            names.putAll(loaded);
+            return names;
+        });
     }
 }
@@ -97,31 +97,36 @@ public class StorageFactory {
                 return new SqlStorage(
                         this.plugin,
                         new MariaDbConnectionFactory(this.plugin.getConfiguration().get(ConfigKeys.DATABASE_VALUES)),
-                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX),
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_COMPACT_SCHEMA)
                 );
             case MYSQL:
                 return new SqlStorage(
                         this.plugin,
                         new MySqlConnectionFactory(this.plugin.getConfiguration().get(ConfigKeys.DATABASE_VALUES)),
-                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX),
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_COMPACT_SCHEMA)
                 );
             case SQLITE:
                 return new SqlStorage(
                         this.plugin,
                         new SQLiteConnectionFactory(this.plugin, this.plugin.getBootstrap().getDataDirectory().resolve("luckperms-sqlite.db")),
-                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX),
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_COMPACT_SCHEMA)
                 );
             case H2:
                 return new SqlStorage(
                         this.plugin,
                         new H2ConnectionFactory(this.plugin, this.plugin.getBootstrap().getDataDirectory().resolve("luckperms-h2")),
-                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX),
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_COMPACT_SCHEMA)
                 );
             case POSTGRESQL:
                 return new SqlStorage(
                         this.plugin,
                         new PostgreConnectionFactory(this.plugin.getConfiguration().get(ConfigKeys.DATABASE_VALUES)),
-                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX),
+                        this.plugin.getConfiguration().get(ConfigKeys.SQL_COMPACT_SCHEMA)
                 );
             case MONGODB:
                 return new MongoStorage(
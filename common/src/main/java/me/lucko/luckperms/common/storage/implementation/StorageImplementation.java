@@ -33,14 +33,21 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.matcher.ConstraintNodeMatcher;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.storage.misc.UserDataRecord;
+import me.lucko.luckperms.common.util.Iterators;
+import me.lucko.luckperms.common.util.Throwing;
 
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.model.PlayerSaveResult;
+import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -72,6 +79,43 @@ public interface StorageImplementation {
 
     Set<UUID> getUniqueUsers() throws Exception;
 
+    /**
+     * Reads the stored data of every user, passing it to the consumer in pages
+     * ordered by uuid.
+     *
+     * <p>The order is whatever the backend can page through most cheaply, so it
+     * is only stable for a given implementation: the default sorts using
+     * {@link UUID#compareTo(UUID)}, whereas SQL and MongoDB use the ordering of
+     * their uuid column. Exports of the same data from different backends may
+     * therefore list users in a different order.</p>
+     *
+     * <p>Implementations should avoid creating {@link User} instances, and
+     * should only hold one page of data in memory at a time.</p>
+     *
+     * @param pageSize the maximum number of users in each page
+     * @param consumer the page consumer
+     * @throws Exception if an error occurs
+     */
+    default void iterateUserData(int pageSize, Throwing.Consumer<List<UserDataRecord>> consumer) throws Exception {
+        List<UUID> uniqueIds = new ArrayList<>(getUniqueUsers());
+        uniqueIds.sort(null);
+
+        for (List<UUID> page : Iterators.divideIterable(uniqueIds, pageSize)) {
+            List<UserDataRecord> records = new ArrayList<>(page.size());
+            for (UUID uniqueId : page) {
+                User user = loadUser(uniqueId, null);
+                records.add(new UserDataRecord(
+                        uniqueId,
+                        user.getUsername().orElse(null),
+                        user.getPrimaryGroup().getStoredValue().orElse(null),
+                        user.normalData().asSet()
+                ));
+                getPlugin().getUserManager().getHouseKeeper().cleanup(uniqueId);
+            }
+            consumer.accept(records);
+        }
+    }
+
     <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws Exception;
 
     Group createAndLoadGroup(String name) throws Exception;
@@ -98,7 +142,64 @@ public interface StorageImplementation {
 
     PlayerSaveResult savePlayerData(UUID uniqueId, String username) throws Exception;
 
+    /**
+     * Writes the given user data directly to the storage, as a single batch.
+     *
+     * <p>If {@code merge} is true, the nodes are added to any existing data for
+     * the user, otherwise they replace it. A primary group is only written if
+     * one is present in the record.</p>
+     *
+     * <p>Implementations may write to the storage without going through any
+     * loaded {@link User} instances, so this should only be given users which
+     * aren't loaded.</p>
+     *
+     * @param records the user data to write
+     * @param merge if the data should be merged with existing data
+     * @throws Exception if an error occurs
+     */
+    default void saveUserData(List<UserDataRecord> records, boolean merge) throws Exception {
+        for (UserDataRecord record : records) {
+            saveUserData(record, merge);
+        }
+    }
+
+    /**
+     * Writes the given user data to the storage, by loading the user, applying
+     * the data and saving it again.
+     *
+     * <p>Unlike the batch method, this goes through the user's in-memory instance,
+     * so it is safe to use for users which are currently loaded.</p>
+     *
+     * @param record the user data to write
+     * @param merge if the data should be merged with existing data
+     * @throws Exception if an error occurs
+     */
+    default void saveUserData(UserDataRecord record, boolean merge) throws Exception {
+        User user = loadUser(record.getUniqueId(), record.getUsername());
+        if (record.getPrimaryGroup() != null) {
+            user.getPrimaryGroup().setStoredValue(record.getPrimaryGroup());
+        }
+        if (merge) {
+            user.mergeNodes(DataType.NORMAL, record.getNodes());
+        } else {
+            user.setNodes(DataType.NORMAL, record.getNodes());
+        }
+        saveUser(user);
+        getPlugin().getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
+    }
+
     @Nullable UUID getPlayerUniqueId(String username) throws Exception;
 
     @Nullable String getPlayerName(UUID uniqueId) throws Exception;
+
+    default Map<UUID, String> getPlayerNames(Collection<UUID> uniqueIds) throws Exception {
+        Map<UUID, String> names = new HashMap<>();
+        for (UUID uniqueId : uniqueIds) {
+            String name = getPlayerName(uniqueId);
+            if (name != null) {
+                names.put(uniqueId, name);
+            }
+        }
+        return names;
+    }
 }
@@ -75,12 +75,10 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * Abstract implementation using configurate {@link ConfigurationNode}s to serialize and deserialize
@@ -180,19 +178,38 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
         return this.actionLogger.getLog();
     }
 
-    protected ConfigurationNode processBulkUpdate(BulkUpdate bulkUpdate, ConfigurationNode node) {
+    /**
+     * Applies a bulk update to the nodes in the given section.
+     *
+     * <p>The section is left unchanged if the update is a dry run.</p>
+     *
+     * @param bulkUpdate the bulk update
+     * @param node the section
+     * @return true if any nodes were (or would have been) changed
+     */
+    protected boolean processBulkUpdate(BulkUpdate bulkUpdate, ConfigurationNode node) {
         Set<Node> nodes = readNodes(node);
-        Set<Node> results = nodes.stream()
-                .map(bulkUpdate::apply)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        Set<Node> results = new HashSet<>(nodes.size());
+        int changed = 0;
+        for (Node n : nodes) {
+            Node result = bulkUpdate.apply(n);
+            if (!n.equals(result)) {
+                changed++;
+            }
+            if (result != null) {
+                results.add(result);
+            }
+        }
 
-        if (nodes.equals(results)) {
-            return null;
+        if (changed == 0) {
+            return false;
         }
 
-        writeNodes(node, results);
-        return node;
+        bulkUpdate.getStatistics().incrementAffectedNodes(changed);
+        if (!bulkUpdate.isDryRun()) {
+            writeNodes(node, results);
+        }
+        return true;
     }
 
     @Override
@@ -453,6 +470,11 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
         return this.uuidCache.lookupUsername(uniqueId);
     }
 
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uniqueIds) {
+        return this.uuidCache.lookupUsernames(uniqueIds);
+    }
+
     private static ImmutableContextSet readContexts(ConfigurationNode attributes) {
         ImmutableContextSet.Builder contextBuilder = new ImmutableContextSetImpl.BuilderImpl();
         ConfigurationNode contextMap = attributes.getNode("context");
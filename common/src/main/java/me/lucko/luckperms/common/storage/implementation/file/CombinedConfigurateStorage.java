@@ -237,18 +237,24 @@ public class CombinedConfigurateStorage extends AbstractConfigurateStorage {
 
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception {
+        boolean save = !bulkUpdate.isDryRun();
+
         if (bulkUpdate.getDataType().isIncludingUsers()) {
-            this.usersLoader.apply(true, true, root -> {
+            this.usersLoader.apply(save, true, root -> {
                 for (Map.Entry<Object, ? extends ConfigurationNode> entry : root.getChildrenMap().entrySet()) {
-                    processBulkUpdate(bulkUpdate, entry.getValue());
+                    if (processBulkUpdate(bulkUpdate, entry.getValue())) {
+                        bulkUpdate.getStatistics().recordUser(Uuids.fromString(entry.getKey().toString()));
+                    }
                 }
             });
         }
 
         if (bulkUpdate.getDataType().isIncludingGroups()) {
-            this.groupsLoader.apply(true, true, root -> {
+            this.groupsLoader.apply(save, true, root -> {
                 for (Map.Entry<Object, ? extends ConfigurationNode> entry : root.getChildrenMap().entrySet()) {
-                    processBulkUpdate(bulkUpdate, entry.getValue());
+                    if (processBulkUpdate(bulkUpdate, entry.getValue())) {
+                        bulkUpdate.getStatistics().recordGroup(entry.getKey().toString());
+                    }
                 }
             });
         }
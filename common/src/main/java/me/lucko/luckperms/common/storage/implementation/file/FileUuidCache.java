@@ -44,6 +44,8 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -145,6 +147,23 @@ public class FileUuidCache {
         return this.lookupMap.lookupUsername(uuid);
     }
 
+    /**
+     * Gets the most recent usernames used by the given uuids
+     *
+     * @param uuids the uuids to lookup with
+     * @return a map of the uuids which have a known username
+     */
+    public Map<UUID, String> lookupUsernames(Collection<UUID> uuids) {
+        Map<UUID, String> usernames = new HashMap<>();
+        for (UUID uuid : uuids) {
+            String username = this.lookupMap.lookupUsername(uuid);
+            if (username != null) {
+                usernames.put(uuid, username);
+            }
+        }
+        return usernames;
+    }
+
     private void loadEntry(String entry) {
         if (entry.contains(":")) {
             // new format
@@ -53,6 +53,9 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
+    /** The number of groups to load per batch when loading all groups in parallel */
+    private static final int LOAD_ALL_BATCH_SIZE = 50;
+
     private final String fileExtension;
 
     private Path usersDirectory;
@@ -214,9 +217,11 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
                     try {
                         registerFileAction(StorageLocation.USER, file);
                         ConfigurationNode object = readFile(file);
-                        ConfigurationNode results = processBulkUpdate(bulkUpdate, object);
-                        if (results != null) {
-                            saveFile(file, object);
+                        if (processBulkUpdate(bulkUpdate, object)) {
+                            bulkUpdate.getStatistics().recordUser(Uuids.fromString(getHolderName(file)));
+                            if (!bulkUpdate.isDryRun()) {
+                                saveFile(file, object);
+                            }
                         }
                     } catch (Exception e) {
                         throw reportException(file.getFileName().toString(), e);
@@ -231,9 +236,11 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
                     try {
                         registerFileAction(StorageLocation.GROUP, file);
                         ConfigurationNode object = readFile(file);
-                        ConfigurationNode results = processBulkUpdate(bulkUpdate, object);
-                        if (results != null) {
-                            saveFile(file, object);
+                        if (processBulkUpdate(bulkUpdate, object)) {
+                            bulkUpdate.getStatistics().recordGroup(getHolderName(file));
+                            if (!bulkUpdate.isDryRun()) {
+                                saveFile(file, object);
+                            }
                         }
                     } catch (Exception e) {
                         throw reportException(file.getFileName().toString(), e);
@@ -243,6 +250,11 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         }
     }
 
+    private String getHolderName(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.length() - this.fileExtension.length());
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() throws IOException {
         try (Stream<Path> stream = Files.list(this.usersDirectory)) {
@@ -291,7 +303,7 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
                     .collect(Collectors.toList());
         }
 
-        if (!Iterators.tryIterate(groups, this::loadGroup)) {
+        if (!Iterators.tryIterateParallel(groups, LOAD_ALL_BATCH_SIZE, this.plugin.getBootstrap().getScheduler().async(), this::loadGroup)) {
             throw new RuntimeException("Exception occurred whilst loading a group");
         }
 
@@ -34,8 +34,12 @@ import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
 
 import me.lucko.luckperms.common.actionlog.Log;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
@@ -52,7 +56,9 @@ import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
 import me.lucko.luckperms.common.storage.misc.StorageCredentials;
+import me.lucko.luckperms.common.storage.misc.UserDataRecord;
 import me.lucko.luckperms.common.util.Iterators;
+import me.lucko.luckperms.common.util.Throwing;
 
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.context.Context;
@@ -68,17 +74,22 @@ import org.bson.Document;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 public class MongoStorage implements StorageImplementation {
+    /** The number of groups to load per batch when loading all groups in parallel */
+    private static final int LOAD_ALL_BATCH_SIZE = 50;
+
     private final LuckPermsPlugin plugin;
 
     private final StorageCredentials configuration;
@@ -250,19 +261,18 @@ public class MongoStorage implements StorageImplementation {
                     Document d = cursor.next();
 
                     UUID uuid = getDocumentId(d);
-                    Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
-                    Set<Node> results = nodes.stream()
-                            .map(bulkUpdate::apply)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toSet());
-
-                    if (!nodes.equals(results)) {
-                        List<Document> newNodes = results.stream()
-                                .map(MongoStorage::nodeToDoc)
-                                .collect(Collectors.toList());
-
-                        d.append("permissions", newNodes).remove("perms");
-                        c.replaceOne(new Document("_id", uuid), d);
+                    Set<Node> results = processBulkUpdate(bulkUpdate, nodesFromDoc(d));
+
+                    if (results != null) {
+                        bulkUpdate.getStatistics().recordUser(uuid);
+                        if (!bulkUpdate.isDryRun()) {
+                            List<Document> newNodes = results.stream()
+                                    .map(MongoStorage::nodeToDoc)
+                                    .collect(Collectors.toList());
+
+                            d.append("permissions", newNodes).remove("perms");
+                            c.replaceOne(new Document("_id", uuid), d);
+                        }
                     }
                 }
             }
@@ -275,25 +285,52 @@ public class MongoStorage implements StorageImplementation {
                     Document d = cursor.next();
 
                     String holder = d.getString("_id");
-                    Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
-                    Set<Node> results = nodes.stream()
-                            .map(bulkUpdate::apply)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toSet());
-
-                    if (!nodes.equals(results)) {
-                        List<Document> newNodes = results.stream()
-                                .map(MongoStorage::nodeToDoc)
-                                .collect(Collectors.toList());
-
-                        d.append("permissions", newNodes).remove("perms");
-                        c.replaceOne(new Document("_id", holder), d);
+                    Set<Node> results = processBulkUpdate(bulkUpdate, nodesFromDoc(d));
+
+                    if (results != null) {
+                        bulkUpdate.getStatistics().recordGroup(holder);
+                        if (!bulkUpdate.isDryRun()) {
+                            List<Document> newNodes = results.stream()
+                                    .map(MongoStorage::nodeToDoc)
+                                    .collect(Collectors.toList());
+
+                            d.append("permissions", newNodes).remove("perms");
+                            c.replaceOne(new Document("_id", holder), d);
+                        }
                     }
                 }
             }
         }
     }
 
+    /**
+     * Applies a bulk update to the given nodes.
+     *
+     * @param bulkUpdate the bulk update
+     * @param nodes the nodes
+     * @return the resultant nodes, or null if no nodes were changed
+     */
+    private static Set<Node> processBulkUpdate(BulkUpdate bulkUpdate, Collection<Node> nodes) {
+        Set<Node> results = new HashSet<>(nodes.size());
+        int changed = 0;
+        for (Node n : nodes) {
+            Node result = bulkUpdate.apply(n);
+            if (!n.equals(result)) {
+                changed++;
+            }
+            if (result != null) {
+                results.add(result);
+            }
+        }
+
+        if (changed == 0) {
+            return null;
+        }
+
+        bulkUpdate.getStatistics().incrementAffectedNodes(changed);
+        return results;
+    }
+
     @Override
     public User loadUser(UUID uniqueId, String username) {
         User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
@@ -363,6 +400,84 @@ public class MongoStorage implements StorageImplementation {
         return uuids;
     }
 
+    @Override
+    public void iterateUserData(int pageSize, Throwing.Consumer<List<UserDataRecord>> consumer) throws Exception {
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+        try (MongoCursor<Document> cursor = c.find().sort(new Document("_id", 1)).batchSize(pageSize).iterator()) {
+            List<UserDataRecord> page = new ArrayList<>(pageSize);
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                UUID uniqueId;
+                try {
+                    uniqueId = getDocumentId(d);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+
+                String name = d.getString("name");
+                if (name != null && name.equals("null")) {
+                    name = null;
+                }
+
+                page.add(new UserDataRecord(uniqueId, name, d.getString("primaryGroup"), nodesFromDoc(d)));
+                if (page.size() >= pageSize) {
+                    consumer.accept(page);
+                    page = new ArrayList<>(pageSize);
+                }
+            }
+
+            if (!page.isEmpty()) {
+                consumer.accept(page);
+            }
+        }
+    }
+
+    @Override
+    public void saveUserData(List<UserDataRecord> records, boolean merge) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+
+        // read the existing documents for the whole batch
+        Map<UUID, Document> existing = new HashMap<>();
+        List<UUID> uniqueIds = records.stream().map(UserDataRecord::getUniqueId).collect(Collectors.toList());
+        try (MongoCursor<Document> cursor = c.find(Filters.in("_id", uniqueIds)).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                existing.put(getDocumentId(d), d);
+            }
+        }
+
+        List<WriteModel<Document>> writes = new ArrayList<>(records.size());
+        for (UserDataRecord record : records) {
+            Document previous = existing.get(record.getUniqueId());
+
+            Set<Node> nodes = new LinkedHashSet<>();
+            if (merge && previous != null) {
+                nodes.addAll(nodesFromDoc(previous));
+            }
+            nodes.addAll(record.getNodes());
+
+            String name = record.getUsername() != null ? record.getUsername() : (previous != null ? previous.getString("name") : null);
+            String primaryGroup = record.getPrimaryGroup() != null ? record.getPrimaryGroup() : (previous != null ? previous.getString("primaryGroup") : null);
+
+            Document doc = new Document("_id", record.getUniqueId())
+                    .append("name", name == null ? "null" : name)
+                    .append("primaryGroup", primaryGroup == null ? GroupManager.DEFAULT_GROUP_NAME : primaryGroup)
+                    .append("permissions", nodes.stream().map(MongoStorage::nodeToDoc).collect(Collectors.toList()));
+
+            if (previous == null) {
+                writes.add(new InsertOneModel<>(doc));
+            } else {
+                writes.add(new ReplaceOneModel<>(new Document("_id", record.getUniqueId()), doc, new ReplaceOptions().upsert(true)));
+            }
+        }
+
+        c.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+    }
+
     @Override
     public <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws Exception {
         List<NodeEntry<UUID, N>> held = new ArrayList<>();
@@ -444,7 +559,7 @@ public class MongoStorage implements StorageImplementation {
             }
         }
 
-        if (!Iterators.tryIterate(groups, this::loadGroup)) {
+        if (!Iterators.tryIterateParallel(groups, LOAD_ALL_BATCH_SIZE, this.plugin.getBootstrap().getScheduler().async(), this::loadGroup)) {
             throw new RuntimeException("Exception occurred whilst loading a group");
         }
 
@@ -638,6 +753,23 @@ public class MongoStorage implements StorageImplementation {
         return null;
     }
 
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uniqueIds) {
+        Map<UUID, String> names = new HashMap<>();
+        if (uniqueIds.isEmpty()) {
+            return names;
+        }
+
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "uuid");
+        try (MongoCursor<Document> cursor = c.find(Filters.in("_id", uniqueIds)).iterator()) {
+            while (cursor.hasNext()) {
+                Document doc = cursor.next();
+                names.put(getDocumentId(doc), doc.get("name", String.class));
+            }
+        }
+        return names;
+    }
+
     private static UUID getDocumentId(Document doc) {
         Object id = doc.get("_id");
         if (id instanceof UUID) {
@@ -37,11 +37,14 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.StorageType;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.storage.misc.UserDataRecord;
+import me.lucko.luckperms.common.util.Throwing;
 
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.Node;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -153,6 +156,16 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.USER).getUniqueUsers();
     }
 
+    @Override
+    public void iterateUserData(int pageSize, Throwing.Consumer<List<UserDataRecord>> consumer) throws Exception {
+        implFor(SplitStorageType.USER).iterateUserData(pageSize, consumer);
+    }
+
+    @Override
+    public void saveUserData(List<UserDataRecord> records, boolean merge) throws Exception {
+        implFor(SplitStorageType.USER).saveUserData(records, merge);
+    }
+
     @Override
     public <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws Exception {
         return implFor(SplitStorageType.USER).searchUserNodes(constraint);
@@ -227,4 +240,9 @@ public class SplitStorage implements StorageImplementation {
     public String getPlayerName(UUID uniqueId) throws Exception {
         return implFor(SplitStorageType.UUID).getPlayerName(uniqueId);
     }
+
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uniqueIds) throws Exception {
+        return implFor(SplitStorageType.UUID).getPlayerNames(uniqueIds);
+    }
 }
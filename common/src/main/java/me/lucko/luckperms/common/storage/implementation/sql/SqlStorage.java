@@ -25,12 +25,15 @@
 
 package me.lucko.luckperms.common.storage.implementation.sql;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.gson.reflect.TypeToken;
 
 import me.lucko.luckperms.common.actionlog.Log;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdateStatistics;
 import me.lucko.luckperms.common.bulkupdate.PreparedStatementBuilder;
 import me.lucko.luckperms.common.context.ContextSetJsonSerializer;
 import me.lucko.luckperms.common.model.Group;
@@ -43,6 +46,10 @@ import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.ConnectionFactory;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
+import me.lucko.luckperms.common.storage.misc.UserDataRecord;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+import me.lucko.luckperms.common.util.Iterators;
+import me.lucko.luckperms.common.util.Throwing;
 import me.lucko.luckperms.common.util.Uuids;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 
@@ -63,38 +70,79 @@ import java.sql.Statement;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class SqlStorage implements StorageImplementation {
     private static final Type LIST_STRING_TYPE = new TypeToken<List<String>>(){}.getType();
 
+    /** The number of rows to fetch at a time when streaming large result sets */
+    private static final int STREAMING_FETCH_SIZE = 1000;
+
+    /** The maximum number of parameters to bind to a single IN (...) clause */
+    private static final int MAX_IN_CLAUSE_SIZE = 500;
+
+    /** The number of rows to rewrite at a time when migrating to or bulk updating the compact schema */
+    private static final int COMPACT_SCHEMA_PAGE_SIZE = 1000;
+
+    private static final String SCHEMA_DIRECTORY = "me/lucko/luckperms/schema/";
+    private static final String COMPACT_SCHEMA_DIRECTORY = "me/lucko/luckperms/schema/compact/";
+
     private static final String USER_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE uuid=?";
     private static final String USER_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM '{prefix}user_permissions' WHERE id=?";
     private static final String USER_PERMISSIONS_DELETE = "DELETE FROM '{prefix}user_permissions' WHERE uuid=?";
     private static final String USER_PERMISSIONS_INSERT = "INSERT INTO '{prefix}user_permissions' (uuid, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String USER_PERMISSIONS_SELECT_DISTINCT = "SELECT DISTINCT uuid FROM '{prefix}user_permissions'";
+    private static final String USER_PERMISSIONS_SELECT_DISTINCT_PAGE = "SELECT DISTINCT uuid FROM '{prefix}user_permissions' WHERE uuid > ? ORDER BY uuid LIMIT ?";
+    private static final String USER_PERMISSIONS_SELECT_BY_UUIDS = "SELECT uuid, id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE uuid IN ({values})";
     private static final String USER_PERMISSIONS_SELECT_PERMISSION = "SELECT uuid, id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE ";
 
+    private static final String USER_NODES_SELECT_ALL = "SELECT n.uuid, n.id, p.permission, n.value, n.server, n.world, n.expiry, n.contexts FROM '{prefix}user_nodes' n JOIN '{prefix}permission_keys' p ON p.id=n.permission_id";
+    private static final String USER_NODES_SELECT = USER_NODES_SELECT_ALL + " WHERE n.uuid=?";
+    private static final String USER_NODES_DELETE_SPECIFIC = "DELETE FROM '{prefix}user_nodes' WHERE id=?";
+    private static final String USER_NODES_DELETE = "DELETE FROM '{prefix}user_nodes' WHERE uuid=?";
+    private static final String USER_NODES_INSERT = "INSERT INTO '{prefix}user_nodes' (uuid, permission_id, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
+    private static final String USER_NODES_UPDATE = "UPDATE '{prefix}user_nodes' SET permission_id=?, value=?, server=?, world=?, expiry=?, contexts=? WHERE id=?";
+    private static final String USER_NODES_SELECT_DISTINCT = "SELECT DISTINCT uuid FROM '{prefix}user_nodes'";
+    private static final String USER_NODES_SELECT_ANY = "SELECT uuid FROM '{prefix}user_nodes' LIMIT 1";
+    private static final String USER_NODES_SELECT_DISTINCT_PAGE = "SELECT DISTINCT uuid FROM '{prefix}user_nodes' WHERE uuid > ? ORDER BY uuid LIMIT ?";
+    private static final String USER_NODES_SELECT_BY_UUIDS = USER_NODES_SELECT_ALL + " WHERE n.uuid IN ({values})";
+    private static final String USER_NODES_SELECT_PERMISSION = USER_NODES_SELECT_ALL + " WHERE ";
+
+    private static final String PERMISSION_KEYS_SELECT = "SELECT id, permission FROM '{prefix}permission_keys' WHERE permission IN ({values})";
+    private static final Map<String, String> PERMISSION_KEYS_INSERT = ImmutableMap.of(
+            "H2", "MERGE INTO '{prefix}permission_keys' (permission) KEY (permission) VALUES(?)",
+            "SQLite", "INSERT OR IGNORE INTO '{prefix}permission_keys' (permission) VALUES(?)",
+            "PostgreSQL", "INSERT INTO '{prefix}permission_keys' (permission) VALUES(?) ON CONFLICT (permission) DO NOTHING"
+    );
+    private static final String PERMISSION_KEYS_INSERT_DEFAULT = "INSERT INTO '{prefix}permission_keys' (permission) VALUES(?) ON DUPLICATE KEY UPDATE permission=permission";
+
     private static final String PLAYER_SELECT_UUID_BY_USERNAME = "SELECT uuid FROM '{prefix}players' WHERE username=? LIMIT 1";
     private static final String PLAYER_SELECT_USERNAME_BY_UUID = "SELECT username FROM '{prefix}players' WHERE uuid=? LIMIT 1";
+    private static final String PLAYER_SELECT_USERNAMES_BY_UUIDS = "SELECT uuid, username FROM '{prefix}players' WHERE uuid IN ({values})";
     private static final String PLAYER_UPDATE_USERNAME_FOR_UUID = "UPDATE '{prefix}players' SET username=? WHERE uuid=?";
     private static final String PLAYER_INSERT = "INSERT INTO '{prefix}players' (uuid, username, primary_group) VALUES(?, ?, ?)";
     private static final String PLAYER_SELECT_ALL_UUIDS_BY_USERNAME = "SELECT uuid FROM '{prefix}players' WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_DELETE_ALL_UUIDS_BY_USERNAME = "DELETE FROM '{prefix}players' WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_SELECT_BY_UUID = "SELECT username, primary_group FROM '{prefix}players' WHERE uuid=?";
+    private static final String PLAYER_SELECT_BY_UUIDS = "SELECT uuid, username, primary_group FROM '{prefix}players' WHERE uuid IN ({values})";
+    private static final String PLAYER_SELECT_UUIDS_BY_UUIDS = "SELECT uuid FROM '{prefix}players' WHERE uuid IN ({values})";
     private static final String PLAYER_SELECT_PRIMARY_GROUP_BY_UUID = "SELECT primary_group FROM '{prefix}players' WHERE uuid=? LIMIT 1";
     private static final String PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID = "UPDATE '{prefix}players' SET primary_group=? WHERE uuid=?";
 
     private static final String GROUP_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions' WHERE name=?";
-    private static final String GROUP_PERMISSIONS_SELECT_ALL = "SELECT name, id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions'";
+    private static final String GROUP_PERMISSIONS_SELECT_ALL = "SELECT name, id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions' ORDER BY name";
     private static final String GROUP_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM '{prefix}group_permissions' WHERE id=?";
     private static final String GROUP_PERMISSIONS_DELETE = "DELETE FROM '{prefix}group_permissions' WHERE name=?";
     private static final String GROUP_PERMISSIONS_INSERT = "INSERT INTO '{prefix}group_permissions' (name, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
@@ -123,10 +171,19 @@ public class SqlStorage implements StorageImplementation {
     private final ConnectionFactory connectionFactory;
     private final Function<String, String> statementProcessor;
 
-    public SqlStorage(LuckPermsPlugin plugin, ConnectionFactory connectionFactory, String tablePrefix) {
+    /** If user nodes should be stored using the compact schema */
+    private final boolean compactSchema;
+
+    /** Cache of ids from the permission_keys table, only used with the compact schema */
+    private final Cache<String, Integer> permissionIds = CaffeineFactory.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    public SqlStorage(LuckPermsPlugin plugin, ConnectionFactory connectionFactory, String tablePrefix, boolean compactSchema) {
         this.plugin = plugin;
         this.connectionFactory = connectionFactory;
         this.statementProcessor = connectionFactory.getStatementProcessor().compose(s -> s.replace("{prefix}", tablePrefix));
+        this.compactSchema = compactSchema;
     }
 
     @Override
@@ -152,19 +209,35 @@ public class SqlStorage implements StorageImplementation {
         this.connectionFactory.init(this.plugin);
 
         boolean tableExists;
+        boolean compactTablesExist;
         try (Connection c = this.connectionFactory.getConnection()) {
             tableExists = tableExists(c, this.statementProcessor.apply("{prefix}user_permissions"));
+            compactTablesExist = tableExists(c, this.statementProcessor.apply("{prefix}user_nodes"));
+
+            // the migration to the compact schema is one-way - reading from the legacy
+            // table after it has happened would silently hide the migrated data
+            if (!this.compactSchema && compactTablesExist && hasCompactUserData(c)) {
+                throw new IllegalStateException("User data has been migrated to the compact SQL schema, " +
+                        "but 'compact-schema' is disabled. Enable it again to continue using this database.");
+            }
         }
 
         if (!tableExists) {
-            applySchema();
+            applySchema(SCHEMA_DIRECTORY);
+        }
+
+        if (this.compactSchema) {
+            if (!compactTablesExist) {
+                applySchema(COMPACT_SCHEMA_DIRECTORY);
+            }
+            migrateToCompactSchema();
         }
     }
 
-    private void applySchema() throws IOException, SQLException {
+    private void applySchema(String directory) throws IOException, SQLException {
         List<String> statements;
 
-        String schemaFileName = "me/lucko/luckperms/schema/" + this.connectionFactory.getImplementationName().toLowerCase() + ".sql";
+        String schemaFileName = directory + this.connectionFactory.getImplementationName().toLowerCase() + ".sql";
         try (InputStream is = this.plugin.getBootstrap().getResourceStream(schemaFileName)) {
             if (is == null) {
                 throw new IOException("Couldn't locate schema file for " + this.connectionFactory.getImplementationName());
@@ -207,6 +280,99 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    /**
+     * Moves user nodes from the legacy user_permissions table into the compact
+     * user_nodes table.
+     *
+     * <p>Users are moved a page at a time, each page in its own transaction, so
+     * an interrupted migration carries on from where it left off the next time
+     * the plugin starts. Rows written to the legacy table by servers which have
+     * not yet been switched over are picked up in the same way.</p>
+     *
+     * @throws SQLException if an error occurs
+     */
+    private void migrateToCompactSchema() throws SQLException {
+        int migrated = 0;
+        while (true) {
+            try (Connection c = this.connectionFactory.getConnection()) {
+                List<String> page = new ArrayList<>(COMPACT_SCHEMA_PAGE_SIZE);
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT_DISTINCT_PAGE))) {
+                    ps.setString(1, "");
+                    ps.setInt(2, COMPACT_SCHEMA_PAGE_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            page.add(rs.getString("uuid"));
+                        }
+                    }
+                }
+
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                if (migrated == 0) {
+                    this.plugin.getLogger().info("Moving user data into the compact SQL schema, this may take a while...");
+                }
+
+                boolean autoCommit = c.getAutoCommit();
+                c.setAutoCommit(false);
+                try {
+                    for (List<String> batch : Iterators.divideIterable(page, MAX_IN_CLAUSE_SIZE)) {
+                        migrateToCompactSchemaBatch(c, batch);
+                    }
+                    c.commit();
+                } catch (SQLException e) {
+                    c.rollback();
+                    throw e;
+                } finally {
+                    c.setAutoCommit(autoCommit);
+                }
+
+                migrated += page.size();
+            }
+
+            this.plugin.getLogger().info("Moved " + migrated + " users into the compact SQL schema");
+        }
+    }
+
+    private void migrateToCompactSchemaBatch(Connection c, List<String> batch) throws SQLException {
+        Map<UUID, List<SqlNode>> nodes = new HashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(withInClause(USER_PERMISSIONS_SELECT_BY_UUIDS, batch.size())))) {
+            for (int i = 0; i < batch.size(); i++) {
+                ps.setString(i + 1, batch.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // rows with an invalid uuid could never be loaded, so are dropped
+                    UUID uuid = Uuids.fromString(rs.getString("uuid"));
+                    if (uuid != null) {
+                        nodes.computeIfAbsent(uuid, x -> new ArrayList<>()).add(readNode(rs));
+                    }
+                }
+            }
+        }
+
+        Map<String, Integer> permissionIds = resolvePermissionIds(c, nodes.values().stream().flatMap(List::stream).collect(Collectors.toList()));
+
+        try (PreparedStatement insertNodes = c.prepareStatement(this.statementProcessor.apply(USER_NODES_INSERT));
+             PreparedStatement deleteLegacyNodes = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE))) {
+
+            for (Map.Entry<UUID, List<SqlNode>> entry : nodes.entrySet()) {
+                for (SqlNode node : entry.getValue()) {
+                    writeUserNode(insertNodes, entry.getKey(), node, permissionIds);
+                    insertNodes.addBatch();
+                }
+            }
+            for (String uuid : batch) {
+                deleteLegacyNodes.setString(1, uuid);
+                deleteLegacyNodes.addBatch();
+            }
+
+            insertNodes.executeBatch();
+            deleteLegacyNodes.executeBatch();
+        }
+    }
+
     @Override
     public void shutdown() {
         try {
@@ -234,7 +400,7 @@ public class SqlStorage implements StorageImplementation {
     @Override
     public Log getLog() throws SQLException {
         final Log.Builder log = Log.builder();
-        try (Connection c = this.connectionFactory.getConnection()) {
+        try (Connection c = this.connectionFactory.getReadConnection()) {
             try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(ACTION_SELECT_ALL))) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
@@ -249,19 +415,138 @@ public class SqlStorage implements StorageImplementation {
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws SQLException {
         try (Connection c = this.connectionFactory.getConnection()) {
+            BulkUpdateStatistics statistics = bulkUpdate.getStatistics();
+
             if (bulkUpdate.getDataType().isIncludingUsers()) {
-                String table = this.statementProcessor.apply("{prefix}user_permissions");
-                try (PreparedStatement ps = bulkUpdate.buildAsSql().build(c, q -> q.replace("{table}", table))) {
-                    ps.execute();
+                if (this.compactSchema) {
+                    applyCompactBulkUpdate(c, bulkUpdate);
+                } else {
+                    applyBulkUpdate(c, bulkUpdate, "{prefix}user_permissions", "uuid", uuid -> statistics.recordUser(Uuids.fromString(uuid)));
                 }
             }
 
             if (bulkUpdate.getDataType().isIncludingGroups()) {
-                String table = this.statementProcessor.apply("{prefix}group_permissions");
-                try (PreparedStatement ps = bulkUpdate.buildAsSql().build(c, q -> q.replace("{table}", table))) {
-                    ps.execute();
+                applyBulkUpdate(c, bulkUpdate, "{prefix}group_permissions", "name", statistics::recordGroup);
+            }
+        }
+    }
+
+    private void applyBulkUpdate(Connection c, BulkUpdate bulkUpdate, String table, String holderColumn, Consumer<String> holderConsumer) throws SQLException {
+        String tableName = this.statementProcessor.apply(table);
+        Function<String, String> mapping = q -> q.replace("{table}", tableName);
+
+        // find the holders which are going to be affected before making any changes
+        PreparedStatementBuilder holders = bulkUpdate.buildAsSqlSelect("DISTINCT " + holderColumn);
+        try (PreparedStatement ps = holders.bind(prepareStreamingStatement(c, mapping.apply(holders.toSql())))) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    holderConsumer.accept(rs.getString(holderColumn));
+                }
+            }
+        }
+
+        if (bulkUpdate.isDryRun()) {
+            try (PreparedStatement ps = bulkUpdate.buildAsSqlSelect("COUNT(*)").build(c, mapping)) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        bulkUpdate.getStatistics().incrementAffectedNodes(rs.getInt(1));
+                    }
+                }
+            }
+        } else {
+            try (PreparedStatement ps = bulkUpdate.buildAsSql().build(c, mapping)) {
+                bulkUpdate.getStatistics().incrementAffectedNodes(ps.executeUpdate());
+            }
+        }
+    }
+
+    /**
+     * Applies a bulk update to the compact user_nodes table.
+     *
+     * <p>The permission is stored in a separate table, so the update can't be
+     * expressed as a single statement. Instead, matching rows are read a page at
+     * a time (in id order), the action is applied to each and the results are
+     * written back.</p>
+     *
+     * @param c the connection
+     * @param bulkUpdate the bulk update
+     * @throws SQLException if an error occurs
+     */
+    private void applyCompactBulkUpdate(Connection c, BulkUpdate bulkUpdate) throws SQLException {
+        long lastId = -1;
+        while (true) {
+            PreparedStatementBuilder builder = new PreparedStatementBuilder().append(USER_NODES_SELECT_ALL);
+            bulkUpdate.appendConstraintsAsSql(builder);
+            builder.append(bulkUpdate.getQueries().isEmpty() ? " WHERE" : " AND")
+                    .append(" n.id > " + lastId + " ORDER BY n.id LIMIT " + COMPACT_SCHEMA_PAGE_SIZE);
+
+            List<SqlNode> page = new ArrayList<>(COMPACT_SCHEMA_PAGE_SIZE);
+            Map<Long, UUID> holders = new HashMap<>();
+            try (PreparedStatement ps = builder.build(c, this.statementProcessor)) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        SqlNode node = readNode(rs);
+                        page.add(node);
+                        holders.put(node.getSqlId(), readUserUuid(rs));
+                        lastId = Math.max(lastId, node.getSqlId());
+                    }
+                }
+            }
+
+            List<Long> deleted = new ArrayList<>();
+            Map<Long, SqlNode> updated = new HashMap<>();
+            for (SqlNode node : page) {
+                Node result = bulkUpdate.apply(node.toNode());
+                if (result == null) {
+                    deleted.add(node.getSqlId());
+                } else {
+                    SqlNode sqlResult = SqlNode.fromNode(result);
+                    if (!sqlResult.equals(node)) {
+                        updated.put(node.getSqlId(), sqlResult);
+                    }
                 }
             }
+
+            for (Long id : Iterables.concat(deleted, updated.keySet())) {
+                bulkUpdate.getStatistics().recordUser(holders.get(id));
+            }
+            bulkUpdate.getStatistics().incrementAffectedNodes(deleted.size() + updated.size());
+
+            if (bulkUpdate.isDryRun()) {
+                deleted.clear();
+                updated.clear();
+            }
+
+            if (!deleted.isEmpty()) {
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_NODES_DELETE_SPECIFIC))) {
+                    for (long id : deleted) {
+                        ps.setLong(1, id);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            if (!updated.isEmpty()) {
+                Map<String, Integer> permissionIds = resolvePermissionIds(c, updated.values());
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_NODES_UPDATE))) {
+                    for (Map.Entry<Long, SqlNode> entry : updated.entrySet()) {
+                        SqlNode node = entry.getValue();
+                        ps.setInt(1, permissionIds.get(node.getPermission()));
+                        ps.setBoolean(2, node.getValue());
+                        ps.setString(3, node.getServer());
+                        ps.setString(4, node.getWorld());
+                        ps.setLong(5, node.getExpiry());
+                        ps.setString(6, GsonProvider.normal().toJson(ContextSetJsonSerializer.serializeContextSet(node.getContexts())));
+                        ps.setLong(7, entry.getKey());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+
+            if (page.size() < COMPACT_SCHEMA_PAGE_SIZE) {
+                return;
+            }
         }
     }
 
@@ -274,7 +559,7 @@ public class SqlStorage implements StorageImplementation {
             String primaryGroup = null;
             String savedUsername = null;
 
-            try (Connection c = this.connectionFactory.getConnection()) {
+            try (Connection c = this.connectionFactory.getReadConnection()) {
                 nodes = selectUserPermissions(new ArrayList<>(), c, user.getUniqueId());
 
                 SqlPlayerData playerData = selectPlayerData(c, user.getUniqueId());
@@ -350,11 +635,11 @@ public class SqlStorage implements StorageImplementation {
     @Override
     public Set<UUID> getUniqueUsers() throws SQLException {
         Set<UUID> uuids = new HashSet<>();
-        try (Connection c = this.connectionFactory.getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT_DISTINCT))) {
+        try (Connection c = this.connectionFactory.getReadConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(userNodesQuery(USER_PERMISSIONS_SELECT_DISTINCT, USER_NODES_SELECT_DISTINCT))) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        UUID uuid = Uuids.fromString(rs.getString("uuid"));
+                        UUID uuid = readUserUuid(rs);
                         if (uuid != null) {
                             uuids.add(uuid);
                         }
@@ -365,17 +650,203 @@ public class SqlStorage implements StorageImplementation {
         return uuids;
     }
 
+    @Override
+    public void iterateUserData(int pageSize, Throwing.Consumer<List<UserDataRecord>> consumer) throws Exception {
+        Object lastUuid = this.compactSchema ? new byte[0] : "";
+        while (true) {
+            List<Object> page = new ArrayList<>(pageSize);
+            Map<UUID, List<Node>> nodes = new HashMap<>();
+            Map<UUID, SqlPlayerData> playerData = new HashMap<>();
+
+            try (Connection c = this.connectionFactory.getConnection()) {
+                try (PreparedStatement ps = c.prepareStatement(userNodesQuery(USER_PERMISSIONS_SELECT_DISTINCT_PAGE, USER_NODES_SELECT_DISTINCT_PAGE))) {
+                    ps.setObject(1, lastUuid);
+                    ps.setInt(2, pageSize);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            page.add(rs.getObject("uuid"));
+                        }
+                    }
+                }
+
+                if (page.isEmpty()) {
+                    return;
+                }
+
+                for (List<Object> batch : Iterators.divideIterable(page, MAX_IN_CLAUSE_SIZE)) {
+                    try (PreparedStatement ps = c.prepareStatement(userNodesQuery(withInClause(USER_PERMISSIONS_SELECT_BY_UUIDS, batch.size()), withInClause(USER_NODES_SELECT_BY_UUIDS, batch.size())))) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            ps.setObject(i + 1, batch.get(i));
+                        }
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                UUID uuid = readUserUuid(rs);
+                                if (uuid != null) {
+                                    nodes.computeIfAbsent(uuid, x -> new ArrayList<>()).add(readNode(rs).toNode());
+                                }
+                            }
+                        }
+                    }
+
+                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(withInClause(PLAYER_SELECT_BY_UUIDS, batch.size())))) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            ps.setString(i + 1, String.valueOf(toUserUuid(batch.get(i))));
+                        }
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                UUID uuid = Uuids.fromString(rs.getString("uuid"));
+                                if (uuid != null) {
+                                    playerData.put(uuid, new SqlPlayerData(rs.getString("primary_group"), rs.getString("username")));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            List<UserDataRecord> records = new ArrayList<>(page.size());
+            for (Object key : page) {
+                UUID uuid = toUserUuid(key);
+                if (uuid == null) {
+                    continue;
+                }
+
+                SqlPlayerData data = playerData.get(uuid);
+                String username = data == null || data.username == null || data.username.equals("null") ? null : data.username;
+                String primaryGroup = data == null ? null : data.primaryGroup;
+                records.add(new UserDataRecord(uuid, username, primaryGroup, nodes.getOrDefault(uuid, Collections.emptyList())));
+            }
+            consumer.accept(records);
+
+            if (page.size() < pageSize) {
+                return;
+            }
+            lastUuid = page.get(page.size() - 1);
+        }
+    }
+
+    @Override
+    public void saveUserData(List<UserDataRecord> records, boolean merge) throws SQLException {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        try (Connection c = this.connectionFactory.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                for (List<UserDataRecord> batch : Iterators.divideIterable(records, MAX_IN_CLAUSE_SIZE)) {
+                    saveUserDataBatch(c, batch, merge);
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void saveUserDataBatch(Connection c, List<UserDataRecord> batch, boolean merge) throws SQLException {
+        // read the existing nodes & player rows for the whole batch
+        Map<UUID, Set<SqlNode>> remoteNodes = new HashMap<>();
+        try (PreparedStatement ps = c.prepareStatement(userNodesQuery(withInClause(USER_PERMISSIONS_SELECT_BY_UUIDS, batch.size()), withInClause(USER_NODES_SELECT_BY_UUIDS, batch.size())))) {
+            for (int i = 0; i < batch.size(); i++) {
+                setUserUuid(ps, i + 1, batch.get(i).getUniqueId());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    UUID uuid = readUserUuid(rs);
+                    if (uuid != null) {
+                        remoteNodes.computeIfAbsent(uuid, x -> new HashSet<>()).add(readNode(rs));
+                    }
+                }
+            }
+        }
+
+        Set<String> existingPlayers = new HashSet<>();
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(withInClause(PLAYER_SELECT_UUIDS_BY_UUIDS, batch.size())))) {
+            for (int i = 0; i < batch.size(); i++) {
+                ps.setString(i + 1, batch.get(i).getUniqueId().toString());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    existingPlayers.add(rs.getString("uuid"));
+                }
+            }
+        }
+
+        Map<UUID, Set<SqlNode>> localNodes = new HashMap<>();
+        for (UserDataRecord record : batch) {
+            localNodes.put(record.getUniqueId(), record.getNodes().stream().map(SqlNode::fromNode).collect(Collectors.toSet()));
+        }
+        Map<String, Integer> permissionIds = resolvePermissionIds(c, localNodes.values().stream().flatMap(Set::stream).collect(Collectors.toList()));
+
+        try (PreparedStatement insertNodes = c.prepareStatement(userNodesQuery(USER_PERMISSIONS_INSERT, USER_NODES_INSERT));
+             PreparedStatement deleteNodes = c.prepareStatement(userNodesQuery(USER_PERMISSIONS_DELETE_SPECIFIC, USER_NODES_DELETE_SPECIFIC));
+             PreparedStatement insertPlayers = c.prepareStatement(this.statementProcessor.apply(PLAYER_INSERT));
+             PreparedStatement updatePlayers = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID));
+             PreparedStatement updateUsernames = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_USERNAME_FOR_UUID))) {
+
+            for (UserDataRecord record : batch) {
+                String uuid = record.getUniqueId().toString();
+
+                Set<SqlNode> local = localNodes.get(record.getUniqueId());
+                Set<SqlNode> remote = remoteNodes.getOrDefault(record.getUniqueId(), Collections.emptySet());
+
+                for (SqlNode node : getMissingFromRemote(local, remote)) {
+                    writeUserNode(insertNodes, record.getUniqueId(), node, permissionIds);
+                    insertNodes.addBatch();
+                }
+                if (!merge) {
+                    for (SqlNode node : getMissingFromLocal(local, remote)) {
+                        deleteNodes.setLong(1, node.getSqlId());
+                        deleteNodes.addBatch();
+                    }
+                }
+
+                if (existingPlayers.contains(uuid)) {
+                    if (record.getPrimaryGroup() != null) {
+                        updatePlayers.setString(1, record.getPrimaryGroup());
+                        updatePlayers.setString(2, uuid);
+                        updatePlayers.addBatch();
+                    }
+                    if (record.getUsername() != null) {
+                        updateUsernames.setString(1, record.getUsername().toLowerCase());
+                        updateUsernames.setString(2, uuid);
+                        updateUsernames.addBatch();
+                    }
+                } else {
+                    insertPlayers.setString(1, uuid);
+                    insertPlayers.setString(2, record.getUsername() == null ? "null" : record.getUsername().toLowerCase());
+                    insertPlayers.setString(3, record.getPrimaryGroup() == null ? GroupManager.DEFAULT_GROUP_NAME : record.getPrimaryGroup());
+                    insertPlayers.addBatch();
+                }
+            }
+
+            deleteNodes.executeBatch();
+            insertNodes.executeBatch();
+            insertPlayers.executeBatch();
+            updatePlayers.executeBatch();
+            updateUsernames.executeBatch();
+        }
+    }
+
     @Override
     public <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws SQLException {
-        PreparedStatementBuilder builder = new PreparedStatementBuilder().append(USER_PERMISSIONS_SELECT_PERMISSION);
-        constraint.getConstraint().appendSql(builder, "permission");
+        PreparedStatementBuilder builder = new PreparedStatementBuilder().append(this.compactSchema ? USER_NODES_SELECT_PERMISSION : USER_PERMISSIONS_SELECT_PERMISSION);
+        constraint.getConstraint().appendSql(builder, this.compactSchema ? "p.permission" : "permission");
 
         List<NodeEntry<UUID, N>> held = new ArrayList<>();
-        try (Connection c = this.connectionFactory.getConnection()) {
+        try (Connection c = this.connectionFactory.getReadConnection()) {
             try (PreparedStatement ps = builder.build(c, this.statementProcessor)) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        UUID holder = UUID.fromString(rs.getString("uuid"));
+                        UUID holder = readUserUuid(rs);
+                        if (holder == null) {
+                            continue;
+                        }
                         Node node = readNode(rs).toNode();
 
                         N match = constraint.filterConstraintMatch(node);
@@ -435,28 +906,38 @@ public class SqlStorage implements StorageImplementation {
 
     @Override
     public void loadAllGroups() throws SQLException {
-        Map<String, Collection<SqlNode>> groups = new HashMap<>();
+        Set<String> groups;
+        Set<String> withNodes = new HashSet<>();
         try (Connection c = this.connectionFactory.getConnection()) {
-            selectGroups(c).forEach(name -> groups.put(name, new ArrayList<>()));
-            selectAllGroupPermissions(groups, c);
+            groups = selectGroups(c);
+            streamAllGroupPermissions(c, groups, (name, nodes) -> {
+                applyGroupNodes(name, nodes);
+                withNodes.add(name);
+            });
         }
 
-        for (Map.Entry<String, Collection<SqlNode>> entry : groups.entrySet()) {
-            Group group = this.plugin.getGroupManager().getOrMake(entry.getKey());
-            group.getIoLock().lock();
-            try {
-                Collection<SqlNode> nodes = entry.getValue();
-                if (!nodes.isEmpty()) {
-                    group.setNodes(DataType.NORMAL, nodes.stream().map(SqlNode::toNode));
-                } else {
-                    group.clearNodes(DataType.NORMAL, null, false);
-                }
-            } finally {
-                group.getIoLock().unlock();
+        // clear any groups which don't have any nodes
+        for (String name : groups) {
+            if (!withNodes.contains(name)) {
+                applyGroupNodes(name, Collections.emptyList());
             }
         }
 
-        this.plugin.getGroupManager().retainAll(groups.keySet());
+        this.plugin.getGroupManager().retainAll(groups);
+    }
+
+    private void applyGroupNodes(String name, List<Node> nodes) {
+        Group group = this.plugin.getGroupManager().getOrMake(name);
+        group.getIoLock().lock();
+        try {
+            if (!nodes.isEmpty()) {
+                group.setNodes(DataType.NORMAL, nodes.stream());
+            } else {
+                group.clearNodes(DataType.NORMAL, null, false);
+            }
+        } finally {
+            group.getIoLock().unlock();
+        }
     }
 
     @Override
@@ -514,7 +995,7 @@ public class SqlStorage implements StorageImplementation {
         constraint.getConstraint().appendSql(builder, "permission");
 
         List<NodeEntry<String, N>> held = new ArrayList<>();
-        try (Connection c = this.connectionFactory.getConnection()) {
+        try (Connection c = this.connectionFactory.getReadConnection()) {
             try (PreparedStatement ps = builder.build(c, this.statementProcessor)) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
@@ -691,7 +1172,7 @@ public class SqlStorage implements StorageImplementation {
     @Override
     public UUID getPlayerUniqueId(String username) throws SQLException {
         username = username.toLowerCase();
-        try (Connection c = this.connectionFactory.getConnection()) {
+        try (Connection c = this.connectionFactory.getReadConnection()) {
             try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_UUID_BY_USERNAME))) {
                 ps.setString(1, username);
                 try (ResultSet rs = ps.executeQuery()) {
@@ -706,7 +1187,7 @@ public class SqlStorage implements StorageImplementation {
 
     @Override
     public String getPlayerName(UUID uniqueId) throws SQLException {
-        try (Connection c = this.connectionFactory.getConnection()) {
+        try (Connection c = this.connectionFactory.getReadConnection()) {
             try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_USERNAME_BY_UUID))) {
                 ps.setString(1, uniqueId.toString());
                 try (ResultSet rs = ps.executeQuery()) {
@@ -719,6 +1200,33 @@ public class SqlStorage implements StorageImplementation {
         return null;
     }
 
+    @Override
+    public Map<UUID, String> getPlayerNames(Collection<UUID> uniqueIds) throws SQLException {
+        Map<UUID, String> names = new HashMap<>();
+        if (uniqueIds.isEmpty()) {
+            return names;
+        }
+
+        try (Connection c = this.connectionFactory.getReadConnection()) {
+            for (List<UUID> batch : Iterators.divideIterable(uniqueIds, MAX_IN_CLAUSE_SIZE)) {
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(withInClause(PLAYER_SELECT_USERNAMES_BY_UUIDS, batch.size())))) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        ps.setString(i + 1, batch.get(i).toString());
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            UUID uuid = Uuids.fromString(rs.getString("uuid"));
+                            if (uuid != null) {
+                                names.put(uuid, rs.getString("username"));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
     private static void writeAction(Action action, PreparedStatement ps) throws SQLException {
         ps.setLong(1, action.getTimestamp().getEpochSecond());
         ps.setString(2, action.getSource().getUniqueId().toString());
@@ -742,6 +1250,10 @@ public class SqlStorage implements StorageImplementation {
                 .build();
     }
 
+    private static String withInClause(String statement, int size) {
+        return statement.replace("{values}", String.join(",", Collections.nCopies(size, "?")));
+    }
+
     private static SqlNode readNode(ResultSet rs) throws SQLException {
         long id = rs.getLong("id");
         String permission = rs.getString("permission");
@@ -755,6 +1267,10 @@ public class SqlStorage implements StorageImplementation {
 
     private static void writeNode(SqlNode nd, PreparedStatement ps) throws SQLException {
         ps.setString(2, nd.getPermission());
+        writeNodeFields(nd, ps);
+    }
+
+    private static void writeNodeFields(SqlNode nd, PreparedStatement ps) throws SQLException {
         ps.setBoolean(3, nd.getValue());
         ps.setString(4, nd.getServer());
         ps.setString(5, nd.getWorld());
@@ -762,6 +1278,100 @@ public class SqlStorage implements StorageImplementation {
         ps.setString(7, GsonProvider.normal().toJson(ContextSetJsonSerializer.serializeContextSet(nd.getContexts())));
     }
 
+    private String userNodesQuery(String legacyStatement, String compactStatement) {
+        return this.statementProcessor.apply(this.compactSchema ? compactStatement : legacyStatement);
+    }
+
+    private void setUserUuid(PreparedStatement ps, int index, UUID uuid) throws SQLException {
+        if (this.compactSchema) {
+            ps.setBytes(index, Uuids.toByteArray(uuid));
+        } else {
+            ps.setString(index, uuid.toString());
+        }
+    }
+
+    private UUID readUserUuid(ResultSet rs) throws SQLException {
+        return toUserUuid(rs.getObject("uuid"));
+    }
+
+    private UUID toUserUuid(Object key) {
+        return this.compactSchema ? Uuids.fromByteArray((byte[]) key) : Uuids.fromString((String) key);
+    }
+
+    private void writeUserNode(PreparedStatement ps, UUID user, SqlNode node, Map<String, Integer> permissionIds) throws SQLException {
+        setUserUuid(ps, 1, user);
+        if (this.compactSchema) {
+            ps.setInt(2, permissionIds.get(node.getPermission()));
+            writeNodeFields(node, ps);
+        } else {
+            writeNode(node, ps);
+        }
+    }
+
+    /**
+     * Looks up the ids of the given nodes' permissions in the permission_keys table,
+     * adding any which aren't already present.
+     *
+     * <p>Returns an empty map if the compact schema isn't in use.</p>
+     *
+     * @param c the connection
+     * @param nodes the nodes
+     * @return a map of permission to id
+     * @throws SQLException if an error occurs
+     */
+    private Map<String, Integer> resolvePermissionIds(Connection c, Collection<SqlNode> nodes) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        if (!this.compactSchema) {
+            return ids;
+        }
+
+        // sorted, so concurrent inserts always lock keys in the same order
+        Set<String> missing = new TreeSet<>();
+        for (SqlNode node : nodes) {
+            Integer id = this.permissionIds.getIfPresent(node.getPermission());
+            if (id != null) {
+                ids.put(node.getPermission(), id);
+            } else {
+                missing.add(node.getPermission());
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return ids;
+        }
+
+        String insert = PERMISSION_KEYS_INSERT.getOrDefault(this.connectionFactory.getImplementationName(), PERMISSION_KEYS_INSERT_DEFAULT);
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(insert))) {
+            for (String permission : missing) {
+                ps.setString(1, permission);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        // ids inserted as part of a transaction might yet be rolled back, so only
+        // remember them once they're known to be committed
+        boolean committed = c.getAutoCommit();
+        for (List<String> batch : Iterators.divideIterable(missing, MAX_IN_CLAUSE_SIZE)) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(withInClause(PERMISSION_KEYS_SELECT, batch.size())))) {
+                for (int i = 0; i < batch.size(); i++) {
+                    ps.setString(i + 1, batch.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String permission = rs.getString("permission");
+                        int id = rs.getInt("id");
+                        ids.put(permission, id);
+                        if (committed) {
+                            this.permissionIds.put(permission, id);
+                        }
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
     private static Set<SqlNode> getMissingFromRemote(Set<SqlNode> local, Set<SqlNode> remote) {
         // entries in local but not remote need to be added
         Set<SqlNode> missingFromRemote = new HashSet<>(local);
@@ -777,8 +1387,8 @@ public class SqlStorage implements StorageImplementation {
     }
 
     private <T extends Collection<SqlNode>> T selectUserPermissions(T nodes, Connection c, UUID user) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT))) {
-            ps.setString(1, user.toString());
+        try (PreparedStatement ps = c.prepareStatement(userNodesQuery(USER_PERMISSIONS_SELECT, USER_NODES_SELECT))) {
+            setUserUuid(ps, 1, user);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     nodes.add(readNode(rs));
@@ -802,8 +1412,8 @@ public class SqlStorage implements StorageImplementation {
     }
 
     private void deleteUser(Connection c, UUID user) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE))) {
-            ps.setString(1, user.toString());
+        try (PreparedStatement ps = c.prepareStatement(userNodesQuery(USER_PERMISSIONS_DELETE, USER_NODES_DELETE))) {
+            setUserUuid(ps, 1, user);
             ps.execute();
         }
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID))) {
@@ -815,7 +1425,7 @@ public class SqlStorage implements StorageImplementation {
 
     private void updateUserPermissions(Connection c, UUID user, Set<SqlNode> add, Set<SqlNode> delete) throws SQLException {
         if (!delete.isEmpty()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE_SPECIFIC))) {
+            try (PreparedStatement ps = c.prepareStatement(userNodesQuery(USER_PERMISSIONS_DELETE_SPECIFIC, USER_NODES_DELETE_SPECIFIC))) {
                 for (SqlNode node : delete) {
                     ps.setLong(1, node.getSqlId());
                     ps.addBatch();
@@ -824,10 +1434,10 @@ public class SqlStorage implements StorageImplementation {
             }
         }
         if (!add.isEmpty()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_INSERT))) {
+            Map<String, Integer> permissionIds = resolvePermissionIds(c, add);
+            try (PreparedStatement ps = c.prepareStatement(userNodesQuery(USER_PERMISSIONS_INSERT, USER_NODES_INSERT))) {
                 for (SqlNode node : add) {
-                    ps.setString(1, user.toString());
-                    writeNode(node, ps);
+                    writeUserNode(ps, user, node, permissionIds);
                     ps.addBatch();
                 }
                 ps.executeBatch();
@@ -886,20 +1496,68 @@ public class SqlStorage implements StorageImplementation {
         return nodes;
     }
 
-    private void selectAllGroupPermissions(Map<String, Collection<SqlNode>> nodes, Connection c) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_SELECT_ALL))) {
+    /**
+     * Streams the nodes of every group using a single query, passing each group's
+     * nodes to the consumer as soon as all of its rows have been read.
+     *
+     * <p>Rows are ordered by group name, so only the nodes for one group are
+     * held in memory at a time.</p>
+     *
+     * @param c the connection
+     * @param groups the names of the groups to read nodes for
+     * @param consumer the consumer
+     * @throws SQLException if an error occurs
+     */
+    private void streamAllGroupPermissions(Connection c, Set<String> groups, BiConsumer<String, List<Node>> consumer) throws SQLException {
+        // postgres will only use a cursor to stream results when auto-commit is disabled
+        boolean disableAutoCommit = this.connectionFactory.getImplementationName().equals("PostgreSQL") && c.getAutoCommit();
+        if (disableAutoCommit) {
+            c.setAutoCommit(false);
+        }
+
+        try (PreparedStatement ps = prepareStreamingStatement(c, this.statementProcessor.apply(GROUP_PERMISSIONS_SELECT_ALL))) {
             try (ResultSet rs = ps.executeQuery()) {
+                String current = null;
+                List<Node> nodes = new ArrayList<>();
+
                 while (rs.next()) {
                     String holder = rs.getString("name");
-                    Collection<SqlNode> list = nodes.get(holder);
-                    if (list != null) {
-                        list.add(readNode(rs));
+                    if (!holder.equals(current)) {
+                        if (current != null && !nodes.isEmpty()) {
+                            consumer.accept(current, nodes);
+                            nodes = new ArrayList<>();
+                        }
+                        current = holder;
+                    }
+
+                    if (groups.contains(holder)) {
+                        nodes.add(readNode(rs).toNode());
                     }
                 }
+
+                if (current != null && !nodes.isEmpty()) {
+                    consumer.accept(current, nodes);
+                }
+            }
+        } finally {
+            if (disableAutoCommit) {
+                c.commit();
+                c.setAutoCommit(true);
             }
         }
     }
 
+    private PreparedStatement prepareStreamingStatement(Connection c, String sql) throws SQLException {
+        PreparedStatement ps = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (this.connectionFactory.getImplementationName().equals("MySQL")) {
+            // the MySQL driver only streams rows one at a time if the fetch size is Integer.MIN_VALUE
+            ps.setFetchSize(Integer.MIN_VALUE);
+        } else {
+            ps.setFetchSize(STREAMING_FETCH_SIZE);
+        }
+        return ps;
+    }
+
     private void deleteGroupPermissions(Connection c, String group) throws SQLException {
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_DELETE))) {
             ps.setString(1, group);
@@ -974,6 +1632,14 @@ public class SqlStorage implements StorageImplementation {
         return tracks;
     }
 
+    private boolean hasCompactUserData(Connection c) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            try (ResultSet rs = s.executeQuery(this.statementProcessor.apply(USER_NODES_SELECT_ANY))) {
+                return rs.next();
+            }
+        }
+    }
+
     private static boolean tableExists(Connection connection, String table) throws SQLException {
         try (ResultSet rs = connection.getMetaData().getTables(null, null, "%", null)) {
             while (rs.next()) {
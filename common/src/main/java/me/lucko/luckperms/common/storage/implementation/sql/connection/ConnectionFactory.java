@@ -49,4 +49,17 @@ public interface ConnectionFactory {
 
     Connection getConnection() throws SQLException;
 
+    /**
+     * Gets a connection which will only be used to read data.
+     *
+     * <p>Implementations which can't otherwise serve reads concurrently with
+     * writes may return a connection from a separate pool of readers.</p>
+     *
+     * @return a connection
+     * @throws SQLException if an error occurs
+     */
+    default Connection getReadConnection() throws SQLException {
+        return getConnection();
+    }
+
 }
@@ -31,24 +31,179 @@ import me.lucko.luckperms.common.storage.implementation.sql.connection.Connectio
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Abstract {@link ConnectionFactory} for databases stored in a local file.
+ *
+ * <p>All writes go through a single shared connection, which is used by one thread
+ * at a time: it is claimed by {@link #getConnection()} and given back when it is
+ * closed, so a transaction can't be interleaved with statements from elsewhere.
+ * Reads are served by a small pool of read-only connections, so they aren't held
+ * up by a long running write.</p>
+ */
 abstract class FlatfileConnectionFactory implements ConnectionFactory {
     protected static final DecimalFormat DF = new DecimalFormat("#.##");
 
+    /** The maximum number of read-only connections to open */
+    private static final int MAX_READ_CONNECTIONS = 4;
+
+    /** How long to wait for a read-only connection before falling back to the write connection */
+    private static final long READ_CONNECTION_TIMEOUT_MILLIS = 1000;
+
     protected final Path file;
 
+    // the connection used for writes, and the lock held by the thread using it
+    private NonClosableConnection connection;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // the read-only connections which have been opened, and those not currently in use
+    private final List<NonClosableConnection> readConnections = new ArrayList<>();
+    private final BlockingQueue<NonClosableConnection> idleReadConnections = new LinkedBlockingQueue<>();
+
     FlatfileConnectionFactory(Path file) {
         this.file = file;
     }
 
+    /**
+     * Opens a new connection to the database.
+     *
+     * @param readOnly if the connection will only be used to read data
+     * @return the connection, or null
+     * @throws SQLException if an error occurs
+     */
+    protected abstract Connection createConnection(boolean readOnly) throws SQLException;
+
     @Override
     public void init(LuckPermsPlugin plugin) {
 
     }
 
+    @Override
+    public Connection getConnection() throws SQLException {
+        // held until the connection is closed, see releaseConnection
+        this.writeLock.lock();
+        try {
+            if (this.connection == null || this.connection.isClosed()) {
+                Connection connection = createConnection(false);
+                if (connection != null) {
+                    this.connection = NonClosableConnection.wrap(connection, this::releaseConnection);
+                }
+            }
+
+            if (this.connection == null) {
+                throw new SQLException("Unable to get a connection.");
+            }
+
+            return this.connection;
+        } catch (SQLException | RuntimeException e) {
+            this.writeLock.unlock();
+            throw e;
+        }
+    }
+
+    private void releaseConnection(NonClosableConnection connection) {
+        if (this.writeLock.isHeldByCurrentThread()) {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        NonClosableConnection connection = pollReadConnection();
+        if (connection != null) {
+            return connection;
+        }
+
+        connection = openReadConnection();
+        if (connection != null) {
+            return connection;
+        }
+
+        // all of the readers are busy - wait for one to become free
+        try {
+            connection = this.idleReadConnections.poll(READ_CONNECTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted whilst waiting for a connection", e);
+        }
+
+        if (connection != null && connection.isClosed()) {
+            // the reader has died - drop it and open a replacement in its place
+            synchronized (this.readConnections) {
+                this.readConnections.remove(connection);
+            }
+            connection = openReadConnection();
+        }
+
+        if (connection == null) {
+            return getConnection();
+        }
+        return connection;
+    }
+
+    private NonClosableConnection openReadConnection() throws SQLException {
+        synchronized (this.readConnections) {
+            if (this.readConnections.size() >= MAX_READ_CONNECTIONS) {
+                return null;
+            }
+
+            Connection created = createConnection(true);
+            if (created == null) {
+                throw new SQLException("Unable to get a connection.");
+            }
+
+            NonClosableConnection connection = NonClosableConnection.wrap(created, this::releaseReadConnection);
+            this.readConnections.add(connection);
+            return connection;
+        }
+    }
+
+    private NonClosableConnection pollReadConnection() throws SQLException {
+        NonClosableConnection connection;
+        while ((connection = this.idleReadConnections.poll()) != null) {
+            if (!connection.isClosed()) {
+                return connection;
+            }
+
+            synchronized (this.readConnections) {
+                this.readConnections.remove(connection);
+            }
+        }
+        return null;
+    }
+
+    private void releaseReadConnection(NonClosableConnection connection) {
+        if (!this.idleReadConnections.contains(connection)) {
+            this.idleReadConnections.offer(connection);
+        }
+    }
+
+    @Override
+    public void shutdown() throws Exception {
+        if (this.connection != null) {
+            this.connection.shutdown();
+        }
+
+        synchronized (this.readConnections) {
+            for (NonClosableConnection connection : this.readConnections) {
+                connection.shutdown();
+            }
+            this.readConnections.clear();
+            this.idleReadConnections.clear();
+        }
+    }
+
     protected Path getWriteFile() {
         return this.file;
     }
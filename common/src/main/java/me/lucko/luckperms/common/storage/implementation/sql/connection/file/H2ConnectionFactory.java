@@ -45,8 +45,6 @@ public class H2ConnectionFactory extends FlatfileConnectionFactory {
 
     // the driver used to obtain connections
     private final Driver driver;
-    // the active connection
-    private NonClosableConnection connection;
 
     public H2ConnectionFactory(LuckPermsPlugin plugin, Path file) {
         super(file);
@@ -78,26 +76,14 @@ public class H2ConnectionFactory extends FlatfileConnectionFactory {
     }
 
     @Override
-    public synchronized Connection getConnection() throws SQLException {
-        if (this.connection == null || this.connection.isClosed()) {
-            Connection connection = this.driver.connect("jdbc:h2:" + this.file.toString(), new Properties());
-            if (connection != null) {
-                this.connection = NonClosableConnection.wrap(connection);
-            }
-        }
-
-        if (this.connection == null) {
-            throw new SQLException("Unable to get a connection.");
-        }
-
-        return this.connection;
-    }
-
-    @Override
-    public void shutdown() throws Exception {
-        if (this.connection != null) {
-            this.connection.shutdown();
+    protected Connection createConnection(boolean readOnly) throws SQLException {
+        // the MVStore engine is multi-version, so readers on other connections
+        // see the last committed state instead of waiting for the writer
+        Connection connection = this.driver.connect("jdbc:h2:" + this.file.toString(), new Properties());
+        if (connection != null && readOnly) {
+            connection.setReadOnly(true);
         }
+        return connection;
     }
 
     @Override
@@ -34,6 +34,7 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.function.Consumer;
 
 import static net.bytebuddy.matcher.ElementMatchers.isDeclaredBy;
 import static net.bytebuddy.matcher.ElementMatchers.isFinal;
@@ -41,6 +42,9 @@ import static net.bytebuddy.matcher.ElementMatchers.not;
 
 /**
  * A wrapper around a {@link Connection} which blocks usage of the default {@link #close()} method.
+ *
+ * <p>A close action can optionally be given, which is called in place of actually closing
+ * the connection, for example to return it to a pool.</p>
  */
 public abstract class NonClosableConnection implements Connection {
 
@@ -79,7 +83,22 @@ public abstract class NonClosableConnection implements Connection {
         }
     }
 
+    /**
+     * Creates a {@link NonClosableConnection} that delegates calls to the given {@link Connection},
+     * and calls the given action when {@link #close()} is called.
+     *
+     * @param connection the connection to wrap
+     * @param closeAction the action to call on close
+     * @return a non closable connection
+     */
+    static NonClosableConnection wrap(Connection connection, Consumer<? super NonClosableConnection> closeAction) {
+        NonClosableConnection wrapped = wrap(connection);
+        wrapped.closeAction = closeAction;
+        return wrapped;
+    }
+
     protected final Connection delegate;
+    private Consumer<? super NonClosableConnection> closeAction;
 
     protected NonClosableConnection(Connection delegate) {
         this.delegate = delegate;
@@ -94,7 +113,10 @@ public abstract class NonClosableConnection implements Connection {
 
     @Override
     public final void close() throws SQLException {
-        // do nothing
+        // do nothing, other than run the close action if there is one
+        if (this.closeAction != null) {
+            this.closeAction.accept(this);
+        }
     }
 
     @Override
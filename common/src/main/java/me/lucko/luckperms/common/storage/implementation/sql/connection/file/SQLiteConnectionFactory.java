@@ -36,6 +36,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.EnumSet;
 import java.util.Properties;
 import java.util.function.Function;
@@ -44,8 +45,6 @@ public class SQLiteConnectionFactory extends FlatfileConnectionFactory {
 
     // the method invoked to obtain new connection instances
     private final Method createConnectionMethod;
-    // the active connection
-    private NonClosableConnection connection;
 
     public SQLiteConnectionFactory(LuckPermsPlugin plugin, Path file) {
         super(file);
@@ -75,7 +74,7 @@ public class SQLiteConnectionFactory extends FlatfileConnectionFactory {
         return "SQLite";
     }
 
-    private Connection createConnection(String url) throws SQLException {
+    private Connection openConnection(String url) throws SQLException {
         try {
             return (Connection) this.createConnectionMethod.invoke(null, url, new Properties());
         } catch (IllegalAccessException e) {
@@ -89,26 +88,16 @@ public class SQLiteConnectionFactory extends FlatfileConnectionFactory {
     }
 
     @Override
-    public synchronized Connection getConnection() throws SQLException {
-        if (this.connection == null || this.connection.isClosed()) {
-            Connection connection = createConnection("jdbc:sqlite:" + this.file.toString());
-            if (connection != null) {
-                this.connection = NonClosableConnection.wrap(connection);
+    protected Connection createConnection(boolean readOnly) throws SQLException {
+        Connection connection = openConnection("jdbc:sqlite:" + this.file.toString());
+        if (connection != null) {
+            try (Statement s = connection.createStatement()) {
+                // in WAL mode, readers don't block the writer (and vice versa)
+                // the journal mode is persistent, so only needs to be set by the writer
+                s.execute(readOnly ? "PRAGMA query_only = true" : "PRAGMA journal_mode = WAL");
             }
         }
-
-        if (this.connection == null) {
-            throw new SQLException("Unable to get a connection.");
-        }
-
-        return this.connection;
-    }
-
-    @Override
-    public void shutdown() throws Exception {
-        if (this.connection != null) {
-            this.connection.shutdown();
-        }
+        return connection;
     }
 
     @Override
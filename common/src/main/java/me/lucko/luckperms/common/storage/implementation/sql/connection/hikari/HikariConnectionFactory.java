@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.storage.implementation.sql.connection.hikari;
 
 import com.google.common.collect.ImmutableList;
 import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariConfigMXBean;
 import com.zaxxer.hikari.HikariDataSource;
 
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -155,6 +156,26 @@ public abstract class HikariConnectionFactory implements ConnectionFactory {
         return connection;
     }
 
+    /**
+     * Grows the pool by one connection, to make up for a connection which
+     * is going to be held by the caller indefinitely.
+     */
+    public void reserveConnection() {
+        HikariConfigMXBean config = this.hikari.getHikariConfigMXBean();
+        config.setMaximumPoolSize(config.getMaximumPoolSize() + 1);
+        config.setMinimumIdle(config.getMinimumIdle() + 1);
+    }
+
+    /**
+     * Shrinks the pool again after a connection reserved using
+     * {@link #reserveConnection()} has been returned.
+     */
+    public void releaseConnection() {
+        HikariConfigMXBean config = this.hikari.getHikariConfigMXBean();
+        config.setMinimumIdle(Math.max(0, config.getMinimumIdle() - 1));
+        config.setMaximumPoolSize(Math.max(1, config.getMaximumPoolSize() - 1));
+    }
+
     private static void handleLinkageError(LinkageError linkageError, LuckPermsPlugin plugin) {
         List<String> noteworthyClasses = ImmutableList.of(
                 "org.slf4j.LoggerFactory",
@@ -0,0 +1,100 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.misc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import me.lucko.luckperms.common.util.CaffeineFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache of recently resolved uuid &lt;-&gt; username mappings, shared
+ * between all lookups made through the storage.
+ *
+ * <p>Entries are invalidated when player data is saved locally, and when a user
+ * update is received from another server. Other changes made elsewhere on the
+ * network (e.g. a player logging in with a new name on another server) may not
+ * be seen until the entry expires, so entries are only kept briefly.</p>
+ */
+public final class PlayerNameCache {
+    private static final int MAXIMUM_SIZE = 10_000;
+    private static final long EXPIRE_AFTER_WRITE_MINUTES = 2;
+
+    private final Cache<UUID, String> usernames = CaffeineFactory.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(EXPIRE_AFTER_WRITE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    private final Cache<String, UUID> uniqueIds = CaffeineFactory.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(EXPIRE_AFTER_WRITE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    private static boolean isValidUsername(String username) {
+        return username != null && !username.isEmpty() && !username.equals("null");
+    }
+
+    public void put(UUID uniqueId, String username) {
+        if (!isValidUsername(username)) {
+            return;
+        }
+
+        String previous = this.usernames.asMap().put(uniqueId, username);
+        if (previous != null && !previous.equalsIgnoreCase(username)) {
+            this.uniqueIds.asMap().remove(previous.toLowerCase(), uniqueId);
+        }
+        this.uniqueIds.put(username.toLowerCase(), uniqueId);
+    }
+
+    public void invalidate(UUID uniqueId) {
+        String previous = this.usernames.asMap().remove(uniqueId);
+        if (previous != null) {
+            this.uniqueIds.asMap().remove(previous.toLowerCase(), uniqueId);
+        }
+    }
+
+    public void putAll(Map<UUID, String> usernames) {
+        usernames.forEach(this::put);
+    }
+
+    public String getUsername(UUID uniqueId) {
+        return this.usernames.getIfPresent(uniqueId);
+    }
+
+    public Map<UUID, String> getUsernames(Collection<UUID> uniqueIds) {
+        return new HashMap<>(this.usernames.getAllPresent(uniqueIds));
+    }
+
+    public UUID getUniqueId(String username) {
+        return this.uniqueIds.getIfPresent(username.toLowerCase());
+    }
+
+}
@@ -25,11 +25,21 @@
 
 package me.lucko.luckperms.common.tasks;
 
+import me.lucko.luckperms.common.model.ExpiryQueue;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes expired temporary nodes.
+ *
+ * <p>Only the holders which the {@link ExpiryQueue} reports as due are audited,
+ * rather than every loaded group and user.</p>
+ */
 public class ExpireTemporaryTask implements Runnable {
     private final LuckPermsPlugin plugin;
 
@@ -39,23 +49,33 @@ public class ExpireTemporaryTask implements Runnable {
 
     @Override
     public void run() {
+        ExpiryQueue queue = this.plugin.getExpiryQueue();
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+
+        Set<PermissionHolder> due = queue.pollExpired(now);
+        if (due.isEmpty()) {
+            return;
+        }
+
         boolean groupChanges = false;
-        for (Group group : this.plugin.getGroupManager().getAll().values()) {
-            if (shouldSkip(group)) {
+        for (PermissionHolder holder : due) {
+            if (!isLoaded(holder)) {
                 continue;
             }
-            if (group.auditTemporaryNodes()) {
-                this.plugin.getStorage().saveGroup(group);
-                groupChanges = true;
+            if (shouldSkip(holder)) {
+                // try again on the next run
+                queue.schedule(holder, now);
+                continue;
             }
-        }
-
-        for (User user : this.plugin.getUserManager().getAll().values()) {
-            if (shouldSkip(user)) {
+            if (!holder.auditTemporaryNodes()) {
                 continue;
             }
-            if (user.auditTemporaryNodes()) {
-                this.plugin.getStorage().saveUser(user);
+
+            if (holder instanceof Group) {
+                this.plugin.getStorage().saveGroup((Group) holder);
+                groupChanges = true;
+            } else if (holder instanceof User) {
+                this.plugin.getStorage().saveUser((User) holder);
             }
         }
 
@@ -65,6 +85,16 @@ public class ExpireTemporaryTask implements Runnable {
         }
     }
 
+    // return true if the holder is still the instance held by its manager, false if it has been unloaded
+    private boolean isLoaded(PermissionHolder holder) {
+        if (holder instanceof Group) {
+            return this.plugin.getGroupManager().getIfLoaded(((Group) holder).getName()) == holder;
+        } else if (holder instanceof User) {
+            return this.plugin.getUserManager().getIfLoaded(((User) holder).getUniqueId()) == holder;
+        }
+        return false;
+    }
+
     // return true if the holder's io lock is currently held, false otherwise
     private static boolean shouldSkip(PermissionHolder holder) {
         // if the holder is currently being manipulated by the storage impl,
@@ -78,4 +108,4 @@ public class ExpireTemporaryTask implements Runnable {
         holder.getIoLock().unlock();
         return false;
     }
-}
\ No newline at end of file
+}
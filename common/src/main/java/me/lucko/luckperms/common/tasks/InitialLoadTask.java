@@ -0,0 +1,104 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.common.tasks;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+
+import net.luckperms.api.event.cause.CreationCause;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Performs the initial load of data from the storage when the plugin is enabled.
+ *
+ * <p>Unlike {@link SyncTask}, groups and tracks are loaded concurrently, and
+ * only the data required for the server to finish starting is loaded before
+ * {@link #run()} returns. Online users are reloaded and the caches for the
+ * default group are pre-warmed in the background.</p>
+ */
+public class InitialLoadTask {
+    private final LuckPermsPlugin plugin;
+
+    public InitialLoadTask(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Loads groups and tracks, and schedules the remaining work to run in the background.
+     *
+     * @return a future which completes once the background work has finished
+     */
+    public CompletableFuture<Void> run() {
+        if (this.plugin.getEventDispatcher().dispatchPreSync(false)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long start = System.nanoTime();
+
+        // Load groups and tracks at the same time
+        CompletableFuture.allOf(
+                this.plugin.getStorage().loadAllGroups(),
+                this.plugin.getStorage().loadAllTracks()
+        ).join();
+
+        if (!this.plugin.getGroupManager().isLoaded(GroupManager.DEFAULT_GROUP_NAME)) {
+            this.plugin.getStorage().createAndLoadGroup(GroupManager.DEFAULT_GROUP_NAME, CreationCause.INTERNAL).join();
+        }
+
+        this.plugin.performPlatformDataSync();
+
+        long duration = System.nanoTime() - start;
+        int groups = this.plugin.getGroupManager().getAll().size();
+        int tracks = this.plugin.getTrackManager().getAll().size();
+        this.plugin.getLogger().info("Loaded " + groups + " groups and " + tracks + " tracks in " +
+                TimeUnit.NANOSECONDS.toMillis(duration) + "ms (" + formatRate(groups + tracks, duration) + " per second)");
+
+        // Reload online users & warm up caches in the background
+        long backgroundStart = System.nanoTime();
+        return this.plugin.getUserManager().loadAllUsers().thenRunAsync(() -> {
+            this.plugin.getGroupManager().invalidateAllGroupCaches();
+            this.plugin.getUserManager().invalidateAllUserCaches();
+
+            Group defaultGroup = this.plugin.getGroupManager().getIfLoaded(GroupManager.DEFAULT_GROUP_NAME);
+            if (defaultGroup != null) {
+                defaultGroup.getCachedData().getPermissionData();
+                defaultGroup.getCachedData().getMetaData();
+            }
+
+            this.plugin.getEventDispatcher().dispatchPostSync();
+            this.plugin.getLogger().info("Finished loading data in the background (took " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - backgroundStart) + "ms)");
+        }, this.plugin.getBootstrap().getScheduler().async());
+    }
+
+    private static String formatRate(int count, long durationNanos) {
+        if (durationNanos <= 0) {
+            return String.valueOf(count);
+        }
+        return String.valueOf((long) (count / (durationNanos / (double) TimeUnit.SECONDS.toNanos(1))));
+    }
+}
@@ -25,34 +25,42 @@
 
 package me.lucko.luckperms.common.treeview;
 
-import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
 import me.lucko.luckperms.common.util.ImmutableCollectors;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Stores a collection of all permissions known to the platform.
  */
 public class PermissionRegistry implements AutoCloseable {
-    private static final Splitter DOT_SPLIT = Splitter.on('.').omitEmptyStrings();
+
+    /** The maximum number of nodes in the tree before the least recently seen leaves are evicted */
+    private static final int MAX_SIZE = 50000;
+    /** The size the tree is trimmed down to when evicting */
+    private static final int EVICTION_TARGET_SIZE = (int) (MAX_SIZE * 0.9);
 
     /** The root node in the tree */
     private final TreeNode rootNode;
-    /** A queue of permission strings to be added to the tree */
-    private final Queue<String> queue;
+    /** The number of nodes in the tree, excluding the root */
+    private final AtomicInteger size = new AtomicInteger();
     /** The tick task */
     private final SchedulerTask task;
 
+    /** The last list returned by {@link #rootAsList()}, and the snapshot it was made from */
+    private volatile ImmutableTreeNode cachedRootSnapshot = null;
+    private volatile List<String> cachedRootList = ImmutableList.of();
+
     public PermissionRegistry(SchedulerAdapter scheduler) {
-        this.rootNode = new TreeNode();
-        this.queue = new ConcurrentLinkedQueue<>();
+        this.rootNode = new TreeNode(this);
         this.task = scheduler.asyncRepeating(this::tick, 1, TimeUnit.SECONDS);
     }
 
@@ -61,19 +69,31 @@ public class PermissionRegistry implements AutoCloseable {
     }
 
     public List<String> rootAsList() {
-        return this.rootNode.makeImmutableCopy().getNodeEndings().stream().map(Map.Entry::getValue).collect(ImmutableCollectors.toList());
+        ImmutableTreeNode snapshot = this.rootNode.makeImmutableCopy();
+        if (snapshot == this.cachedRootSnapshot) {
+            return this.cachedRootList;
+        }
+
+        List<String> list = snapshot.getNodeEndings().stream().map(Map.Entry::getValue).collect(ImmutableCollectors.toList());
+        this.cachedRootList = list;
+        this.cachedRootSnapshot = snapshot;
+        return list;
+    }
+
+    public int size() {
+        return this.size.get();
     }
 
     public void offer(String permission) {
         if (permission == null) {
             throw new NullPointerException("permission");
         }
-        this.queue.offer(permission);
+        insert(permission);
     }
 
     private void tick() {
-        for (String e; (e = this.queue.poll()) != null; ) {
-            insert(e);
+        if (this.size.get() > MAX_SIZE) {
+            evict();
         }
     }
 
@@ -90,18 +110,101 @@ public class PermissionRegistry implements AutoCloseable {
         }
     }
 
-    private void doInsert(String permission) {
-        // split the permission up into parts
-        List<String> parts = DOT_SPLIT.splitToList(permission);
+    void nodeAdded() {
+        this.size.incrementAndGet();
+    }
 
-        // insert the permission into the node structure
+    private void doInsert(String permission) {
+        // walk the permission parts, inserting them into the node structure as we go
         TreeNode current = this.rootNode;
-        for (String part : parts) {
-            current = current.tryInsert(part);
-            if (current == null) {
+        int start = 0;
+        int length = permission.length();
+        while (start <= length) {
+            int end = permission.indexOf('.', start);
+            if (end == -1) {
+                end = length;
+            }
+
+            // skip empty parts
+            if (end > start) {
+                current = current.tryInsert(permission.substring(start, end));
+                if (current == null) {
+                    return;
+                }
+            }
+            start = end + 1;
+        }
+
+        if (current != this.rootNode) {
+            current.touch(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Trims the tree down to {@link #EVICTION_TARGET_SIZE} by removing the
+     * least recently seen leaves. Removing a leaf may turn its parent into a
+     * leaf, which is then considered in the next pass.
+     */
+    private void evict() {
+        while (this.size.get() > EVICTION_TARGET_SIZE) {
+            List<Leaf> leaves = new ArrayList<>();
+            collectLeaves(this.rootNode, leaves);
+            if (leaves.isEmpty()) {
+                return;
+            }
+
+            leaves.sort(Comparator.comparingLong(leaf -> leaf.lastSeen));
+
+            int toRemove = this.size.get() - EVICTION_TARGET_SIZE;
+            int removed = 0;
+            for (Leaf leaf : leaves) {
+                if (removed >= toRemove) {
+                    break;
+                }
+                // the leaf may have gained children since it was collected
+                if (leaf.node.getChildren().isPresent()) {
+                    continue;
+                }
+                if (leaf.parent.removeChild(leaf.key, leaf.node)) {
+                    int deepSize = leaf.node.getDeepSize();
+                    this.size.addAndGet(-deepSize);
+                    removed += deepSize;
+                }
+            }
+
+            if (removed == 0) {
                 return;
             }
         }
     }
 
+    private static void collectLeaves(TreeNode node, List<Leaf> accumulator) {
+        if (!node.getChildren().isPresent()) {
+            return;
+        }
+
+        for (Map.Entry<String, TreeNode> child : node.getChildren().get().entrySet()) {
+            TreeNode childNode = child.getValue();
+            if (childNode.getChildren().isPresent()) {
+                collectLeaves(childNode, accumulator);
+            } else {
+                accumulator.add(new Leaf(node, child.getKey(), childNode));
+            }
+        }
+    }
+
+    private static final class Leaf {
+        private final TreeNode parent;
+        private final String key;
+        private final TreeNode node;
+        private final long lastSeen;
+
+        Leaf(TreeNode parent, String key, TreeNode node) {
+            this.parent = parent;
+            this.key = key;
+            this.node = node;
+            this.lastSeen = node.getLastSeen();
+        }
+    }
+
 }
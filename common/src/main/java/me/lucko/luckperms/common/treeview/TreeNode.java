@@ -32,11 +32,17 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Represents one "branch" or "level" of the node tree
  */
 public class TreeNode {
+    // the updater has to be created using the raw Map class, as there's no class literal for Map<String, TreeNode>
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TreeNode, Map> CHILDREN_UPDATER = AtomicReferenceFieldUpdater.newUpdater(TreeNode.class, Map.class, "children");
+    private static final AtomicIntegerFieldUpdater<TreeNode> VERSION_UPDATER = AtomicIntegerFieldUpdater.newUpdater(TreeNode.class, "version");
 
     private static boolean allowInsert(TreeNode node) {
         /*
@@ -52,6 +58,9 @@ public class TreeNode {
         2. each root node can then have up to 500 child nodes
         3. *but*, each root node can have an unlimited number of 2nd level nodes (e.g. luckperms.user)
            this takes priority over #2
+
+        on top of this, the registry caps the total size of the tree, evicting
+        the least recently seen leaves once the cap is exceeded.
         */
 
         if (node.level == 2) {
@@ -61,74 +70,157 @@ public class TreeNode {
         return true;
     }
 
-    private Map<String, TreeNode> children = null;
+    // lazily initialised - leaves don't allocate a map
+    private volatile Map<String, TreeNode> children = null;
 
+    private final PermissionRegistry registry;
     private final int level;
     private final TreeNode parent;
 
-    private int cachedDeepSize = Integer.MIN_VALUE;
+    // incremented whenever the structure of this subtree changes
+    private volatile int version = 0;
+    // the last time this node was offered to the registry
+    private volatile long lastSeen;
+
+    private volatile CachedValue<Integer> cachedDeepSize = null;
+    private volatile CachedValue<ImmutableTreeNode> cachedSnapshot = null;
 
-    public TreeNode() {
+    TreeNode(PermissionRegistry registry) {
+        this.registry = registry;
         this.level = 0;
         this.parent = null;
+        this.lastSeen = System.currentTimeMillis();
     }
 
     TreeNode(TreeNode parent) {
+        this.registry = parent.registry;
         this.level = parent.level + 1;
         this.parent = parent;
+        this.lastSeen = System.currentTimeMillis();
     }
 
-    // lazy init
-    private synchronized Map<String, TreeNode> getChildMap() {
-        if (this.children == null) {
-            this.children = new ConcurrentHashMap<>();
+    @SuppressWarnings("unchecked")
+    private Map<String, TreeNode> getChildMap() {
+        Map<String, TreeNode> children = this.children;
+        if (children == null) {
+            CHILDREN_UPDATER.compareAndSet(this, null, new ConcurrentHashMap<>(2));
+            children = this.children;
         }
-        return this.children;
+        return children;
     }
 
     public @Nullable TreeNode tryInsert(String s) {
-        Map<String, TreeNode> childMap = getChildMap();
+        // fast path: the child already exists
+        Map<String, TreeNode> children = this.children;
+        if (children != null) {
+            TreeNode existing = children.get(s);
+            if (existing != null) {
+                return existing;
+            }
+        }
+
         if (!allowInsert(this)) {
             return null;
         }
 
-        return childMap.compute(s, (key, prev) -> {
-            if (prev != null) {
-                return prev;
-            }
+        TreeNode[] created = new TreeNode[1];
+        TreeNode node = getChildMap().computeIfAbsent(s, key -> created[0] = new TreeNode(this));
+        if (created[0] != null) {
+            this.registry.nodeAdded();
+            markModified();
+        }
+        return node;
+    }
+
+    /**
+     * Removes the given child from this node, if it is still present.
+     *
+     * @param key the child key
+     * @param child the child node
+     * @return true if the child was removed
+     */
+    boolean removeChild(String key, TreeNode child) {
+        Map<String, TreeNode> children = this.children;
+        if (children == null || !children.remove(key, child)) {
+            return false;
+        }
+        markModified();
+        return true;
+    }
+
+    private void markModified() {
+        for (TreeNode node = this; node != null; node = node.parent) {
+            VERSION_UPDATER.incrementAndGet(node);
+        }
+    }
+
+    void touch(long time) {
+        this.lastSeen = time;
+    }
 
-            // dirty the cache & return a new node
-            this.cachedDeepSize = Integer.MIN_VALUE;
-            return new TreeNode(this);
-        });
+    long getLastSeen() {
+        return this.lastSeen;
     }
 
     public Optional<Map<String, TreeNode>> getChildren() {
-        return Optional.ofNullable(this.children);
+        Map<String, TreeNode> children = this.children;
+        return children == null || children.isEmpty() ? Optional.empty() : Optional.of(children);
     }
 
     public int getDeepSize() {
-        if (this.cachedDeepSize != Integer.MIN_VALUE) {
-            return this.cachedDeepSize;
+        int version = this.version;
+        CachedValue<Integer> cached = this.cachedDeepSize;
+        if (cached != null && cached.version == version) {
+            return cached.value;
         }
 
-        if (this.children == null) {
-            return (this.cachedDeepSize = 1);
-        } else {
-            return (this.cachedDeepSize = this.children.values().stream().mapToInt(TreeNode::getDeepSize).sum());
-        }
+        Map<String, TreeNode> children = this.children;
+        int size = children == null || children.isEmpty() ? 1 : children.values().stream().mapToInt(TreeNode::getDeepSize).sum();
+        this.cachedDeepSize = new CachedValue<>(version, size);
+        return size;
     }
 
+    /**
+     * Returns an immutable copy of this subtree.
+     *
+     * <p>Copies are cached against the version of each node, so only the
+     * branches which have changed since the last call are rebuilt.</p>
+     *
+     * @return an immutable copy
+     */
     public ImmutableTreeNode makeImmutableCopy() {
-        if (this.children == null) {
-            return new ImmutableTreeNode(null);
+        // read the version before the children, so a concurrent change
+        // always leaves the cached copy stale rather than wrongly current
+        int version = this.version;
+        CachedValue<ImmutableTreeNode> cached = this.cachedSnapshot;
+        if (cached != null && cached.version == version) {
+            return cached.value;
+        }
+
+        ImmutableTreeNode copy;
+        Map<String, TreeNode> children = this.children;
+        if (children == null || children.isEmpty()) {
+            copy = new ImmutableTreeNode(null);
         } else {
-            return new ImmutableTreeNode(this.children.entrySet().stream()
+            copy = new ImmutableTreeNode(children.entrySet().stream()
                     .map(e -> Maps.immutableEntry(
                             e.getKey(),
                             e.getValue().makeImmutableCopy()
                     ))
             );
         }
+
+        this.cachedSnapshot = new CachedValue<>(version, copy);
+        return copy;
+    }
+
+    private static final class CachedValue<T> {
+        private final int version;
+        private final T value;
+
+        CachedValue(int version, T value) {
+            this.version = version;
+            this.value = value;
+        }
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.common.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simple exponential backoff calculator.
+ *
+ * <p>Each call to {@link #next()} returns the current delay and doubles it for
+ * the following call, up to the configured maximum. Calling {@link #reset()}
+ * returns the delay to the minimum.</p>
+ */
+public class ExponentialBackoff {
+    private final long minMillis;
+    private final long maxMillis;
+
+    private long currentMillis;
+
+    public ExponentialBackoff(long min, long max, TimeUnit unit) {
+        this.minMillis = unit.toMillis(min);
+        this.maxMillis = unit.toMillis(max);
+        if (this.minMillis <= 0 || this.maxMillis < this.minMillis) {
+            throw new IllegalArgumentException("min: " + min + ", max: " + max);
+        }
+        this.currentMillis = this.minMillis;
+    }
+
+    /**
+     * Gets the delay to wait for before the next attempt, and increases the
+     * delay for subsequent attempts.
+     *
+     * @return the delay in milliseconds
+     */
+    public synchronized long next() {
+        long delay = this.currentMillis;
+        this.currentMillis = Math.min(this.currentMillis * 2, this.maxMillis);
+        return delay;
+    }
+
+    /**
+     * Gets the delay that will be returned by the next call to {@link #next()}.
+     *
+     * @return the current delay in milliseconds
+     */
+    public synchronized long peek() {
+        return this.currentMillis;
+    }
+
+    /**
+     * Resets the delay back to the minimum.
+     */
+    public synchronized void reset() {
+        this.currentMillis = this.minMillis;
+    }
+
+    /**
+     * Sleeps for the next backoff delay.
+     *
+     * @throws InterruptedException if interrupted whilst sleeping
+     */
+    public void sleep() throws InterruptedException {
+        Thread.sleep(next());
+    }
+
+}
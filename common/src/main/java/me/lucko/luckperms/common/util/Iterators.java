@@ -28,6 +28,8 @@ package me.lucko.luckperms.common.util;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -47,6 +49,38 @@ public final class Iterators {
         return success;
     }
 
+    /**
+     * Divides the iterable into batches of the given size, and calls
+     * {@link #tryIterate(Iterable, Throwing.Consumer)} for each batch in parallel
+     * using the executor. Blocks until all batches have completed.
+     *
+     * @param iterable the elements
+     * @param batchSize the number of elements per batch
+     * @param executor the executor to run batches on
+     * @param action the action
+     * @param <E> the element type
+     * @return true if the action completed without an exception for every element
+     */
+    public static <E> boolean tryIterateParallel(Iterable<E> iterable, int batchSize, Executor executor, Throwing.Consumer<E> action) {
+        List<List<E>> batches = divideIterable(iterable, batchSize);
+        if (batches.size() <= 1) {
+            return tryIterate(iterable, action);
+        }
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(batches.size());
+        for (List<E> batch : batches) {
+            futures.add(CompletableFuture.supplyAsync(() -> tryIterate(batch, action), executor));
+        }
+
+        boolean success = true;
+        for (CompletableFuture<Boolean> future : futures) {
+            if (!future.join()) {
+                success = false;
+            }
+        }
+        return success;
+    }
+
     public static <I, O> boolean tryIterate(Iterable<I> iterable, Function<I, O> mapping, Consumer<O> action) {
         boolean success = true;
         for (I element : iterable) {
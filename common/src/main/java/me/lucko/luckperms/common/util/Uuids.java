@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.util;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.nio.ByteBuffer;
 import java.util.UUID;
 import java.util.function.Predicate;
 
@@ -61,4 +62,20 @@ public final class Uuids {
         return uuid;
     }
 
+    public static byte[] toByteArray(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static @Nullable UUID fromByteArray(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        return new UUID(buf.getLong(), buf.getLong());
+    }
+
 }
@@ -25,8 +25,9 @@
 
 package me.lucko.luckperms.common.web;
 
-import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.config.ConfigKeys;
@@ -34,12 +35,11 @@ import me.lucko.luckperms.common.context.ContextSetJsonSerializer;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.Track;
+import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
-import me.lucko.luckperms.common.util.gson.JArray;
-import me.lucko.luckperms.common.util.gson.JObject;
 
 import net.kyori.text.Component;
 import net.kyori.text.TextComponent;
@@ -57,9 +57,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -68,67 +70,91 @@ import java.util.zip.GZIPOutputStream;
 public final class WebEditor {
     private WebEditor() {}
 
-    private static JObject writeData(PermissionHolder holder) {
-        return new JObject()
-                .add("type", holder.getType().toString())
-                .add("id", holder.getObjectName())
-                .add("displayName", holder.getPlainDisplayName())
-                .add("nodes", NodeJsonSerializer.serializeNodes(holder.normalData().immutable().values()));
+    /**
+     * Returns a lazy view of the users with the given unique ids.
+     *
+     * <p>Each user is only loaded from storage once the payload writer reaches it,
+     * so their data doesn't all need to be held in memory at the same time.</p>
+     *
+     * @param uniqueIds the unique ids of the users
+     * @param plugin the plugin
+     * @return a lazily loading view of the users
+     */
+    public static Iterable<User> lazyLoadUsers(Collection<UUID> uniqueIds, LuckPermsPlugin plugin) {
+        Iterable<User> users = Iterables.transform(uniqueIds, uuid -> {
+            User user = plugin.getStorage().loadUser(uuid, null).join();
+            plugin.getUserManager().getHouseKeeper().cleanup(uuid);
+            return user;
+        });
+        return Iterables.filter(users, Objects::nonNull);
     }
 
-    private static JObject writeData(Track track) {
-        return new JObject()
-                .add("type", "track")
-                .add("id", track.getName())
-                .add("groups", new JArray().consume(a -> track.getGroups().forEach(a::add)));
+    private static void writeData(JsonWriter writer, PermissionHolder holder) throws IOException {
+        writer.beginObject();
+        writer.name("type").value(holder.getType().toString());
+        writer.name("id").value(holder.getObjectName());
+        writer.name("displayName").value(holder.getPlainDisplayName());
+        writer.name("nodes");
+        GsonProvider.normal().toJson(NodeJsonSerializer.serializeNodes(holder.normalData().immutable().values()), writer);
+        writer.endObject();
     }
 
-    public static JsonObject formPayload(List<PermissionHolder> holders, List<Track> tracks, Sender sender, String cmdLabel, LuckPermsPlugin plugin) {
-        Preconditions.checkArgument(!holders.isEmpty(), "holders is empty");
-
-        // form the payload data
-        return new JObject()
-                .add("metadata", new JObject()
-                        .add("commandAlias", cmdLabel)
-                        .add("uploader", new JObject()
-                                .add("name", sender.getNameWithLocation())
-                                .add("uuid", sender.getUniqueId().toString())
-                        )
-                        .add("time", System.currentTimeMillis())
-                        .add("pluginVersion", plugin.getBootstrap().getVersion())
-                )
-                .add("permissionHolders", new JArray()
-                        .consume(arr -> {
-                            for (PermissionHolder holder : holders) {
-                                arr.add(writeData(holder));
-                            }
-                        })
-                )
-                .add("tracks", new JArray()
-                        .consume(arr -> {
-                            for (Track track : tracks) {
-                                arr.add(writeData(track));
-                            }
-                        })
-                )
-                .add("knownPermissions", new JArray()
-                        .consume(arr -> {
-                            for (String perm : plugin.getPermissionRegistry().rootAsList()) {
-                                arr.add(perm);
-                            }
-                        })
-                )
-                .consume(o -> {
-                    o.add("potentialContexts", ContextSetJsonSerializer.serializeContextSet(plugin.getContextManager().getPotentialContexts()));
-                })
-                .toJson();
+    private static void writeData(JsonWriter writer, Track track) throws IOException {
+        writer.beginObject();
+        writer.name("type").value("track");
+        writer.name("id").value(track.getName());
+        writer.name("groups").beginArray();
+        for (String group : track.getGroups()) {
+            writer.value(group);
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private static void writePayload(JsonWriter writer, Iterable<? extends PermissionHolder> holders, List<Track> tracks, Sender sender, String cmdLabel, LuckPermsPlugin plugin) throws IOException {
+        writer.beginObject();
+
+        writer.name("metadata").beginObject();
+        writer.name("commandAlias").value(cmdLabel);
+        writer.name("uploader").beginObject();
+        writer.name("name").value(sender.getNameWithLocation());
+        writer.name("uuid").value(sender.getUniqueId().toString());
+        writer.endObject();
+        writer.name("time").value(System.currentTimeMillis());
+        writer.name("pluginVersion").value(plugin.getBootstrap().getVersion());
+        writer.endObject();
+
+        // holders are written one at a time, so lazily loaded holders are only
+        // fetched as they are reached
+        writer.name("permissionHolders").beginArray();
+        for (PermissionHolder holder : holders) {
+            writeData(writer, holder);
+        }
+        writer.endArray();
+
+        writer.name("tracks").beginArray();
+        for (Track track : tracks) {
+            writeData(writer, track);
+        }
+        writer.endArray();
+
+        writer.name("knownPermissions").beginArray();
+        for (String perm : plugin.getPermissionRegistry().rootAsList()) {
+            writer.value(perm);
+        }
+        writer.endArray();
+
+        writer.name("potentialContexts");
+        GsonProvider.normal().toJson(ContextSetJsonSerializer.serializeContextSet(plugin.getContextManager().getPotentialContexts()), writer);
+
+        writer.endObject();
     }
 
-    public static CommandResult post(JsonObject payload, Sender sender, LuckPermsPlugin plugin) {
-        // upload the payload data to gist
+    public static CommandResult post(Iterable<? extends PermissionHolder> holders, List<Track> tracks, Sender sender, String cmdLabel, LuckPermsPlugin plugin) {
+        // stream the payload straight into the compressed upload buffer
         ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytesOut), StandardCharsets.UTF_8)) {
-            GsonProvider.prettyPrinting().toJson(payload, writer);
+        try (JsonWriter writer = GsonProvider.normal().newJsonWriter(new OutputStreamWriter(new GZIPOutputStream(bytesOut), StandardCharsets.UTF_8))) {
+            writePayload(writer, holders, tracks, sender, cmdLabel, plugin);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,22 @@
+-- LuckPerms H2 Schema (compact user data)
+
+CREATE TABLE `{prefix}permission_keys` (
+  `id`         INT AUTO_INCREMENT NOT NULL,
+  `permission` VARCHAR(200)       NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE (`permission`)
+);
+
+CREATE TABLE `{prefix}user_nodes` (
+  `id`            INT AUTO_INCREMENT NOT NULL,
+  `uuid`          BINARY(16)         NOT NULL,
+  `permission_id` INT                NOT NULL,
+  `value`         BOOL               NOT NULL,
+  `server`        VARCHAR(36)        NOT NULL,
+  `world`         VARCHAR(64)        NOT NULL,
+  `expiry`        BIGINT             NOT NULL,
+  `contexts`      VARCHAR(200)       NOT NULL,
+  PRIMARY KEY (`id`)
+);
+CREATE INDEX ON `{prefix}user_nodes` (`uuid`);
+CREATE INDEX ON `{prefix}user_nodes` (`permission_id`, `uuid`);
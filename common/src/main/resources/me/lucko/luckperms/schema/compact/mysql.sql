@@ -0,0 +1,22 @@
+-- LuckPerms MySQL Schema (compact user data)
+
+CREATE TABLE `{prefix}permission_keys` (
+  `id`         INT AUTO_INCREMENT NOT NULL,
+  `permission` VARCHAR(200)       NOT NULL COLLATE utf8mb4_bin,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `{prefix}permission_keys_permission` (`permission`)
+) DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE `{prefix}user_nodes` (
+  `id`            INT AUTO_INCREMENT NOT NULL,
+  `uuid`          BINARY(16)         NOT NULL,
+  `permission_id` INT                NOT NULL,
+  `value`         BOOL               NOT NULL,
+  `server`        VARCHAR(36)        NOT NULL,
+  `world`         VARCHAR(64)        NOT NULL,
+  `expiry`        BIGINT             NOT NULL,
+  `contexts`      VARCHAR(200)       NOT NULL,
+  PRIMARY KEY (`id`)
+) DEFAULT CHARSET = utf8mb4;
+CREATE INDEX `{prefix}user_nodes_uuid` ON `{prefix}user_nodes` (`uuid`);
+CREATE INDEX `{prefix}user_nodes_permission_id` ON `{prefix}user_nodes` (`permission_id`, `uuid`);
@@ -0,0 +1,19 @@
+-- LuckPerms PostgreSQL Schema (compact user data)
+
+CREATE TABLE "{prefix}permission_keys" (
+  "id"         SERIAL PRIMARY KEY      NOT NULL,
+  "permission" VARCHAR(200) UNIQUE     NOT NULL
+);
+
+CREATE TABLE "{prefix}user_nodes" (
+  "id"            SERIAL PRIMARY KEY      NOT NULL,
+  "uuid"          BYTEA                   NOT NULL,
+  "permission_id" INT                     NOT NULL,
+  "value"         BOOL                    NOT NULL,
+  "server"        VARCHAR(36)             NOT NULL,
+  "world"         VARCHAR(64)             NOT NULL,
+  "expiry"        BIGINT                  NOT NULL,
+  "contexts"      VARCHAR(200)            NOT NULL
+);
+CREATE INDEX "{prefix}user_nodes_uuid" ON "{prefix}user_nodes" ("uuid");
+CREATE INDEX "{prefix}user_nodes_permission_id" ON "{prefix}user_nodes" ("permission_id", "uuid");
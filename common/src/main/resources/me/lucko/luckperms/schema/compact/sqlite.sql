@@ -0,0 +1,19 @@
+-- LuckPerms SQLite Schema (compact user data)
+
+CREATE TABLE `{prefix}permission_keys` (
+  `id`         INTEGER PRIMARY KEY NOT NULL,
+  `permission` VARCHAR(200)        NOT NULL UNIQUE
+);
+
+CREATE TABLE `{prefix}user_nodes` (
+  `id`            INTEGER PRIMARY KEY NOT NULL,
+  `uuid`          BLOB                NOT NULL,
+  `permission_id` INTEGER             NOT NULL,
+  `value`         BOOL                NOT NULL,
+  `server`        VARCHAR(36)         NOT NULL,
+  `world`         VARCHAR(64)         NOT NULL,
+  `expiry`        BIGINT              NOT NULL,
+  `contexts`      VARCHAR(200)        NOT NULL
+);
+CREATE INDEX `{prefix}user_nodes_uuid` ON `{prefix}user_nodes` (`uuid`);
+CREATE INDEX `{prefix}user_nodes_permission_id` ON `{prefix}user_nodes` (`permission_id`, `uuid`);
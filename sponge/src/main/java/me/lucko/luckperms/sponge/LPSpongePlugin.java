@@ -216,6 +216,12 @@ public class LPSpongePlugin extends AbstractLuckPermsPlugin {
         }
     }
 
+    @Override
+    protected void removePlatformHooks() {
+        // write any subject data changes which are still buffered
+        this.service.getStorage().flush();
+    }
+
     public void lateEnable() {
         if (this.lateLoad) {
             getLogger().info("Providing late registration of PermissionService...");
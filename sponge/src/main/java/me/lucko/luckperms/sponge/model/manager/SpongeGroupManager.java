@@ -30,7 +30,6 @@ import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
 
 import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.model.manager.group.AbstractGroupManager;
@@ -49,19 +48,18 @@ import me.lucko.luckperms.sponge.service.model.LPSubjectReference;
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.event.cause.CreationCause;
 import net.luckperms.api.node.Node;
-import net.luckperms.api.util.Tristate;
 
 import org.spongepowered.api.service.permission.PermissionService;
 import org.spongepowered.api.service.permission.SubjectCollection;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class SpongeGroupManager extends AbstractGroupManager<SpongeGroup> implements LPSubjectCollection {
     private final LPSpongePlugin plugin;
@@ -103,6 +101,16 @@ public class SpongeGroupManager extends AbstractGroupManager<SpongeGroup> implem
         return new SpongeGroup(name, this.plugin);
     }
 
+    @Override
+    public void unload(String name) {
+        super.unload(name);
+
+        LuckPermsService service = this.plugin.getService();
+        if (name != null && service != null) {
+            service.getPermissionIndex().remove(service.getReferenceFactory().obtain(PermissionService.SUBJECTS_GROUP, name.toLowerCase()));
+        }
+    }
+
     @Override
     public synchronized SubjectCollection sponge() {
         if (this.spongeProxy == null) {
@@ -222,20 +230,16 @@ public class SpongeGroupManager extends AbstractGroupManager<SpongeGroup> implem
 
     @Override
     public ImmutableMap<LPSubject, Boolean> getLoadedWithPermission(String permission) {
-        return getAll().values().stream()
-                .map(SpongeGroup::sponge)
-                .map(sub -> Maps.immutableEntry(sub, sub.getPermissionValue(ImmutableContextSetImpl.EMPTY, permission)))
-                .filter(pair -> pair.getValue() != Tristate.UNDEFINED)
-                .collect(ImmutableCollectors.toMap(Map.Entry::getKey, sub -> sub.getValue().asBoolean()));
+        return getLoadedWithPermission(ImmutableContextSetImpl.EMPTY, permission);
     }
 
     @Override
     public ImmutableMap<LPSubject, Boolean> getLoadedWithPermission(ImmutableContextSet contexts, String permission) {
-        return getAll().values().stream()
-                .map(SpongeGroup::sponge)
-                .map(sub -> Maps.immutableEntry(sub, sub.getPermissionValue(contexts, permission)))
-                .filter(pair -> pair.getValue() != Tristate.UNDEFINED)
-                .collect(ImmutableCollectors.toMap(Map.Entry::getKey, sub -> sub.getValue().asBoolean()));
+        List<LPSubject> loaded = getAll().values().stream().map(SpongeGroup::sponge).collect(Collectors.toList());
+        return getService().getPermissionIndex().getLoadedWithPermission(this, contexts, permission, loaded, id -> {
+            SpongeGroup group = getIfLoaded(id);
+            return group == null ? null : group.sponge();
+        });
     }
 
     @Override
@@ -30,7 +30,6 @@ import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
 
 import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.model.manager.user.AbstractUserManager;
@@ -49,13 +48,11 @@ import me.lucko.luckperms.sponge.service.model.LPSubjectReference;
 
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.node.Node;
-import net.luckperms.api.util.Tristate;
 
 import org.spongepowered.api.service.permission.PermissionService;
 import org.spongepowered.api.service.permission.SubjectCollection;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -63,6 +60,7 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class SpongeUserManager extends AbstractUserManager<SpongeUser> implements LPSubjectCollection {
     private final LPSpongePlugin plugin;
@@ -108,6 +106,16 @@ public class SpongeUserManager extends AbstractUserManager<SpongeUser> implement
         return new SpongeUser(id, this.plugin);
     }
 
+    @Override
+    public void unload(UUID id) {
+        super.unload(id);
+
+        LuckPermsService service = this.plugin.getService();
+        if (id != null && service != null) {
+            service.getPermissionIndex().remove(service.getReferenceFactory().obtain(PermissionService.SUBJECTS_USER, id.toString()));
+        }
+    }
+
     @Override
     public synchronized SubjectCollection sponge() {
         if (this.spongeProxy == null) {
@@ -241,20 +249,17 @@ public class SpongeUserManager extends AbstractUserManager<SpongeUser> implement
 
     @Override
     public ImmutableMap<LPSubject, Boolean> getLoadedWithPermission(String permission) {
-        return getAll().values().stream()
-                .map(SpongeUser::sponge)
-                .map(sub -> Maps.immutableEntry(sub, sub.getPermissionValue(ImmutableContextSetImpl.EMPTY, permission)))
-                .filter(pair -> pair.getValue() != Tristate.UNDEFINED)
-                .collect(ImmutableCollectors.toMap(Map.Entry::getKey, sub -> sub.getValue().asBoolean()));
+        return getLoadedWithPermission(ImmutableContextSetImpl.EMPTY, permission);
     }
 
     @Override
     public ImmutableMap<LPSubject, Boolean> getLoadedWithPermission(ImmutableContextSet contexts, String permission) {
-        return getAll().values().stream()
-                .map(SpongeUser::sponge)
-                .map(sub -> Maps.immutableEntry(sub, sub.getPermissionValue(contexts, permission)))
-                .filter(pair -> pair.getValue() != Tristate.UNDEFINED)
-                .collect(ImmutableCollectors.toMap(Map.Entry::getKey, sub -> sub.getValue().asBoolean()));
+        List<LPSubject> loaded = getAll().values().stream().map(SpongeUser::sponge).collect(Collectors.toList());
+        return getService().getPermissionIndex().getLoadedWithPermission(this, contexts, permission, loaded, id -> {
+            UUID uuid = Uuids.parse(id);
+            SpongeUser user = uuid == null ? null : getIfLoaded(uuid);
+            return user == null ? null : user.sponge();
+        });
     }
 
     @Override
@@ -32,6 +32,8 @@ import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.context.ContextManager;
 import me.lucko.luckperms.common.util.Predicates;
 import me.lucko.luckperms.sponge.LPSpongePlugin;
+import me.lucko.luckperms.sponge.model.SpongeGroup;
+import me.lucko.luckperms.sponge.model.SpongeUser;
 import me.lucko.luckperms.sponge.model.manager.SpongeGroupManager;
 import me.lucko.luckperms.sponge.model.manager.SpongeUserManager;
 import me.lucko.luckperms.sponge.service.model.ContextCalculatorProxy;
@@ -41,6 +43,7 @@ import me.lucko.luckperms.sponge.service.model.LPSubject;
 import me.lucko.luckperms.sponge.service.model.LPSubjectCollection;
 import me.lucko.luckperms.sponge.service.model.LPSubjectReference;
 import me.lucko.luckperms.sponge.service.model.SimplePermissionDescription;
+import me.lucko.luckperms.sponge.service.model.SubjectPermissionIndex;
 import me.lucko.luckperms.sponge.service.model.persisted.DefaultsCollection;
 import me.lucko.luckperms.sponge.service.model.persisted.PersistedCollection;
 import me.lucko.luckperms.sponge.service.model.persisted.SubjectStorage;
@@ -95,6 +98,11 @@ public class LuckPermsService implements LPPermissionService {
      */
     private final Map<String, LPPermissionDescription> permissionDescriptions;
 
+    /**
+     * Reverse index of the permissions held by subjects, used to lookup the subjects with a permission
+     */
+    private final SubjectPermissionIndex permissionIndex;
+
     /**
      * The loaded collections in this service
      */
@@ -105,6 +113,7 @@ public class LuckPermsService implements LPPermissionService {
         this.referenceFactory = new SubjectReferenceFactory(this);
         this.spongeProxy = ProxyFactory.toSponge(this);
         this.permissionDescriptions = new ConcurrentHashMap<>();
+        this.permissionIndex = new SubjectPermissionIndex(this);
 
         // init subject storage
         this.storage = new SubjectStorage(this, plugin.getBootstrap().getDataDirectory().resolve("sponge-data"));
@@ -131,6 +140,14 @@ public class LuckPermsService implements LPPermissionService {
             // cache in this instance
             this.collections.put(collection.getIdentifier(), collection);
         }
+
+        // index the users & groups which were loaded before the service
+        for (SpongeGroup group : plugin.getGroupManager().getAll().values()) {
+            group.sponge().updatePermissionIndex(this);
+        }
+        for (SpongeUser user : plugin.getUserManager().getAll().values()) {
+            user.sponge().updatePermissionIndex(this);
+        }
     }
 
     @Override
@@ -157,6 +174,10 @@ public class LuckPermsService implements LPPermissionService {
         return this.storage;
     }
 
+    public SubjectPermissionIndex getPermissionIndex() {
+        return this.permissionIndex;
+    }
+
     @Override
     public SpongeUserManager getUserSubjects() {
         return this.plugin.getUserManager();
@@ -0,0 +1,336 @@
+/*
+ * This file is part of GroupManager, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.sponge.service.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import me.lucko.luckperms.common.node.AbstractNode;
+import me.lucko.luckperms.common.node.types.RegexPermission;
+import me.lucko.luckperms.sponge.service.LuckPermsService;
+
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.util.Tristate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * A reverse index from permission to the subjects which define it.
+ *
+ * <p>Used to answer {@link LPSubjectCollection#getLoadedWithPermission(ImmutableContextSet, String)}
+ * queries without resolving the permission for every loaded subject in the collection.</p>
+ *
+ * <p>The index is conservative - a subject is a candidate if it, or any subject
+ * it inherits from, defines the permission, a wildcard covering it or a regex
+ * pattern. Only the candidates are then resolved.</p>
+ */
+public class SubjectPermissionIndex {
+    private static final String ROOT_WILDCARD = "*";
+    private static final String ROOT_WILDCARD_WITH_QUOTES = "'*'";
+    private static final String WILDCARD_SUFFIX = ".*";
+
+    private final LuckPermsService service;
+
+    // the data currently indexed for each subject data instance
+    private final Map<Source, Entry> entries = new HashMap<>();
+
+    // permission -> the sources which define it
+    private final Map<String, Set<Source>> byPermission = new HashMap<>();
+
+    // parent -> the sources which inherit from it
+    private final Map<LPSubjectReference, Set<Source>> byParent = new HashMap<>();
+
+    // the sources which define a pattern, and could therefore match any permission
+    private final Set<Source> patterns = new HashSet<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SubjectPermissionIndex(LuckPermsService service) {
+        this.service = service;
+    }
+
+    /**
+     * Updates the indexed data for a subject.
+     *
+     * @param subject the subject
+     * @param type the type of the data
+     * @param permissions the permissions defined in the data, in any context
+     * @param parents the parents defined in the data, in any context
+     */
+    public void update(LPSubjectReference subject, DataType type, Collection<String> permissions, Collection<LPSubjectReference> parents) {
+        Source source = new Source(subject, type);
+
+        Set<String> permissionKeys = new HashSet<>(permissions.size());
+        boolean pattern = false;
+        for (String permission : permissions) {
+            String key = permission.toLowerCase();
+            if (RegexPermission.parse(key) != null) {
+                pattern = true;
+            }
+            permissionKeys.add(key);
+        }
+        Entry entry = new Entry(permissionKeys, new HashSet<>(parents), pattern);
+
+        this.lock.writeLock().lock();
+        try {
+            removeEntry(source);
+            if (!entry.isEmpty()) {
+                addEntry(source, entry);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all indexed data for a subject.
+     *
+     * @param subject the subject
+     */
+    public void remove(LPSubjectReference subject) {
+        this.lock.writeLock().lock();
+        try {
+            for (DataType type : DataType.values()) {
+                removeEntry(new Source(subject, type));
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void addEntry(Source source, Entry entry) {
+        this.entries.put(source, entry);
+        for (String permission : entry.permissions) {
+            this.byPermission.computeIfAbsent(permission, p -> new HashSet<>()).add(source);
+        }
+        for (LPSubjectReference parent : entry.parents) {
+            this.byParent.computeIfAbsent(parent, p -> new HashSet<>()).add(source);
+        }
+        if (entry.pattern) {
+            this.patterns.add(source);
+        }
+    }
+
+    private void removeEntry(Source source) {
+        Entry entry = this.entries.remove(source);
+        if (entry == null) {
+            return;
+        }
+
+        for (String permission : entry.permissions) {
+            removeFrom(this.byPermission, permission, source);
+        }
+        for (LPSubjectReference parent : entry.parents) {
+            removeFrom(this.byParent, parent, source);
+        }
+        this.patterns.remove(source);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Source>> map, K key, Source source) {
+        Set<Source> sources = map.get(key);
+        if (sources != null && sources.remove(source) && sources.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * Gets the identifiers of the subjects in a collection which could have a
+     * value set for the given permission, ignoring defaults.
+     *
+     * @param collectionIdentifier the collection identifier
+     * @param permission the permission
+     * @return the candidate subject identifiers
+     */
+    public Set<String> getCandidates(String collectionIdentifier, String permission) {
+        String key = permission.toLowerCase();
+
+        this.lock.readLock().lock();
+        try {
+            Set<LPSubjectReference> visited = new HashSet<>();
+            Deque<LPSubjectReference> queue = new ArrayDeque<>();
+
+            // find the subjects which define the permission directly
+            for (String lookup : getLookupKeys(key)) {
+                Set<Source> sources = this.byPermission.get(lookup);
+                if (sources != null) {
+                    for (Source source : sources) {
+                        if (visited.add(source.subject)) {
+                            queue.add(source.subject);
+                        }
+                    }
+                }
+            }
+            for (Source source : this.patterns) {
+                if (visited.add(source.subject)) {
+                    queue.add(source.subject);
+                }
+            }
+
+            // then walk down the inheritance tree to find the subjects which inherit from them
+            Set<String> candidates = new HashSet<>();
+            LPSubjectReference subject;
+            while ((subject = queue.poll()) != null) {
+                if (subject.getCollectionIdentifier().equalsIgnoreCase(collectionIdentifier)) {
+                    candidates.add(subject.getSubjectIdentifier());
+                }
+
+                Set<Source> children = this.byParent.get(subject);
+                if (children != null) {
+                    for (Source child : children) {
+                        if (visited.add(child.subject)) {
+                            queue.add(child.subject);
+                        }
+                    }
+                }
+            }
+            return candidates;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the loaded subjects in a collection which have a value set for the
+     * given permission.
+     *
+     * @param collection the collection
+     * @param contexts the contexts to query in
+     * @param permission the permission
+     * @param loadedSubjects all loaded subjects in the collection
+     * @param loadedLookup a function to get a loaded subject by identifier, returning null if not loaded
+     * @return the subjects and the value they have for the permission
+     */
+    public ImmutableMap<LPSubject, Boolean> getLoadedWithPermission(LPSubjectCollection collection, ImmutableContextSet contexts, String permission, Collection<? extends LPSubject> loadedSubjects, Function<String, ? extends LPSubject> loadedLookup) {
+        Collection<? extends LPSubject> subjects;
+
+        // if the permission is set in the defaults, every subject is a candidate
+        if (collection.getDefaults().getPermissionValue(contexts, permission) != Tristate.UNDEFINED ||
+                this.service.getRootDefaults().getPermissionValue(contexts, permission) != Tristate.UNDEFINED) {
+            subjects = loadedSubjects;
+        } else {
+            Set<String> candidates = getCandidates(collection.getIdentifier(), permission);
+            List<LPSubject> list = new ArrayList<>(candidates.size());
+            for (String identifier : candidates) {
+                LPSubject subject = loadedLookup.apply(identifier);
+                if (subject != null) {
+                    list.add(subject);
+                }
+            }
+            subjects = list;
+        }
+
+        ImmutableMap.Builder<LPSubject, Boolean> m = ImmutableMap.builder();
+        for (LPSubject subject : subjects) {
+            Tristate ts = subject.getPermissionValue(contexts, permission);
+            if (ts != Tristate.UNDEFINED) {
+                m.put(subject, ts.asBoolean());
+            }
+        }
+        return m.build();
+    }
+
+    /**
+     * Gets the keys which could give a value for the given permission,
+     * following the rules of the wildcard processors.
+     *
+     * @param permission the permission
+     * @return the keys
+     */
+    private static List<String> getLookupKeys(String permission) {
+        List<String> keys = new ArrayList<>();
+        keys.add(permission);
+
+        String node = permission;
+        while (true) {
+            int endIndex = node.lastIndexOf(AbstractNode.NODE_SEPARATOR);
+            if (endIndex == -1) {
+                break;
+            }
+
+            node = node.substring(0, endIndex);
+            if (!node.isEmpty()) {
+                keys.add(node);
+                keys.add(node + WILDCARD_SUFFIX);
+            }
+        }
+
+        keys.add(ROOT_WILDCARD);
+        keys.add(ROOT_WILDCARD_WITH_QUOTES);
+        return keys;
+    }
+
+    private static final class Source {
+        private final LPSubjectReference subject;
+        private final DataType type;
+
+        Source(LPSubjectReference subject, DataType type) {
+            this.subject = subject;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Source)) return false;
+            Source other = (Source) o;
+            return this.subject.equals(other.subject) && this.type == other.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.subject, this.type);
+        }
+    }
+
+    private static final class Entry {
+        private final Set<String> permissions;
+        private final Set<LPSubjectReference> parents;
+        private final boolean pattern;
+
+        Entry(Set<String> permissions, Set<LPSubjectReference> parents, boolean pattern) {
+            this.permissions = permissions;
+            this.parents = parents;
+            this.pattern = pattern;
+        }
+
+        boolean isEmpty() {
+            return this.permissions.isEmpty() && this.parents.isEmpty();
+        }
+    }
+
+}
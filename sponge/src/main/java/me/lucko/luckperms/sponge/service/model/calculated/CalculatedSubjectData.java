@@ -31,8 +31,8 @@ import com.google.common.collect.ImmutableSet;
 
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ContextSetComparator;
+import me.lucko.luckperms.sponge.service.LuckPermsService;
 import me.lucko.luckperms.sponge.service.ProxyFactory;
-import me.lucko.luckperms.sponge.service.model.LPPermissionService;
 import me.lucko.luckperms.sponge.service.model.LPSubject;
 import me.lucko.luckperms.sponge.service.model.LPSubjectData;
 import me.lucko.luckperms.sponge.service.model.LPSubjectReference;
@@ -46,6 +46,7 @@ import net.luckperms.api.util.Tristate;
 import org.spongepowered.api.service.permission.SubjectData;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -62,13 +63,13 @@ import java.util.concurrent.ConcurrentHashMap;
 public class CalculatedSubjectData implements LPSubjectData {
     private final LPSubject parentSubject;
     private final DataType type;
-    private final LPPermissionService service;
+    private final LuckPermsService service;
 
     private final Map<ImmutableContextSet, Map<String, Boolean>> permissions = new ConcurrentHashMap<>();
     private final Map<ImmutableContextSet, Set<LPSubjectReference>> parents = new ConcurrentHashMap<>();
     private final Map<ImmutableContextSet, Map<String, String>> options = new ConcurrentHashMap<>();
 
-    public CalculatedSubjectData(LPSubject parentSubject, DataType type, LPPermissionService service) {
+    public CalculatedSubjectData(LPSubject parentSubject, DataType type, LuckPermsService service) {
         this.parentSubject = parentSubject;
         this.type = type;
         this.service = service;
@@ -93,12 +94,27 @@ public class CalculatedSubjectData implements LPSubjectData {
         return this.service.getPlugin().getConfiguration().get(ConfigKeys.CONTEXT_SATISFY_MODE);
     }
 
+    private void onDataChanged() {
+        // keep the permission index in sync with the data
+        Set<String> permissions = new HashSet<>();
+        for (Map<String, Boolean> perms : this.permissions.values()) {
+            permissions.addAll(perms.keySet());
+        }
+        Set<LPSubjectReference> parents = new HashSet<>();
+        for (Set<LPSubjectReference> set : this.parents.values()) {
+            parents.addAll(set);
+        }
+        this.service.getPermissionIndex().update(this.parentSubject.toReference(), this.type, permissions, parents);
+
+        this.service.invalidateAllCaches();
+    }
+
     public void replacePermissions(Map<ImmutableContextSet, Map<String, Boolean>> map) {
         this.permissions.clear();
         for (Map.Entry<ImmutableContextSet, Map<String, Boolean>> e : map.entrySet()) {
             this.permissions.put(e.getKey(), new ConcurrentHashMap<>(e.getValue()));
         }
-        this.service.invalidateAllCaches();
+        onDataChanged();
     }
 
     public void replaceParents(Map<ImmutableContextSet, List<LPSubjectReference>> map) {
@@ -108,7 +124,7 @@ public class CalculatedSubjectData implements LPSubjectData {
             set.addAll(e.getValue());
             this.parents.put(e.getKey(), set);
         }
-        this.service.invalidateAllCaches();
+        onDataChanged();
     }
 
     public void replaceOptions(Map<ImmutableContextSet, Map<String, String>> map) {
@@ -116,7 +132,7 @@ public class CalculatedSubjectData implements LPSubjectData {
         for (Map.Entry<ImmutableContextSet, Map<String, String>> e : map.entrySet()) {
             this.options.put(e.getKey(), new ConcurrentHashMap<>(e.getValue()));
         }
-        this.service.invalidateAllCaches();
+        onDataChanged();
     }
 
     @Override
@@ -166,7 +182,7 @@ public class CalculatedSubjectData implements LPSubjectData {
             b = !Objects.equals(perms.put(permission.toLowerCase(), value.asBoolean()), value.asBoolean());
         }
         if (b) {
-            this.service.invalidateAllCaches();
+            onDataChanged();
         }
         return CompletableFuture.completedFuture(b);
     }
@@ -177,7 +193,7 @@ public class CalculatedSubjectData implements LPSubjectData {
             return CompletableFuture.completedFuture(false);
         } else {
             this.permissions.clear();
-            this.service.invalidateAllCaches();
+            onDataChanged();
             return CompletableFuture.completedFuture(true);
         }
     }
@@ -191,7 +207,7 @@ public class CalculatedSubjectData implements LPSubjectData {
 
         this.permissions.remove(contexts);
         if (!perms.isEmpty()) {
-            this.service.invalidateAllCaches();
+            onDataChanged();
             return CompletableFuture.completedFuture(true);
         }
         return CompletableFuture.completedFuture(false);
@@ -235,7 +251,7 @@ public class CalculatedSubjectData implements LPSubjectData {
         Set<LPSubjectReference> set = this.parents.computeIfAbsent(contexts, c -> ConcurrentHashMap.newKeySet());
         boolean b = set.add(parent);
         if (b) {
-            this.service.invalidateAllCaches();
+            onDataChanged();
         }
         return CompletableFuture.completedFuture(b);
     }
@@ -245,7 +261,7 @@ public class CalculatedSubjectData implements LPSubjectData {
         Set<LPSubjectReference> set = this.parents.get(contexts);
         boolean b = set != null && set.remove(parent);
         if (b) {
-            this.service.invalidateAllCaches();
+            onDataChanged();
         }
         return CompletableFuture.completedFuture(b);
     }
@@ -256,7 +272,7 @@ public class CalculatedSubjectData implements LPSubjectData {
             return CompletableFuture.completedFuture(false);
         } else {
             this.parents.clear();
-            this.service.invalidateAllCaches();
+            onDataChanged();
             return CompletableFuture.completedFuture(true);
         }
     }
@@ -269,7 +285,7 @@ public class CalculatedSubjectData implements LPSubjectData {
         }
 
         this.parents.remove(contexts);
-        this.service.invalidateAllCaches();
+        onDataChanged();
         return CompletableFuture.completedFuture(!set.isEmpty());
     }
 
@@ -314,7 +330,7 @@ public class CalculatedSubjectData implements LPSubjectData {
         Map<String, String> options = this.options.computeIfAbsent(contexts, c -> new ConcurrentHashMap<>());
         boolean b = !stringEquals(options.put(key.toLowerCase(), value), value);
         if (b) {
-            this.service.invalidateAllCaches();
+            onDataChanged();
         }
         return CompletableFuture.completedFuture(b);
     }
@@ -324,7 +340,7 @@ public class CalculatedSubjectData implements LPSubjectData {
         Map<String, String> options = this.options.get(contexts);
         boolean b = options != null && options.remove(key.toLowerCase()) != null;
         if (b) {
-            this.service.invalidateAllCaches();
+            onDataChanged();
         }
         return CompletableFuture.completedFuture(b);
     }
@@ -335,7 +351,7 @@ public class CalculatedSubjectData implements LPSubjectData {
             return CompletableFuture.completedFuture(false);
         } else {
             this.options.clear();
-            this.service.invalidateAllCaches();
+            onDataChanged();
             return CompletableFuture.completedFuture(true);
         }
     }
@@ -348,7 +364,7 @@ public class CalculatedSubjectData implements LPSubjectData {
         }
 
         this.options.remove(contexts);
-        this.service.invalidateAllCaches();
+        onDataChanged();
         return CompletableFuture.completedFuture(!map.isEmpty());
     }
 
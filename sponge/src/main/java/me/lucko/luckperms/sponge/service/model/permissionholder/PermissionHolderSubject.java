@@ -31,6 +31,7 @@ import me.lucko.luckperms.common.cacheddata.type.MetaCache;
 import me.lucko.luckperms.common.graph.TraversalAlgorithm;
 import me.lucko.luckperms.common.inheritance.InheritanceGraph;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.node.types.Inheritance;
 import me.lucko.luckperms.common.node.types.Prefix;
@@ -44,15 +45,20 @@ import me.lucko.luckperms.sponge.service.ProxyFactory;
 import me.lucko.luckperms.sponge.service.model.LPSubject;
 import me.lucko.luckperms.sponge.service.model.LPSubjectReference;
 import me.lucko.luckperms.sponge.service.model.ProxiedSubject;
+import me.lucko.luckperms.sponge.service.model.SubjectPermissionIndex;
 
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 import net.luckperms.api.util.Tristate;
 
 import org.spongepowered.api.service.permission.PermissionService;
 
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Implements {@link LPSubject} for a {@link PermissionHolder}.
@@ -76,6 +82,35 @@ public abstract class PermissionHolderSubject<T extends PermissionHolder> implem
     public void fireUpdateEvent() {
         this.plugin.getUpdateEventHandler().fireUpdateEvent(this.subjectData);
         this.plugin.getUpdateEventHandler().fireUpdateEvent(this.transientSubjectData);
+
+        LuckPermsService service = this.plugin.getService();
+        if (service != null) {
+            updatePermissionIndex(service);
+        }
+    }
+
+    /**
+     * Updates the data held for this subject in the services {@link SubjectPermissionIndex}.
+     *
+     * @param service the service
+     */
+    public void updatePermissionIndex(LuckPermsService service) {
+        // can't use #getParentCollection here, the service may still be initialising
+        String collection = this.parent.getType() == HolderType.GROUP ? PermissionService.SUBJECTS_GROUP : PermissionService.SUBJECTS_USER;
+        LPSubjectReference reference = service.getReferenceFactory().obtain(collection, getIdentifier());
+
+        for (DataType type : DataType.values()) {
+            Set<String> permissions = new HashSet<>();
+            Set<LPSubjectReference> parents = new HashSet<>();
+            for (Node node : this.parent.getData(type).immutable().values()) {
+                permissions.add(node.getKey());
+                permissions.addAll(node.resolveShorthand());
+                if (node instanceof InheritanceNode) {
+                    parents.add(service.getReferenceFactory().obtain(PermissionService.SUBJECTS_GROUP, ((InheritanceNode) node).getGroupName()));
+                }
+            }
+            service.getPermissionIndex().update(reference, type, permissions, parents);
+        }
     }
 
     public T getParent() {
@@ -41,7 +41,6 @@ import me.lucko.luckperms.sponge.service.model.LPSubjectCollection;
 import me.lucko.luckperms.sponge.service.model.LPSubjectReference;
 
 import net.luckperms.api.context.ImmutableContextSet;
-import net.luckperms.api.util.Tristate;
 
 import org.spongepowered.api.service.permission.SubjectCollection;
 
@@ -76,7 +75,7 @@ public class PersistedCollection implements LPSubjectCollection {
     /**
      * The contained subjects
      */
-    private final Map<String, PersistedSubject> subjects = LoadingMap.of(s -> new PersistedSubject(getService(), this, s));
+    private final LoadingMap<String, PersistedSubject> subjects = LoadingMap.of(s -> new PersistedSubject(getService(), this, s));
 
     public PersistedCollection(LuckPermsService service, String identifier) {
         this.service = service;
@@ -174,28 +173,12 @@ public class PersistedCollection implements LPSubjectCollection {
 
     @Override
     public ImmutableMap<LPSubject, Boolean> getLoadedWithPermission(String permission) {
-        ImmutableMap.Builder<LPSubject, Boolean> m = ImmutableMap.builder();
-        for (LPSubject subject : this.subjects.values()) {
-            Tristate ts = subject.getPermissionValue(ImmutableContextSetImpl.EMPTY, permission);
-            if (ts != Tristate.UNDEFINED) {
-                m.put(subject, ts.asBoolean());
-            }
-
-        }
-        return m.build();
+        return getLoadedWithPermission(ImmutableContextSetImpl.EMPTY, permission);
     }
 
     @Override
     public ImmutableMap<LPSubject, Boolean> getLoadedWithPermission(ImmutableContextSet contexts, String permission) {
-        ImmutableMap.Builder<LPSubject, Boolean> m = ImmutableMap.builder();
-        for (LPSubject subject : this.subjects.values()) {
-            Tristate ts = subject.getPermissionValue(contexts, permission);
-            if (ts != Tristate.UNDEFINED) {
-                m.put(subject, ts.asBoolean());
-            }
-
-        }
-        return m.build();
+        return this.service.getPermissionIndex().getLoadedWithPermission(this, contexts, permission, this.subjects.values(), id -> this.subjects.getIfPresent(id.toLowerCase()));
     }
 
     @Override
@@ -26,8 +26,13 @@
 package me.lucko.luckperms.sponge.service.model.persisted;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
+import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.ImmutableCollectors;
 import me.lucko.luckperms.common.util.MoreFiles;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
@@ -36,20 +41,51 @@ import me.lucko.luckperms.sponge.service.model.LPPermissionService;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Handles persisted Subject I/O and (de)serialization
+ *
+ * <p>Each collection is stored as a snapshot file containing the data for
+ * every subject, and a journal file which changes are appended to. The journal
+ * is periodically compacted into the snapshot.</p>
  */
 public class SubjectStorage {
 
+    /**
+     * The name of the file containing the compacted data for a collection
+     */
+    private static final String SNAPSHOT_FILE_NAME = "subjects.snapshot";
+
+    /**
+     * The name of the file which changes to a collection are appended to
+     */
+    private static final String JOURNAL_FILE_NAME = "subjects.journal";
+
+    /**
+     * The number of records a journal can hold before it is compacted into the snapshot
+     */
+    private static final int COMPACTION_THRESHOLD = 1000;
+
     /**
      * The permission service
      */
@@ -60,9 +96,30 @@ public class SubjectStorage {
      */
     private final Path container;
 
+    /**
+     * The subjects with changes waiting to be written
+     */
+    private final Set<PersistedSubject> pendingSaves = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The buffer used to batch writes
+     */
+    private final SaveBuffer saveBuffer;
+
+    /**
+     * The number of records in each collections journal
+     */
+    private final Map<String, Integer> journalSizes = new HashMap<>();
+
+    /**
+     * The collections whose journal contains a malformed record, and so should be compacted
+     */
+    private final Set<String> damagedJournals = new HashSet<>();
+
     public SubjectStorage(LPPermissionService service, Path container) {
         this.service = service;
         this.container = container;
+        this.saveBuffer = new SaveBuffer(service.getPlugin());
     }
 
     /**
@@ -86,46 +143,103 @@ public class SubjectStorage {
     }
 
     /**
-     * Returns the file where a subjects data should be stored
+     * Requests that a subject is saved.
      *
-     * @param collectionIdentifier the identifier of the subjects collection
-     * @param subjectIdentifier the identifier of the subject
-     * @return a file
-     */
-    private Path resolveFile(String collectionIdentifier, String subjectIdentifier) {
-        Path collection = this.container.resolve(collectionIdentifier);
-        try {
-            MoreFiles.createDirectoriesIfNotExists(collection);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        return collection.resolve(subjectIdentifier + ".json");
-    }
-
-    /**
-     * Saves a subject
+     * <p>The write is buffered, and performed in a batch with any other
+     * subjects which are saved in the meantime.</p>
      *
      * @param subject the subject to save
-     * @throws IOException if the write fails
      */
-    public void saveToFile(PersistedSubject subject) throws IOException {
-        Path subjectFile = resolveFile(subject.getParentCollection().getIdentifier(), subject.getIdentifier());
-        saveToFile(SubjectDataContainer.copyOf(subject.getSubjectData()), subjectFile);
+    public void save(PersistedSubject subject) {
+        this.pendingSaves.add(subject);
+        this.saveBuffer.request();
     }
 
     /**
-     * Saves subject data to a specific file
-     *
-     * @param container the data
-     * @param file the file
-     * @throws IOException if the write fails
+     * Writes all pending changes to the journal.
      */
-    public void saveToFile(SubjectDataContainer container, Path file) throws IOException {
-        MoreFiles.createDirectoriesIfNotExists(file.getParent());
-        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
-            GsonProvider.prettyPrinting().toJson(container.serialize(), writer);
-            writer.flush();
+    public void flush() {
+        Map<String, Map<String, SubjectDataContainer>> changes = new LinkedHashMap<>();
+        List<PersistedSubject> saved = new ArrayList<>();
+
+        for (Iterator<PersistedSubject> it = this.pendingSaves.iterator(); it.hasNext(); ) {
+            PersistedSubject subject = it.next();
+            it.remove();
+
+            saved.add(subject);
+            changes.computeIfAbsent(subject.getParentCollection().getIdentifier(), c -> new LinkedHashMap<>())
+                    .put(subject.getIdentifier(), SubjectDataContainer.copyOf(subject.getSubjectData()));
+        }
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            for (Map.Entry<String, Map<String, SubjectDataContainer>> collection : changes.entrySet()) {
+                try {
+                    appendToJournal(collection.getKey(), collection.getValue());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        for (PersistedSubject subject : saved) {
+            // the subject may have been changed again whilst we were writing
+            if (!this.pendingSaves.contains(subject)) {
+                subject.setPendingSave(false);
+            }
+        }
+    }
+
+    private void appendToJournal(String collectionIdentifier, Map<String, SubjectDataContainer> subjects) throws IOException {
+        Path collection = this.container.resolve(collectionIdentifier);
+        MoreFiles.createDirectoriesIfNotExists(collection);
+
+        Path journalFile = collection.resolve(JOURNAL_FILE_NAME);
+        boolean torn = endsWithTornRecord(journalFile);
+
+        Gson gson = GsonProvider.normal();
+        try (BufferedWriter writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (torn) {
+                // terminate the partial record left by a crash, so it isn't joined onto the next one
+                writer.newLine();
+            }
+
+            for (Map.Entry<String, SubjectDataContainer> subject : subjects.entrySet()) {
+                JsonObject record = new JsonObject();
+                record.addProperty("subject", subject.getKey());
+                record.add("data", subject.getValue().serialize());
+
+                // records are written one per line - gson escapes any line breaks in the data
+                writer.write(gson.toJson(record));
+                writer.newLine();
+            }
+        }
+
+        int journalSize = this.journalSizes.merge(collectionIdentifier, subjects.size(), Integer::sum);
+        if (journalSize >= COMPACTION_THRESHOLD) {
+            Map<String, SubjectDataContainer> holders = new HashMap<>();
+            List<Path> legacyFiles = readCollection(collectionIdentifier, collection, holders);
+            compact(collectionIdentifier, holders, legacyFiles);
+        }
+    }
+
+    private static boolean endsWithTornRecord(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return false;
+            }
+
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+            return last.get(0) != '\n';
         }
     }
 
@@ -135,80 +249,175 @@ public class SubjectStorage {
      * @param collectionIdentifier the collection identifier
      * @return a map of found subjects
      */
-    public Map<String, SubjectDataContainer> loadAllFromFile(String collectionIdentifier) {
+    public synchronized Map<String, SubjectDataContainer> loadAllFromFile(String collectionIdentifier) {
         Path collection = this.container.resolve(collectionIdentifier);
         if (!Files.exists(collection)) {
             return Collections.emptyMap();
         }
 
         Map<String, SubjectDataContainer> holders = new HashMap<>();
-        try (Stream<Path> s = Files.list(collection)){
-            s.filter(p -> p.getFileName().toString().endsWith(".json"))
-                    .forEach(subjectFile -> {
-                        try {
-                            LoadedSubject sub = loadFromFile(subjectFile);
-                            if (sub != null) {
-                                holders.put(sub.identifier, sub.data);
-                            }
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    });
+        List<Path> legacyFiles;
+        try {
+            legacyFiles = readCollection(collectionIdentifier, collection, holders);
         } catch (IOException e) {
-            e.printStackTrace();
+            // don't carry on with partial data - it would be written over the snapshot when compacted
+            throw new RuntimeException("Unable to load subjects for collection " + collectionIdentifier, e);
+        }
+
+        if (!legacyFiles.isEmpty() || this.damagedJournals.contains(collectionIdentifier) || this.journalSizes.get(collectionIdentifier) >= COMPACTION_THRESHOLD) {
+            try {
+                compact(collectionIdentifier, holders, legacyFiles);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
+
         return holders;
     }
 
     /**
-     * Loads a subject
+     * Reads the current data for a collection into the given map.
      *
-     * @param collectionIdentifier the collection id
-     * @param subjectIdentifier the subject id
-     * @return a loaded subject
-     * @throws IOException if the read fails
+     * @param collectionIdentifier the collection identifier
+     * @param collection the collection directory
+     * @param holders the map to read into
+     * @return any legacy subject files which were read
+     * @throws IOException if the snapshot or journal couldn't be read
      */
-    public LoadedSubject loadFromFile(String collectionIdentifier, String subjectIdentifier) throws IOException {
-        Path collection = this.container.resolve(collectionIdentifier);
-        if (!Files.exists(collection)) {
-            return null;
+    private List<Path> readCollection(String collectionIdentifier, Path collection, Map<String, SubjectDataContainer> holders) throws IOException {
+        Path snapshotFile = collection.resolve(SNAPSHOT_FILE_NAME);
+
+        // data saved before the journal was introduced is stored in one file per subject
+        List<Path> legacyFiles = Collections.emptyList();
+        if (!Files.exists(snapshotFile)) {
+            legacyFiles = readLegacyFiles(collection, holders);
         }
 
-        Path subject = collection.resolve(subjectIdentifier + ".json");
-        return new LoadedSubject(subjectIdentifier, loadFromFile(subject).data);
+        readSnapshot(snapshotFile, holders);
+        int journalSize = readJournal(collectionIdentifier, collection.resolve(JOURNAL_FILE_NAME), holders);
+        this.journalSizes.put(collectionIdentifier, journalSize);
+        return legacyFiles;
+    }
+
+    private void readSnapshot(Path file, Map<String, SubjectDataContainer> holders) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        Gson gson = GsonProvider.normal();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String subject = reader.nextName();
+                JsonObject data = gson.fromJson(reader, JsonObject.class);
+                holders.put(subject, SubjectDataContainer.deserialize(this.service, data));
+            }
+            reader.endObject();
+        } catch (Exception e) {
+            throw new IOException("Exception occurred whilst loading from " + file.toString(), e);
+        }
+    }
+
+    private int readJournal(String collectionIdentifier, Path file, Map<String, SubjectDataContainer> holders) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        int records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                try {
+                    JsonObject record = GsonProvider.normal().fromJson(line, JsonObject.class);
+                    String subject = record.get("subject").getAsString();
+                    holders.put(subject, SubjectDataContainer.deserialize(this.service, record.get("data").getAsJsonObject()));
+                    records++;
+                } catch (Exception e) {
+                    // most likely a partially written record - skip it, and compact the journal
+                    // so that the damaged line is gone before anything else is appended
+                    this.service.getPlugin().getLogger().warn("Skipping malformed record in " + file.toString() + ": " + e.getMessage());
+                    this.damagedJournals.add(collectionIdentifier);
+                }
+            }
+        }
+        return records;
+    }
+
+    private List<Path> readLegacyFiles(Path collection, Map<String, SubjectDataContainer> holders) {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(collection)) {
+            files = s.filter(p -> p.getFileName().toString().endsWith(".json")).collect(Collectors.toList());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+
+        List<Path> loaded = new ArrayList<>();
+        for (Path subjectFile : files) {
+            String fileName = subjectFile.getFileName().toString();
+            String subjectName = fileName.substring(0, fileName.length() - ".json".length());
+
+            try (BufferedReader reader = Files.newBufferedReader(subjectFile, StandardCharsets.UTF_8)) {
+                JsonObject data = GsonProvider.prettyPrinting().fromJson(reader, JsonObject.class);
+                holders.put(subjectName, SubjectDataContainer.deserialize(this.service, data));
+                loaded.add(subjectFile);
+            } catch (Exception e) {
+                new IOException("Exception occurred whilst loading from " + subjectFile.toString(), e).printStackTrace();
+            }
+        }
+        return loaded;
     }
 
     /**
-     * Loads a subject from a particular file
+     * Rewrites the snapshot for a collection and clears its journal.
      *
-     * @param file the file to load from
-     * @return a loaded subject
-     * @throws IOException if the read fails
+     * @param collectionIdentifier the collection identifier
+     * @param holders the current data for the collection
+     * @param legacyFiles legacy subject files to delete once the snapshot has been written
+     * @throws IOException if the write fails
      */
-    public LoadedSubject loadFromFile(Path file) throws IOException {
-        if (!Files.exists(file)) {
-            return null;
+    private void compact(String collectionIdentifier, Map<String, SubjectDataContainer> holders, List<Path> legacyFiles) throws IOException {
+        Path collection = this.container.resolve(collectionIdentifier);
+        MoreFiles.createDirectoriesIfNotExists(collection);
+
+        Path snapshotFile = collection.resolve(SNAPSHOT_FILE_NAME);
+        Path tmpFile = collection.resolve(SNAPSHOT_FILE_NAME + ".tmp");
+
+        Gson gson = GsonProvider.normal();
+        try (JsonWriter writer = gson.newJsonWriter(Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            for (Map.Entry<String, SubjectDataContainer> holder : holders.entrySet()) {
+                writer.name(holder.getKey());
+                gson.toJson(holder.getValue().serialize(), writer);
+            }
+            writer.endObject();
         }
+        Files.move(tmpFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 
-        String fileName = file.getFileName().toString();
-        String subjectName = fileName.substring(0, fileName.length() - ".json".length());
+        // the snapshot now contains everything in the journal.
+        // if we fail before this point, the journal is simply replayed again on top of the old snapshot
+        Files.deleteIfExists(collection.resolve(JOURNAL_FILE_NAME));
+        this.journalSizes.put(collectionIdentifier, 0);
+        this.damagedJournals.remove(collectionIdentifier);
 
-        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-            JsonObject data = GsonProvider.prettyPrinting().fromJson(reader, JsonObject.class);
-            SubjectDataContainer model = SubjectDataContainer.deserialize(this.service, data);
-            return new LoadedSubject(subjectName, model);
-        } catch (Exception e) {
-            throw new IOException("Exception occurred whilst loading from " + file.toString(), e);
+        for (Path legacyFile : legacyFiles) {
+            Files.deleteIfExists(legacyFile);
         }
     }
 
-    private static final class LoadedSubject {
-        private final String identifier;
-        private final SubjectDataContainer data;
+    private final class SaveBuffer extends BufferedRequest<Void> {
+        SaveBuffer(LuckPermsPlugin plugin) {
+            super(1, TimeUnit.SECONDS, plugin.getBootstrap().getScheduler());
+        }
 
-        private LoadedSubject(String identifier, SubjectDataContainer data) {
-            this.identifier = identifier;
-            this.data = data;
+        @Override
+        protected Void perform() {
+            flush();
+            return null;
         }
     }
 }
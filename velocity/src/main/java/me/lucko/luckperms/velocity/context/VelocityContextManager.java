@@ -28,6 +28,7 @@ package me.lucko.luckperms.velocity.context;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.velocitypowered.api.proxy.Player;
 
+import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.context.ContextManager;
 import me.lucko.luckperms.common.context.QueryOptionsCache;
 import me.lucko.luckperms.common.context.QueryOptionsSupplier;
@@ -42,14 +43,28 @@ import java.util.concurrent.TimeUnit;
 
 public class VelocityContextManager extends ContextManager<Player, Player> {
 
-    private final LoadingCache<Player, QueryOptionsCache<Player>> subjectCaches = CaffeineFactory.newBuilder()
+    // cache the creation of ContextsCache instances for online players with no expiry
+    private final LoadingMap<Player, QueryOptionsCache<Player>> onlineSubjectCaches = LoadingMap.of(key -> new QueryOptionsCache<>(key, this));
+
+    // cache the creation of ContextsCache instances for offline players with a 1m expiry
+    private final LoadingCache<Player, QueryOptionsCache<Player>> offlineSubjectCaches = CaffeineFactory.newBuilder()
             .expireAfterAccess(1, TimeUnit.MINUTES)
-            .build(key -> new QueryOptionsCache<>(key, this));
+            .build(key -> {
+                QueryOptionsCache<Player> cache = this.onlineSubjectCaches.getIfPresent(key);
+                if (cache != null) {
+                    return cache;
+                }
+                return new QueryOptionsCache<>(key, this);
+            });
 
     public VelocityContextManager(LPVelocityPlugin plugin) {
         super(plugin, Player.class, Player.class);
     }
 
+    public void onPlayerQuit(Player player) {
+        this.onlineSubjectCaches.remove(player);
+    }
+
     @Override
     public UUID getUniqueId(Player player) {
         return player.getUniqueId();
@@ -61,12 +76,21 @@ public class VelocityContextManager extends ContextManager<Player, Player> {
             throw new NullPointerException("subject");
         }
 
-        return this.subjectCaches.get(subject);
+        if (subject.isActive()) {
+            return this.onlineSubjectCaches.get(subject);
+        } else {
+            return this.offlineSubjectCaches.get(subject);
+        }
     }
 
     @Override
     protected void invalidateCache(Player subject) {
-        QueryOptionsCache<Player> cache = this.subjectCaches.getIfPresent(subject);
+        QueryOptionsCache<Player> cache = this.onlineSubjectCaches.getIfPresent(subject);
+        if (cache != null) {
+            cache.invalidate();
+        }
+
+        cache = this.offlineSubjectCaches.getIfPresent(subject);
         if (cache != null) {
             cache.invalidate();
         }
@@ -151,6 +151,9 @@ public class VelocityConnectionListener extends AbstractConnectionListener {
     @Subscribe(order = PostOrder.LAST)
     public void onPlayerQuit(DisconnectEvent e) {
         handleDisconnect(e.getPlayer().getUniqueId());
+
+        // remove their contexts cache
+        this.plugin.getContextManager().onPlayerQuit(e.getPlayer());
     }
 
 }
@@ -32,6 +32,7 @@ import com.velocitypowered.api.permission.PermissionSubject;
 import com.velocitypowered.api.permission.Tristate;
 import com.velocitypowered.api.proxy.Player;
 
+import me.lucko.luckperms.common.cacheddata.PermissionCheckHandle;
 import me.lucko.luckperms.common.context.QueryOptionsSupplier;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
@@ -40,13 +41,11 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 
 public class PlayerPermissionProvider implements PermissionProvider, PermissionFunction {
     private final Player player;
-    private final User user;
-    private final QueryOptionsSupplier queryOptionsSupplier;
+    private final PermissionCheckHandle handle;
 
     public PlayerPermissionProvider(Player player, User user, QueryOptionsSupplier queryOptionsSupplier) {
         this.player = player;
-        this.user = user;
-        this.queryOptionsSupplier = queryOptionsSupplier;
+        this.handle = new PermissionCheckHandle(user, queryOptionsSupplier);
     }
 
     @Override
@@ -57,6 +56,6 @@ public class PlayerPermissionProvider implements PermissionProvider, PermissionF
 
     @Override
     public @NonNull Tristate getPermissionValue(@NonNull String permission) {
-        return CompatibilityUtil.convertTristate(this.user.getCachedData().getPermissionData(this.queryOptionsSupplier.getQueryOptions()).checkPermission(permission, PermissionCheckEvent.Origin.PLATFORM_PERMISSION_CHECK).result());
+        return CompatibilityUtil.convertTristate(this.handle.getPermissionData().checkPermission(permission, PermissionCheckEvent.Origin.PLATFORM_PERMISSION_CHECK).result());
     }
 }